@@ -0,0 +1,214 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings of an ELM327 (or compatible) adapter negotiated by the {@link Service} when the communication is set.
+ * <p>
+ * Most of the round-trip time of a request is spent by the adapter: echoing the request, formatting the response,
+ * and waiting for other ECUs to respond. The {@link Service} keep the adapter as it is ({@link #none()}) unless
+ * settings are given with {@link Service#setAdapterSettings(AdapterSettings)}. A new instance use the shortest path:
+ * <ul>
+ * <li>echo, line feeds, spaces and headers off ({@code ATE0}, {@code ATL0}, {@code ATS0}, {@code ATH0})</li>
+ * <li>adaptive timing on ({@code ATAT1})</li>
+ * <li>the response count hint is appended to the mode 01 requests (see {@link ResponseCountHints})</li>
+ * </ul>
+ * A command refused by the adapter is ignored.
+ *
+ * @author MacFJA
+ */
+public class AdapterSettings {
+    private boolean negotiated = true;
+    private boolean echo = false;
+    private boolean lineFeeds = false;
+    private boolean spaces = false;
+    private boolean headers = false;
+    private int adaptiveTiming = 1;
+    private int timeout = -1;
+    private boolean responseCountHint = true;
+
+    /**
+     * Create settings that don't change the adapter (and don't send the response count hint)
+     *
+     * @return The settings
+     */
+    public static AdapterSettings none() {
+        AdapterSettings settings = new AdapterSettings();
+        settings.negotiated = false;
+        settings.setResponseCountHint(false);
+        return settings;
+    }
+
+    /**
+     * Get the AT commands to send to the adapter
+     *
+     * @return The requests, in the order to send them
+     */
+    public List<String> getCommands() {
+        List<String> commands = new ArrayList<>();
+        if (!negotiated) {
+            return commands;
+        }
+        commands.add(echo ? "ATE1" : "ATE0");
+        commands.add(lineFeeds ? "ATL1" : "ATL0");
+        commands.add(spaces ? "ATS1" : "ATS0");
+        commands.add(headers ? "ATH1" : "ATH0");
+        commands.add("ATAT" + adaptiveTiming);
+        if (timeout > 0) {
+            // The unit of the adapter is 4 ms
+            commands.add(String.format("ATST%02X", Math.min(255, (timeout + 3) / 4)));
+        }
+        return commands;
+    }
+
+    /**
+     * Check if the adapter echo the requests
+     *
+     * @return {@code true} if the echo is on
+     */
+    public boolean isEcho() {
+        return echo;
+    }
+
+    /**
+     * Set if the adapter echo the requests
+     *
+     * @param echo {@code true} to turn the echo on
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+
+    /**
+     * Check if the adapter send a line feed after each carriage return
+     *
+     * @return {@code true} if the line feeds are on
+     */
+    public boolean isLineFeeds() {
+        return lineFeeds;
+    }
+
+    /**
+     * Set if the adapter send a line feed after each carriage return
+     *
+     * @param lineFeeds {@code true} to turn the line feeds on
+     */
+    public void setLineFeeds(boolean lineFeeds) {
+        this.lineFeeds = lineFeeds;
+    }
+
+    /**
+     * Check if the adapter separate the bytes of the responses with spaces
+     *
+     * @return {@code true} if the spaces are on
+     */
+    public boolean isSpaces() {
+        return spaces;
+    }
+
+    /**
+     * Set if the adapter separate the bytes of the responses with spaces
+     *
+     * @param spaces {@code true} to turn the spaces on
+     */
+    public void setSpaces(boolean spaces) {
+        this.spaces = spaces;
+    }
+
+    /**
+     * Check if the adapter show the headers of the responses
+     *
+     * @return {@code true} if the headers are on
+     */
+    public boolean isHeaders() {
+        return headers;
+    }
+
+    /**
+     * Set if the adapter show the headers of the responses
+     *
+     * @param headers {@code true} to turn the headers on
+     */
+    public void setHeaders(boolean headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Get the adaptive timing mode of the adapter
+     *
+     * @return {@code 0} (off), {@code 1} (normal) or {@code 2} (aggressive)
+     */
+    public int getAdaptiveTiming() {
+        return adaptiveTiming;
+    }
+
+    /**
+     * Set the adaptive timing mode of the adapter
+     *
+     * @param adaptiveTiming {@code 0} (off), {@code 1} (normal) or {@code 2} (aggressive)
+     */
+    public void setAdaptiveTiming(int adaptiveTiming) {
+        if (adaptiveTiming < 0 || adaptiveTiming > 2) {
+            throw new IllegalArgumentException("The adaptive timing must be 0, 1 or 2");
+        }
+        this.adaptiveTiming = adaptiveTiming;
+    }
+
+    /**
+     * Get the time the adapter wait for a response of the ECUs
+     *
+     * @return The time (in milliseconds), {@code -1} if the default of the adapter is used
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Set the time the adapter wait for a response of the ECUs (with the adaptive timing, the maximum time)
+     *
+     * @param timeout The time (in milliseconds, up to 1020), {@code -1} to use the default of the adapter
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Check if the number of expected responses is appended to the mode 01 requests
+     *
+     * @return {@code true} if the hint is used
+     */
+    public boolean isResponseCountHint() {
+        return responseCountHint;
+    }
+
+    /**
+     * Set if the number of expected responses is appended to the mode 01 requests.
+     * <p>
+     * The adapter then return as soon as all the ECUs responded, instead of waiting for its timeout.
+     *
+     * @param responseCountHint {@code true} to use the hint
+     */
+    public void setResponseCountHint(boolean responseCountHint) {
+        this.responseCountHint = responseCountHint;
+    }
+}
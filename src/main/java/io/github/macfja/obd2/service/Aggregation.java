@@ -0,0 +1,135 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The windows of values of a command.
+ * <p>
+ * The window is split in panes of {@code step} milliseconds, a summary of the whole window is emitted at the end of
+ * each pane (a tumbling window have only one pane).
+ * Panes are aligned on the epoch, so the windows of every command (including the values calculated by a
+ * {@link MultiCommandInterface}) cover the same interval and can be merged.
+ *
+ * @author MacFJA
+ */
+class Aggregation implements ObdObserver {
+    private int id;
+    private long window;
+    private long step;
+    private List<WindowObserver> observers = new CopyOnWriteArrayList<>();
+    private WindowAccumulator[] panes;
+    private WindowAccumulator merged = new WindowAccumulator();
+    private int current = 0;
+    private long paneStart = -1;
+    private Scheduler scheduler;
+
+    /**
+     * Class constructor.
+     *
+     * @param id        The id of the command
+     * @param window    The length of the window (in milliseconds)
+     * @param step      The time between two summaries (in milliseconds), must divide the window
+     * @param scheduler The source of the time of the values
+     */
+    Aggregation(int id, long window, long step, Scheduler scheduler) {
+        if (step <= 0 || window < step || window % step != 0) {
+            throw new IllegalArgumentException("The window must be a positive multiple of the step");
+        }
+        this.id = id;
+        this.window = window;
+        this.step = step;
+        this.scheduler = scheduler;
+        panes = new WindowAccumulator[(int) (window / step)];
+        for (int index = 0; index < panes.length; index++) {
+            panes[index] = new WindowAccumulator();
+        }
+    }
+
+    boolean isSame(int id, long window, long step) {
+        return this.id == id && this.window == window && this.step == step;
+    }
+
+    List<WindowObserver> getObservers() {
+        return observers;
+    }
+
+    @Override
+    public void update(Response response) {
+        add(ResponseValues.toDouble(response), false, scheduler.currentTimeMillis());
+    }
+
+    @Override
+    public void error(Command request, Response response, Exception exception) {
+        add(Double.NaN, true, scheduler.currentTimeMillis());
+    }
+
+    synchronized void add(double value, boolean error, long now) {
+        if (paneStart < 0) {
+            paneStart = now - now % step;
+        }
+        roll(now);
+        panes[current].add(value, error, now);
+    }
+
+    /**
+     * Close the panes that ended before a time, and emit the summary of their window
+     *
+     * @param now The time
+     */
+    synchronized void roll(long now) {
+        if (paneStart < 0) {
+            return;
+        }
+        int rolled = 0;
+        while (now >= paneStart + step) {
+            if (rolled > panes.length) {
+                // Every pane is empty now, no need to close the windows one by one
+                paneStart = now - now % step;
+                break;
+            }
+            long end = paneStart + step;
+            emit(end);
+            current = (current + 1) % panes.length;
+            panes[current].clear();
+            paneStart = end;
+            rolled++;
+        }
+    }
+
+    private void emit(long end) {
+        merged.clear();
+        for (WindowAccumulator pane : panes) {
+            merged.merge(pane);
+        }
+        if (merged.isEmpty()) {
+            return;
+        }
+        WindowSummary summary = new WindowSummary(CommandId.request(id), end - window, end, merged);
+        for (WindowObserver observer : observers) {
+            observer.summary(summary);
+        }
+    }
+}
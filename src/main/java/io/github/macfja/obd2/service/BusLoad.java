@@ -0,0 +1,73 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The planned load of the scheduled commands, compared to what the bus can deliver.
+ * <p>
+ * The capacity is estimated from the round-trip times measured by the {@link LatencyTracker}.
+ *
+ * @author MacFJA
+ * @see Service#getBusLoad()
+ */
+public class BusLoad {
+    private double plannedRate;
+    private double achievableRate;
+    private double utilization;
+
+    BusLoad(double plannedRate, double achievableRate, double utilization) {
+        this.plannedRate = plannedRate;
+        this.achievableRate = achievableRate;
+        this.utilization = utilization;
+    }
+
+    /**
+     * Get the number of requests per second needed by the scheduled commands
+     *
+     * @return The number of requests per second
+     */
+    public double getPlannedRate() {
+        return plannedRate;
+    }
+
+    /**
+     * Get the number of requests per second the bus can deliver (from the average round-trip time)
+     *
+     * @return The number of requests per second
+     */
+    public double getAchievableRate() {
+        return achievableRate;
+    }
+
+    /**
+     * Get the part of the time of the bus needed by the scheduled commands (from the round-trip time of each command)
+     *
+     * @return The utilization, above {@code 1} the schedules can't be respected
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BusLoad{planned=%.1f req/s, achievable=%.1f req/s, utilization=%.0f%%}",
+                plannedRate, achievableRate, utilization * 100);
+    }
+}
@@ -10,10 +10,9 @@ import io.github.macfja.obd2.command.livedata.IntakeManifoldAbsolutePressure;
 import io.github.macfja.obd2.response.CalculatedResponse;
 
 import javax.script.ScriptException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A multi-command implementation for OBD2 that doesn't support the command {@code 0110}.
@@ -24,7 +23,7 @@ import java.util.Map;
  *
  * @see <a href="http://www.lightner.net/obd2guru/IMAP_AFcalc.html">MAP- and MAF-Based Air/Fuel Flow Calculator by Bruce D. Lightner</a>
  */
-abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implements MultiCommandInterface {
+abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implements SlottedMultiCommand {
     /**
      * The mass of air.
      * <p>
@@ -43,12 +42,19 @@ abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implement
      */
     public static final Double IDEAL_GAS_CONSTANT = 8.314472;
 
+    private static final int RPM_SLOT = 0;
+    private static final int MAP_SLOT = 1;
+    private static final int IAT_SLOT = 2;
+
     private float displacement;
 
     private EngineRPM rpm = new EngineRPM();
     private IntakeManifoldAbsolutePressure imap = new IntakeManifoldAbsolutePressure();
     private IntakeAirTemperature iat = new IntakeAirTemperature();
-    private Map<String, Response> responses = new HashMap<>();
+    private List<Command> commands = Collections.unmodifiableList(Arrays.<Command>asList(rpm, imap, iat));
+    private MultiResponse responses = new MultiResponse(new int[]{
+            CommandId.of(rpm), CommandId.of(imap), CommandId.of(iat)
+    });
 
     /**
      * Class Constructor.
@@ -61,19 +67,32 @@ abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implement
     }
 
     /**
-     * Get the response of a single sub command
+     * Get the value of a single sub command
+     * <p>
+     * The value at the common instant of the evaluation is used, if the {@link Service} has aligned them.
      *
-     * @param command The sub command to lookup
-     * @return The response associated to the command
+     * @param responses The responses of the sub commands
+     * @param slot      The slot of the sub command to lookup
+     * @return The value of the command
+     * @throws ScriptException If the sub command doesn't have a numeric value (most likely an error)
      */
-    private Response getR(Command command) {
-        return responses.get(command.getRequest());
+    private double getR(MultiResponse responses, int slot) throws ScriptException {
+        double value = responses.getValueAt(slot);
+        if (!(responses.getResponseAt(slot) instanceof CalculatedResponse) || Double.isNaN(value)) {
+            throw new ScriptException(String.format("No value for the command '%s'", commands.get(slot).getRequest()));
+        }
+        return value;
     }
 
     @Override
     public Response getResponse(byte[] rawResult) throws ScriptException {
-        CalculatedResponse rpm = (CalculatedResponse) getR(this.rpm);
-        return new CalculatedResponse(new byte[0], calculateMaf(calculateImap(), rpm.getCalculated().intValue(), displacement)) {
+        return getResponse(responses);
+    }
+
+    @Override
+    public Response getResponse(MultiResponse responses) throws ScriptException {
+        int rpm = (int) getR(responses, RPM_SLOT);
+        return new CalculatedResponse(new byte[0], calculateMaf(calculateImap(responses), rpm, displacement)) {
             @Override
             public Unit getUnit() {
                 return Unit.GramPerSecond;
@@ -90,19 +109,21 @@ abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implement
      * Kilo Pascal per minutes per kelvins
      * (Pressure variation in time and temperature)
      *
+     * @param responses The responses of the sub commands
      * @return The IMAP value
+     * @throws ScriptException If a sub command doesn't have a calculated response
      */
-    private float calculateImap() {
+    private float calculateImap(MultiResponse responses) throws ScriptException {
         /*
         imap            = RPM    * MAP / IAT / 2
 
         min^-1 kPa K^-1 = min^-1 * kPa / K   / {no unit}
         */
-        CalculatedResponse rpm = (CalculatedResponse) getR(this.rpm);
-        CalculatedResponse map = (CalculatedResponse) getR(this.imap);
-        CalculatedResponse iat = (CalculatedResponse) getR(this.iat);
+        double rpm = getR(responses, RPM_SLOT);
+        double map = getR(responses, MAP_SLOT);
+        double iat = getR(responses, IAT_SLOT);
 
-        return rpm.getCalculated().intValue() * map.getCalculated().floatValue() / iat.getCalculated().floatValue() / 2;
+        return (int) rpm * (float) map / (float) iat / 2;
     }
 
     /**
@@ -112,7 +133,7 @@ abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implement
      * Grams per seconds
      * (Mass variation in time)
      *
-     * @param imap         The value of the IMAP (see {@link #calculateImap()})
+     * @param imap         The value of the IMAP (see {@link #calculateImap(MultiResponse)})
      * @param rpm          The engine RPM (used to get the {@link #getVolumetricEfficiency(int)})
      * @param displacement The size of the engine (in litre)
      * @return The mass of air per second
@@ -135,16 +156,18 @@ abstract public class CalculatedMassAirFlowCommand extends AirFlowRate implement
 
     @Override
     public List<Command> getCommands() {
-        List<Command> commands = new ArrayList<>();
-        commands.add(rpm);
-        commands.add(imap);
-        commands.add(iat);
         return commands;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @deprecated The storage is shared between evaluations, use {@link #getResponse(MultiResponse)} instead
+     */
+    @Deprecated
     @Override
     public void setResponse(String request, Response response) {
-        responses.put(request, response);
+        responses.setResponse(request, response);
     }
 
     /**
@@ -0,0 +1,90 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * A frame read from the CAN bus.
+ * <p>
+ * The instance given to {@link FrameDecoder#decode(CanFrame)} is reused for the next frame,
+ * a decoder must copy what it need to keep.
+ *
+ * @author MacFJA
+ */
+public class CanFrame {
+    /**
+     * The maximum number of data bytes of a frame
+     */
+    public static final int MAX_LENGTH = 64;
+
+    private int id;
+    private byte[] data = new byte[MAX_LENGTH];
+    private int length;
+    private long timestamp;
+
+    /**
+     * Get the identifier (header) of the frame
+     *
+     * @return The CAN identifier (11 or 29 bits)
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the number of data bytes
+     *
+     * @return The length of the data
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get a data byte
+     *
+     * @param index The position of the byte
+     * @return The unsigned value of the byte
+     */
+    public int getByte(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(String.format("The frame only have %d bytes", length));
+        }
+        return data[index] & 0xFF;
+    }
+
+    /**
+     * Get the time when the frame was received
+     *
+     * @return The time (from {@link System#nanoTime()})
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void set(int id, int length, long timestamp) {
+        this.id = id;
+        this.length = length;
+        this.timestamp = timestamp;
+    }
+
+    void setByte(int index, int value) {
+        data[index] = (byte) value;
+    }
+}
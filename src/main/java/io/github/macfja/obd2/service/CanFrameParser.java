@@ -0,0 +1,113 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * Incremental parser of the frames printed by an ELM327 adapter in monitor mode ({@code ATMA}, with headers on).
+ * <p>
+ * Characters are given one by one, a frame is available every time a line is completed.
+ * Lines that are not frames ({@code SEARCHING...}, {@code BUFFER FULL}, etc.) are ignored.
+ * Nothing is allocated while parsing: the same {@link CanFrame} is reused.
+ *
+ * @author MacFJA
+ */
+public class CanFrameParser {
+    private static final int MAX_LINE = 3 + 8 + CanFrame.MAX_LENGTH * 3;
+
+    private boolean extendedIds;
+    private char[] line = new char[MAX_LINE];
+    private int lineLength = 0;
+    private boolean overflow = false;
+    private CanFrame frame = new CanFrame();
+
+    /**
+     * Class constructor.
+     *
+     * @param extendedIds {@code true} if the bus use 29 bits identifiers, {@code false} for 11 bits identifiers
+     */
+    public CanFrameParser(boolean extendedIds) {
+        this.extendedIds = extendedIds;
+    }
+
+    /**
+     * Give the next character of the stream
+     *
+     * @param character The character
+     * @return {@code true} if a frame is available (see {@link #getFrame()})
+     */
+    public boolean accept(int character) {
+        if (character == '\r' || character == '\n') {
+            boolean parsed = !overflow && lineLength > 0 && parseLine();
+            lineLength = 0;
+            overflow = false;
+            return parsed;
+        }
+        if (character == ' ') {
+            return false;
+        }
+        if (lineLength == line.length) {
+            overflow = true;
+            return false;
+        }
+        line[lineLength++] = (char) character;
+        return false;
+    }
+
+    /**
+     * Get the last parsed frame
+     *
+     * @return The frame (reused for the next frame)
+     */
+    public CanFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Parse the current line (without its spaces)
+     *
+     * @return {@code true} if the line is a frame
+     */
+    private boolean parseLine() {
+        int headerLength = extendedIds ? 8 : 3;
+        int dataLength = lineLength - headerLength;
+        if (dataLength <= 0 || dataLength % 2 != 0 || dataLength / 2 > CanFrame.MAX_LENGTH) {
+            return false;
+        }
+
+        int id = 0;
+        for (int index = 0; index < headerLength; index++) {
+            int value = Character.digit(line[index], 16);
+            if (value < 0) {
+                return false;
+            }
+            id = (id << 4) | value;
+        }
+        for (int index = headerLength; index < lineLength; index += 2) {
+            int high = Character.digit(line[index], 16);
+            int low = Character.digit(line[index + 1], 16);
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            frame.setByte((index - headerLength) / 2, (high << 4) | low);
+        }
+        frame.set(id, dataLength / 2, System.nanoTime());
+        return true;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.SimpleCommands;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passive monitoring of the CAN bus (ELM327 {@code ATMA}).
+ * <p>
+ * Instead of sending requests, the adapter print every frame it sees on the bus.
+ * Frames are decoded by the {@link FrameDecoder} registered for their CAN identifier,
+ * and the responses are sent to the {@link ObdObserver} of the associated command.
+ * <p>
+ * While the monitor is running, the {@link Service} doesn't send any command
+ * (scheduled commands are paused, and {@link Service#run(Command)} return an error).
+ *
+ * @author MacFJA
+ */
+public class CanMonitor {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private Service service;
+    private boolean extendedIds = false;
+
+    private volatile Decoders decoders = new Decoders(new int[0], new Registration[0][]);
+
+    private volatile boolean running = false;
+    private volatile boolean stopping = false;
+    /** If the headers were on before the monitoring (see {@link AdapterSettings#isHeaders()}) */
+    private boolean headers = false;
+    private boolean filtered = false;
+    private CountDownLatch stopped;
+
+    /**
+     * Class constructor.
+     *
+     * @param service The service to monitor the bus of
+     */
+    public CanMonitor(Service service) {
+        this.service = service;
+    }
+
+    /**
+     * Register a decoder for a CAN identifier
+     *
+     * @param canId   The CAN identifier of the frames
+     * @param command The command that the decoded responses belong to (its observers are notified)
+     * @param decoder The decoder
+     */
+    public synchronized void register(int canId, Command command, FrameDecoder decoder) {
+        Registration registration = new Registration(CommandId.of(command), command, decoder);
+        int[] canIds = decoders.canIds;
+        Registration[][] registrations = decoders.registrations;
+        int index = Arrays.binarySearch(canIds, canId);
+        if (index >= 0) {
+            Registration[][] nextRegistrations = registrations.clone();
+            Registration[] next = Arrays.copyOf(registrations[index], registrations[index].length + 1);
+            next[next.length - 1] = registration;
+            nextRegistrations[index] = next;
+            decoders = new Decoders(canIds, nextRegistrations);
+            return;
+        }
+        index = -index - 1;
+        int[] nextIds = new int[canIds.length + 1];
+        Registration[][] nextRegistrations = new Registration[canIds.length + 1][];
+        System.arraycopy(canIds, 0, nextIds, 0, index);
+        System.arraycopy(registrations, 0, nextRegistrations, 0, index);
+        nextIds[index] = canId;
+        nextRegistrations[index] = new Registration[]{registration};
+        System.arraycopy(canIds, index, nextIds, index + 1, canIds.length - index);
+        System.arraycopy(registrations, index, nextRegistrations, index + 1, canIds.length - index);
+        decoders = new Decoders(nextIds, nextRegistrations);
+    }
+
+    /**
+     * Register the decoding of an OBD command response (see {@link ObdFrameDecoder})
+     *
+     * @param canId   The CAN identifier of the ECU that respond (for example {@code 0x7E8})
+     * @param command The OBD command
+     */
+    public void register(int canId, Command command) {
+        register(canId, command, new ObdFrameDecoder(command));
+    }
+
+    /**
+     * Start the monitoring of every frames
+     *
+     * @throws IOException If the adapter can't be switched to monitor mode
+     */
+    public void start() throws IOException {
+        start(null);
+    }
+
+    /**
+     * Start the monitoring
+     *
+     * @param filter The CAN identifier filter ({@code ATCRA} parameter, for example {@code 7E8} or {@code 7EX}),
+     *               or {@code null} to monitor every frames
+     * @throws IOException If the adapter can't be switched to monitor mode
+     */
+    public synchronized void start(String filter) throws IOException {
+        if (running) {
+            return;
+        }
+        final OutputStream toObd = service.getOutputStream();
+        final InputStream fromObd = service.getInputStream();
+        if (toObd == null || fromObd == null) {
+            throw new IOException("The service doesn't have a communication with the OBD");
+        }
+
+        synchronized (service.getBusLock()) {
+            headers = service.getAdapterSettings().isHeaders();
+            if (!headers) {
+                setUp("ATH1");
+            }
+            filtered = filter != null;
+            if (filtered) {
+                setUp("ATCRA " + filter);
+            }
+            service.setMonitoring(true);
+            toObd.write("ATMA\r".getBytes(StandardCharsets.US_ASCII));
+            toObd.flush();
+        }
+        running = true;
+        stopping = false;
+        stopped = new CountDownLatch(1);
+        final CountDownLatch latch = stopped;
+
+        service.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    read(fromObd);
+                } catch (IOException e) {
+                    logger.warn("The monitoring of the bus failed: {}", e.getLocalizedMessage());
+                } finally {
+                    latch.countDown();
+                    if (!stopping) {
+                        logger.warn("The monitoring of the bus have been stopped by the adapter");
+                        restore();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the monitoring, and give back the bus to the {@link Service}
+     *
+     * @throws IOException If the adapter can't be switched back to normal mode
+     */
+    public void stop() throws IOException {
+        CountDownLatch latch;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            stopping = true;
+            latch = stopped;
+            // Any character stop the monitoring
+            service.getOutputStream().write('\r');
+            service.getOutputStream().flush();
+        }
+        try {
+            if (!latch.await(2, TimeUnit.SECONDS)) {
+                logger.warn("The adapter didn't confirm the end of the monitoring");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        restore();
+    }
+
+    /**
+     * Indicate if the monitor is running
+     *
+     * @return {@code true} if the bus is monitored
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Indicate if the bus use 29 bits identifiers
+     *
+     * @return {@code true} for 29 bits identifiers, {@code false} for 11 bits identifiers
+     */
+    public boolean isExtendedIds() {
+        return extendedIds;
+    }
+
+    /**
+     * Set if the bus use 29 bits identifiers (default: 11 bits)
+     *
+     * @param extendedIds {@code true} for 29 bits identifiers, {@code false} for 11 bits identifiers
+     */
+    public void setExtendedIds(boolean extendedIds) {
+        this.extendedIds = extendedIds;
+    }
+
+    /**
+     * Read the frame stream until the adapter prompt (end of the monitoring)
+     *
+     * @param fromObd The stream of the adapter
+     * @throws IOException If the stream can't be read
+     */
+    private void read(InputStream fromObd) throws IOException {
+        CanFrameParser parser = new CanFrameParser(extendedIds);
+        byte[] buffer = new byte[256];
+        while (true) {
+            int count = fromObd.read(buffer);
+            if (count < 0) {
+                return;
+            }
+            for (int index = 0; index < count; index++) {
+                if (buffer[index] == '>') {
+                    return;
+                }
+                if (parser.accept(buffer[index]) && !stopping) {
+                    dispatch(parser.getFrame());
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a frame and notify the observers
+     *
+     * @param frame The frame to dispatch
+     */
+    private void dispatch(CanFrame frame) {
+        Decoders current = decoders;
+        int index = Arrays.binarySearch(current.canIds, frame.getId());
+        if (index < 0) {
+            return;
+        }
+        for (Registration registration : current.registrations[index]) {
+            try {
+                Response response = registration.decoder.decode(frame);
+                if (response != null) {
+                    service.publish(registration.id, registration.command, response);
+                }
+            } catch (ScriptException e) {
+                logger.debug("Unable to decode a frame of {}: {}", frame.getId(), e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Send a configuration command to the adapter
+     *
+     * @param request The AT command
+     * @throws IOException If the adapter doesn't accept the command
+     */
+    private void setUp(String request) throws IOException {
+        CommanderInterface commander = service.getCommander();
+        try {
+            commander.sendCommand(SimpleCommands.create(request));
+        } catch (ScriptException | ExceptionResponse e) {
+            throw new IOException(String.format("The adapter refused '%s': %s", request, e.getLocalizedMessage()), e);
+        }
+    }
+
+    /**
+     * Put the adapter back in normal mode (the headers and the filter as they were before the monitoring),
+     * and resume the service
+     */
+    private synchronized void restore() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (service.getBusLock()) {
+            try {
+                if (filtered) {
+                    setUp("ATCRA");
+                }
+                if (!headers) {
+                    setUp("ATH0");
+                }
+            } catch (IOException e) {
+                logger.warn("Unable to restore the adapter configuration: {}", e.getLocalizedMessage());
+            }
+            service.setMonitoring(false);
+        }
+    }
+
+    /**
+     * The registered decoders, sorted by CAN identifier (never modified once created)
+     */
+    private static class Decoders {
+        private int[] canIds;
+        private Registration[][] registrations;
+
+        Decoders(int[] canIds, Registration[][] registrations) {
+            this.canIds = canIds;
+            this.registrations = registrations;
+        }
+    }
+
+    /**
+     * A decoder associated to a command
+     */
+    private static class Registration {
+        private int id;
+        private Command command;
+        private FrameDecoder decoder;
+
+        Registration(int id, Command command, FrameDecoder decoder) {
+            this.id = id;
+            this.command = command;
+            this.decoder = decoder;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * A small file store of {@link VehicleCapabilities}, one file per VIN.
+ * <p>
+ * The cache is best effort: read and write errors are logged, and an unreadable file is the same as a missing one.
+ *
+ * @author MacFJA
+ */
+public class CapabilityCache {
+    private static final String SIGNATURE = "signature";
+    private static final String SUPPORTED = "supported.";
+    private static final String CHECKED = "checked.";
+    private static final String LATENCY = "latency.";
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private File directory;
+    private long maxAge = 7L * 24 * 3600 * 1000;
+
+    /**
+     * Class constructor.
+     *
+     * @param directory The directory where the capabilities are stored
+     */
+    public CapabilityCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Load the capabilities of a vehicle
+     *
+     * @param vin The Vehicle Identification Number
+     * @return The stored capabilities (empty if nothing is stored)
+     */
+    public VehicleCapabilities load(String vin) {
+        VehicleCapabilities capabilities = new VehicleCapabilities(vin);
+        File file = getFile(vin);
+        if (!file.isFile()) {
+            return capabilities;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        } catch (IOException e) {
+            logger.warn("Unable to read the capabilities of {}: {}", vin, e.getLocalizedMessage());
+            return capabilities;
+        }
+
+        capabilities.setSignature(properties.getProperty(SIGNATURE));
+        try {
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith(SUPPORTED)) {
+                    String request = key.substring(SUPPORTED.length());
+                    capabilities.setSupported(
+                            request,
+                            Boolean.parseBoolean(properties.getProperty(key)),
+                            Long.parseLong(properties.getProperty(CHECKED + request, "0"))
+                    );
+                } else if (key.startsWith(LATENCY)) {
+                    capabilities.setLatency(key.substring(LATENCY.length()), Long.parseLong(properties.getProperty(key)));
+                }
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("The capabilities of {} are corrupted: {}", vin, e.getLocalizedMessage());
+            return new VehicleCapabilities(vin);
+        }
+        return capabilities;
+    }
+
+    /**
+     * Store the capabilities of a vehicle
+     *
+     * @param capabilities The capabilities to store
+     */
+    public void save(VehicleCapabilities capabilities) {
+        Properties properties = new Properties();
+        if (capabilities.getSignature() != null) {
+            properties.setProperty(SIGNATURE, capabilities.getSignature());
+        }
+        for (String request : capabilities.getKnownRequests()) {
+            properties.setProperty(SUPPORTED + request, String.valueOf(capabilities.isSupported(request)));
+            properties.setProperty(CHECKED + request, String.valueOf(capabilities.getCheckedAt(request)));
+        }
+        for (String request : capabilities.getMeasuredRequests()) {
+            properties.setProperty(LATENCY + request, String.valueOf(capabilities.getLatency(request)));
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warn("Unable to create the capability cache directory {}", directory);
+            return;
+        }
+        File file = getFile(capabilities.getVin());
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (OutputStream output = new FileOutputStream(temporary)) {
+            properties.store(output, "Capabilities of " + capabilities.getVin());
+        } catch (IOException e) {
+            logger.warn("Unable to write the capabilities of {}: {}", capabilities.getVin(), e.getLocalizedMessage());
+            return;
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            logger.warn("Unable to replace the capabilities of {}", capabilities.getVin());
+        }
+    }
+
+    private File getFile(String vin) {
+        return new File(directory, vin.replaceAll("[^A-Za-z0-9]", "_") + ".properties");
+    }
+
+    /**
+     * Get the time (in milliseconds) after which a stored capability is checked again (in background)
+     *
+     * @return The time in milliseconds
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Set the time (in milliseconds) after which a stored capability is checked again (in background)
+     *
+     * @param maxAge The time in milliseconds
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Keep track of failing commands to avoid wasting the OBD time on them.
+ * <p>
+ * Every failure of a command delay its next execution with an exponential back-off
+ * (from {@link #getBaseBackOff()} to {@link #getMaxBackOff()}).
+ * After {@link #getSuspendThreshold()} consecutive failures (or if the command is not supported) the command is suspended,
+ * and only a probe execution is allowed every {@link #getProbeInterval()} milliseconds
+ * (doubled after each failed probe, up to {@link #getMaxProbeInterval()}).
+ * A success always restore the command.
+ * <p>
+ * Commands are identified by their {@link CommandId}, methods that take a command code are only shortcuts.
+ *
+ * @author MacFJA
+ */
+public class CircuitBreaker {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private CommandHealth[] healths = new CommandHealth[0];
+
+    private long baseBackOff = 1000;
+    private long maxBackOff = 30000;
+    private int suspendThreshold = 5;
+    private long probeInterval = 60000;
+    private long maxProbeInterval = 600000;
+
+    /**
+     * Indicate if a command can be executed right now.
+     * <p>
+     * If the command is suspended and its probe time is reached, the command switch to {@link CommandHealth.State#HALF_OPEN}.
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param now     The current time (in milliseconds)
+     * @return {@code true} if the command can be executed
+     */
+    public boolean allows(String request, long now) {
+        return allows(CommandId.of(request), now);
+    }
+
+    /**
+     * Indicate if a command can be executed right now.
+     *
+     * @param id  The command id ({@link CommandId})
+     * @param now The current time (in milliseconds)
+     * @return {@code true} if the command can be executed
+     * @see #allows(String, long)
+     */
+    public synchronized boolean allows(int id, long now) {
+        CommandHealth health = id < healths.length ? healths[id] : null;
+        if (health == null || now >= health.getNextAttempt() && health.getState() == CommandHealth.State.CLOSED) {
+            return true;
+        }
+        if (now < health.getNextAttempt()) {
+            return false;
+        }
+        // Suspended (or a previous probe that never completed): allow a new probe
+        health.setState(CommandHealth.State.HALF_OPEN);
+        health.setNextAttempt(now + health.getProbeDelay());
+        return true;
+    }
+
+    /**
+     * Record a successful execution of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     */
+    public void success(String request) {
+        success(CommandId.of(request));
+    }
+
+    /**
+     * Record a successful execution of a command
+     *
+     * @param id The command id ({@link CommandId})
+     */
+    public synchronized void success(int id) {
+        CommandHealth health = getOrCreate(id);
+        if (health.getState() != CommandHealth.State.CLOSED) {
+            logger.info("The command '{}' is working again", health.getRequest());
+        }
+        health.succeeded();
+    }
+
+    /**
+     * Record a failed execution of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param now     The current time (in milliseconds)
+     */
+    public void failure(String request, long now) {
+        failure(CommandId.of(request), now);
+    }
+
+    /**
+     * Record a failed execution of a command
+     *
+     * @param id  The command id ({@link CommandId})
+     * @param now The current time (in milliseconds)
+     */
+    public synchronized void failure(int id, long now) {
+        CommandHealth health = getOrCreate(id);
+        health.failed();
+
+        if (health.getState() == CommandHealth.State.HALF_OPEN) {
+            long delay = Math.min(maxProbeInterval, health.getProbeDelay() * 2);
+            open(health, now, delay);
+            return;
+        }
+        if (health.getState() == CommandHealth.State.OPEN) {
+            return;
+        }
+        if (health.getConsecutiveFailures() >= suspendThreshold) {
+            logger.warn("The command '{}' failed {} times in a row, it is suspended", health.getRequest(), health.getConsecutiveFailures());
+            open(health, now, probeInterval);
+            return;
+        }
+
+        int shift = Math.min(health.getConsecutiveFailures() - 1, 30);
+        health.setNextAttempt(now + Math.min(maxBackOff, baseBackOff << shift));
+    }
+
+    /**
+     * Suspend a command (for example because it's not supported by the vehicle)
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param now     The current time (in milliseconds)
+     */
+    public void suspend(String request, long now) {
+        suspend(CommandId.of(request), now);
+    }
+
+    /**
+     * Suspend a command (for example because it's not supported by the vehicle)
+     *
+     * @param id  The command id ({@link CommandId})
+     * @param now The current time (in milliseconds)
+     */
+    public synchronized void suspend(int id, long now) {
+        CommandHealth health = getOrCreate(id);
+        if (health.getState() != CommandHealth.State.CLOSED) {
+            return;
+        }
+        logger.info("The command '{}' is suspended", health.getRequest());
+        open(health, now, probeInterval);
+    }
+
+    /**
+     * Forget every failure of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     */
+    public void reset(String request) {
+        reset(CommandId.of(request));
+    }
+
+    /**
+     * Forget every failure of a command
+     *
+     * @param id The command id ({@link CommandId})
+     */
+    public synchronized void reset(int id) {
+        if (id < healths.length) {
+            healths[id] = null;
+        }
+    }
+
+    /**
+     * Get the health of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @return A snapshot of the health of the command
+     */
+    public CommandHealth getHealth(String request) {
+        return getHealth(CommandId.of(request));
+    }
+
+    /**
+     * Get the health of a command
+     *
+     * @param id The command id ({@link CommandId})
+     * @return A snapshot of the health of the command
+     */
+    public synchronized CommandHealth getHealth(int id) {
+        if (id >= healths.length || healths[id] == null) {
+            return new CommandHealth(CommandId.request(id));
+        }
+        return new CommandHealth(healths[id]);
+    }
+
+    private CommandHealth getOrCreate(int id) {
+        if (id >= healths.length) {
+            healths = Arrays.copyOf(healths, Math.max(id + 1, CommandId.size()));
+        }
+        if (healths[id] == null) {
+            healths[id] = new CommandHealth(CommandId.request(id));
+        }
+        return healths[id];
+    }
+
+    private void open(CommandHealth health, long now, long delay) {
+        health.setState(CommandHealth.State.OPEN);
+        health.setProbeDelay(delay);
+        health.setNextAttempt(now + delay);
+    }
+
+    /**
+     * Get the delay (in milliseconds) added after the first failure
+     *
+     * @return The delay in milliseconds
+     */
+    public long getBaseBackOff() {
+        return baseBackOff;
+    }
+
+    /**
+     * Set the delay (in milliseconds) added after the first failure.
+     * <p>
+     * This delay is doubled on every consecutive failure.
+     *
+     * @param baseBackOff The delay in milliseconds
+     */
+    public void setBaseBackOff(long baseBackOff) {
+        this.baseBackOff = baseBackOff;
+    }
+
+    /**
+     * Get the longest delay (in milliseconds) of the back-off
+     *
+     * @return The delay in milliseconds
+     */
+    public long getMaxBackOff() {
+        return maxBackOff;
+    }
+
+    /**
+     * Set the longest delay (in milliseconds) of the back-off
+     *
+     * @param maxBackOff The delay in milliseconds
+     */
+    public void setMaxBackOff(long maxBackOff) {
+        this.maxBackOff = maxBackOff;
+    }
+
+    /**
+     * Get the number of consecutive failure before a command is suspended
+     *
+     * @return The number of failure
+     */
+    public int getSuspendThreshold() {
+        return suspendThreshold;
+    }
+
+    /**
+     * Set the number of consecutive failure before a command is suspended
+     *
+     * @param suspendThreshold The number of failure
+     */
+    public void setSuspendThreshold(int suspendThreshold) {
+        this.suspendThreshold = suspendThreshold;
+    }
+
+    /**
+     * Get the time (in milliseconds) between a suspension and the first probe
+     *
+     * @return The time in milliseconds
+     */
+    public long getProbeInterval() {
+        return probeInterval;
+    }
+
+    /**
+     * Set the time (in milliseconds) between a suspension and the first probe
+     *
+     * @param probeInterval The time in milliseconds
+     */
+    public void setProbeInterval(long probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Get the longest time (in milliseconds) between two probes
+     *
+     * @return The time in milliseconds
+     */
+    public long getMaxProbeInterval() {
+        return maxProbeInterval;
+    }
+
+    /**
+     * Set the longest time (in milliseconds) between two probes
+     *
+     * @param maxProbeInterval The time in milliseconds
+     */
+    public void setMaxProbeInterval(long maxProbeInterval) {
+        this.maxProbeInterval = maxProbeInterval;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the {@link CommandFactory} used when a command is given by its class
+ * (for example in {@link Obd2Service#schedule(Class, double, ObdObserver)}).
+ * <p>
+ * A class without a registered factory get one based on its public constructor without parameter.
+ * This constructor is looked up once per class, and no reflection is involved for registered factories
+ * (which is needed to build a native image without reflection configuration).
+ *
+ * @author MacFJA
+ */
+public final class CommandFactories {
+    private static final ConcurrentMap<Class<?>, CommandFactory<?>> FACTORIES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, Integer> IDS = new ConcurrentHashMap<>();
+
+    private CommandFactories() {
+    }
+
+    /**
+     * Register the factory of a class of command.
+     * <p>
+     * The id known for the class is forgotten, it will be read from a command created by the new factory.
+     *
+     * @param type    The class of the command
+     * @param factory The factory that create the commands
+     * @param <T>     The type of command
+     */
+    public static <T extends Command> void register(Class<T> type, CommandFactory<? extends T> factory) {
+        FACTORIES.put(type, factory);
+        IDS.remove(type);
+    }
+
+    /**
+     * Create a new command.
+     * <p>
+     * It throws an {@link IllegalArgumentException} if the command can't be created.
+     *
+     * @param type The class of the command
+     * @param <T>  The type of command
+     * @return The new command
+     */
+    public static <T extends Command> T create(Class<T> type) {
+        return type.cast(getFactory(type).create());
+    }
+
+    /**
+     * Get the {@link CommandId} of the commands of a class.
+     * <p>
+     * A command is created the first time to know its request, then the id is kept.
+     * It throws an {@link IllegalArgumentException} if the command can't be created.
+     *
+     * @param type The class of the command
+     * @return The id of the command
+     */
+    public static int idOf(Class<? extends Command> type) {
+        Integer id = IDS.get(type);
+        if (id == null) {
+            id = CommandId.of(create(type));
+            IDS.put(type, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the factory of a class of command (the factory is created if needed)
+     *
+     * @param type The class of the command
+     * @param <T>  The type of command
+     * @return The factory
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Command> CommandFactory<? extends T> getFactory(Class<T> type) {
+        CommandFactory<?> factory = FACTORIES.get(type);
+        if (factory == null) {
+            CommandFactory<?> existing = FACTORIES.putIfAbsent(type, constructorFactory(type));
+            factory = existing == null ? FACTORIES.get(type) : existing;
+        }
+        return (CommandFactory<? extends T>) factory;
+    }
+
+    /**
+     * Create a factory that use the public constructor without parameter of a class
+     *
+     * @param type The class of the command
+     * @param <T>  The type of command
+     * @return The factory
+     */
+    private static <T extends Command> CommandFactory<T> constructorFactory(final Class<T> type) {
+        final MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format(
+                    "The command %s doesn't have a public constructor without parameter"
+                            + " (in a native image, register a factory or declare the constructor in reflect-config.json)",
+                    type.getName()
+            ), e);
+        }
+        return new CommandFactory<T>() {
+            @Override
+            public T create() {
+                try {
+                    return type.cast(constructor.invoke());
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalArgumentException(String.format("Unable to create the command %s", type.getName()), e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,174 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The health of a command, as seen by the {@link CircuitBreaker}.
+ * <p>
+ * Instances returned by {@link Obd2Service#getHealth(io.github.macfja.obd2.Command)} are snapshots,
+ * they are not updated when the command is executed again.
+ *
+ * @author MacFJA
+ */
+public class CommandHealth {
+    /**
+     * The state of a command regarding failure
+     */
+    public enum State {
+        /**
+         * The command is executed normally (it can be delayed by a back-off after a failure)
+         */
+        CLOSED,
+        /**
+         * The command is suspended: it failed too many times or is not supported
+         */
+        OPEN,
+        /**
+         * The command is suspended but a probe execution is allowed to check if it works again
+         */
+        HALF_OPEN
+    }
+
+    private String request;
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long totalFailures = 0;
+    private long totalSuccesses = 0;
+    private long nextAttempt = 0;
+    private long probeDelay = 0;
+
+    /**
+     * Create a new healthy command
+     *
+     * @param request The value of {@link io.github.macfja.obd2.Command#getRequest()}
+     */
+    CommandHealth(String request) {
+        this.request = request;
+    }
+
+    /**
+     * Copy constructor
+     *
+     * @param other The health to copy
+     */
+    CommandHealth(CommandHealth other) {
+        request = other.request;
+        state = other.state;
+        consecutiveFailures = other.consecutiveFailures;
+        totalFailures = other.totalFailures;
+        totalSuccesses = other.totalSuccesses;
+        nextAttempt = other.nextAttempt;
+        probeDelay = other.probeDelay;
+    }
+
+    /**
+     * Get the command code
+     *
+     * @return The value of {@link io.github.macfja.obd2.Command#getRequest()}
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * Get the current state of the command
+     *
+     * @return The state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Get the number of failure since the last success
+     *
+     * @return The number of consecutive failure
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Get the number of failure since the creation of the service (or the last reset)
+     *
+     * @return The number of failure
+     */
+    public long getTotalFailures() {
+        return totalFailures;
+    }
+
+    /**
+     * Get the number of success since the creation of the service (or the last reset)
+     *
+     * @return The number of success
+     */
+    public long getTotalSuccesses() {
+        return totalSuccesses;
+    }
+
+    /**
+     * Get the time (in milliseconds) before which the command will not be scheduled
+     *
+     * @return The time in milliseconds ({@code 0} if the command can run right now)
+     */
+    public long getNextAttempt() {
+        return nextAttempt;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void setNextAttempt(long nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    long getProbeDelay() {
+        return probeDelay;
+    }
+
+    void setProbeDelay(long probeDelay) {
+        this.probeDelay = probeDelay;
+    }
+
+    /**
+     * Record a successful execution
+     */
+    void succeeded() {
+        totalSuccesses++;
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        nextAttempt = 0;
+        probeDelay = 0;
+    }
+
+    /**
+     * Record a failed execution
+     */
+    void failed() {
+        totalFailures++;
+        consecutiveFailures++;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s (%d consecutive failure(s))", request, state, consecutiveFailures);
+    }
+}
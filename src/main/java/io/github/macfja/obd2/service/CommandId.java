@@ -0,0 +1,107 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Intern table of the command codes.
+ * <p>
+ * Every distinct {@link Command#getRequest()} (mode, PID and optional header) is associated, once, to a dense integer id.
+ * Ids start at {@code 0} and are never reused, so they can be used as index of arrays.
+ *
+ * @author MacFJA
+ */
+public final class CommandId {
+    private static final ConcurrentMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static volatile String[] requests = new String[64];
+    private static volatile int size = 0;
+
+    private CommandId() {
+    }
+
+    /**
+     * Get the id of a command
+     *
+     * @param command The command
+     * @return The id of the command
+     */
+    public static int of(Command command) {
+        return of(command.getRequest());
+    }
+
+    /**
+     * Get the id of a command code
+     *
+     * @param request The command code ({@link Command#getRequest()})
+     * @return The id of the command code
+     */
+    public static int of(String request) {
+        Integer id = IDS.get(request);
+        if (id != null) {
+            return id;
+        }
+        return intern(request);
+    }
+
+    /**
+     * Get the command code of an id
+     *
+     * @param id The id of the command
+     * @return The command code, or {@code null} if the id is unknown
+     */
+    public static String request(int id) {
+        String[] current = requests;
+        if (id < 0 || id >= current.length) {
+            return null;
+        }
+        return current[id];
+    }
+
+    /**
+     * Get the number of interned command code (all ids are lower than this number)
+     *
+     * @return The number of command code
+     */
+    public static int size() {
+        return size;
+    }
+
+    private static synchronized int intern(String request) {
+        Integer id = IDS.get(request);
+        if (id != null) {
+            return id;
+        }
+        int next = size;
+        String[] current = requests;
+        if (next == current.length) {
+            current = Arrays.copyOf(current, next * 2);
+        }
+        current[next] = request;
+        requests = current;
+        IDS.put(request, next);
+        size = next + 1;
+        return next;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The state of a {@link DeliveryPolicy} for one observer.
+ *
+ * @author MacFJA
+ */
+class DeliveryFilter {
+    private DeliveryPolicy policy;
+    private boolean delivered = false;
+    private boolean lastError;
+    private double lastValue;
+    private long lastTime;
+
+    DeliveryFilter(DeliveryPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Check if a response must be delivered, and remember it if so
+     *
+     * @param value The numeric value of the response ({@link Double#NaN} if not a number)
+     * @param error If the response is an error
+     * @param now   The current time (in milliseconds)
+     * @return {@code true} if the observer must be notified
+     */
+    synchronized boolean accept(double value, boolean error, long now) {
+        if (delivered && !isDue(value, error, now - lastTime)) {
+            return false;
+        }
+        delivered = true;
+        lastError = error;
+        lastValue = value;
+        lastTime = now;
+        return true;
+    }
+
+    private boolean isDue(double value, boolean error, long silence) {
+        if (silence < policy.getMinInterval()) {
+            return false;
+        }
+        if (policy.getMaxSilence() > 0 && silence >= policy.getMaxSilence()) {
+            return true;
+        }
+        if (error || lastError) {
+            return error != lastError;
+        }
+        if (Double.isNaN(value) || Double.isNaN(lastValue)) {
+            return true;
+        }
+        return policy.isChanged(value, lastValue);
+    }
+}
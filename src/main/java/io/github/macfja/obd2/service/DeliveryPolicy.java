@@ -0,0 +1,176 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * When an observer must be notified of a new response.
+ * <p>
+ * Without any option, every response is delivered. The options are evaluated on the numeric value of the response
+ * (see {@link ResponseValues#toDouble(io.github.macfja.obd2.Response)}), and always compared to the last
+ * <em>delivered</em> value, so a slow drift is still reported:
+ * <ul>
+ * <li>{@link #setMinInterval(long)}: no delivery closer than this interval</li>
+ * <li>{@link #setMaxSilence(long)}: a delivery (heartbeat) after this time, even if the value didn't change</li>
+ * <li>{@link #setChangeOnly(boolean)}: only deliver a different value</li>
+ * <li>{@link #setDeadBand(double)} and {@link #setDeadBandPercent(double)}: only deliver a value that changed by
+ * at least this much (when both are set, the change must exceed both)</li>
+ * </ul>
+ * The first response is always delivered. An error is delivered if the last delivered response was not an error.
+ * A response that is not a number is always delivered.
+ * <p>
+ * A policy can be shared by many observers, each observer keep its own last delivered value.
+ *
+ * @author MacFJA
+ */
+public class DeliveryPolicy {
+    private double deadBand = 0;
+    private double deadBandPercent = 0;
+    private boolean changeOnly = false;
+    private long minInterval = 0;
+    private long maxSilence = 0;
+
+    /**
+     * Create a policy that only deliver changed values
+     *
+     * @return The policy
+     */
+    public static DeliveryPolicy changeOnly() {
+        DeliveryPolicy policy = new DeliveryPolicy();
+        policy.setChangeOnly(true);
+        return policy;
+    }
+
+    /**
+     * Create a policy that only deliver values that changed by at least {@code deadBand}
+     *
+     * @param deadBand The minimum change (in the unit of the command)
+     * @return The policy
+     */
+    public static DeliveryPolicy deadBand(double deadBand) {
+        DeliveryPolicy policy = new DeliveryPolicy();
+        policy.setDeadBand(deadBand);
+        return policy;
+    }
+
+    /**
+     * Check if a value changed enough to be delivered
+     *
+     * @param value The new value
+     * @param last  The last delivered value
+     * @return {@code true} if the value must be delivered
+     */
+    boolean isChanged(double value, double last) {
+        if (!changeOnly && deadBand <= 0 && deadBandPercent <= 0) {
+            return true;
+        }
+        double change = Math.abs(value - last);
+        return change > 0 && change >= deadBand && change >= Math.abs(last) * deadBandPercent / 100;
+    }
+
+    /**
+     * Get the minimum absolute change of the value to deliver it
+     *
+     * @return The change (in the unit of the command)
+     */
+    public double getDeadBand() {
+        return deadBand;
+    }
+
+    /**
+     * Set the minimum absolute change of the value to deliver it
+     *
+     * @param deadBand The change (in the unit of the command), {@code 0} to disable
+     */
+    public void setDeadBand(double deadBand) {
+        this.deadBand = deadBand;
+    }
+
+    /**
+     * Get the minimum relative change of the value to deliver it
+     *
+     * @return The change (in percent of the last delivered value)
+     */
+    public double getDeadBandPercent() {
+        return deadBandPercent;
+    }
+
+    /**
+     * Set the minimum relative change of the value to deliver it
+     *
+     * @param deadBandPercent The change (in percent of the last delivered value), {@code 0} to disable
+     */
+    public void setDeadBandPercent(double deadBandPercent) {
+        this.deadBandPercent = deadBandPercent;
+    }
+
+    /**
+     * Check if only a value different of the last delivered one is delivered
+     *
+     * @return {@code true} if only changes are delivered
+     */
+    public boolean isChangeOnly() {
+        return changeOnly;
+    }
+
+    /**
+     * Set if only a value different of the last delivered one is delivered
+     *
+     * @param changeOnly {@code true} to only deliver changes
+     */
+    public void setChangeOnly(boolean changeOnly) {
+        this.changeOnly = changeOnly;
+    }
+
+    /**
+     * Get the minimum time between two deliveries
+     *
+     * @return The time in milliseconds
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Set the minimum time between two deliveries
+     *
+     * @param minInterval The time in milliseconds, {@code 0} to disable
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Get the maximum time without delivery
+     *
+     * @return The time in milliseconds
+     */
+    public long getMaxSilence() {
+        return maxSilence;
+    }
+
+    /**
+     * Set the maximum time without delivery: after it the response is delivered even if it didn't change
+     *
+     * @param maxSilence The time in milliseconds, {@code 0} to disable
+     */
+    public void setMaxSilence(long maxSilence) {
+        this.maxSilence = maxSilence;
+    }
+}
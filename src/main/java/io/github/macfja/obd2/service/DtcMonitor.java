@@ -0,0 +1,205 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.SimpleCommands;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Follow the Diagnostic Trouble Codes of the vehicle, and report only their changes.
+ * <p>
+ * Reading the codes is a slow (often multi-frame) request. The monitor first read the status of the MIL
+ * ({@code 0101}: the Malfunction Indicator Lamp and the number of confirmed codes), and only read the codes if
+ * the status changed, or if the last read is older than {@link #getFullReadInterval()}
+ * (a code can replace another one without changing their number, and the status doesn't count the pending codes).
+ * <p>
+ * The monitor is run by the {@link Service} (see {@link Service#setDtcMonitor(DtcMonitor)}) with a low priority:
+ * after the scheduled commands of a tick, and never in a tick that is late.
+ *
+ * @author MacFJA
+ */
+public class DtcMonitor {
+    private final Command statusCommand = SimpleCommands.create("0101");
+    private final Command readCommand;
+    private final int mode;
+    private final List<DtcListener> listeners = new CopyOnWriteArrayList<>();
+    private long interval = 60000;
+    private long fullReadInterval = 15 * 60000;
+
+    private long lastCheck = -1;
+    private long lastRead = -1;
+    private int lastStatus = -1;
+    private volatile DtcSet codes = DtcSet.EMPTY;
+
+    /**
+     * Monitor the confirmed codes (mode 03)
+     */
+    public DtcMonitor() {
+        this(0x03);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param mode The mode used to read the codes: {@code 0x03} (confirmed), {@code 0x07} (pending)
+     *             or {@code 0x0A} (permanent)
+     */
+    public DtcMonitor(int mode) {
+        if (mode != 0x03 && mode != 0x07 && mode != 0x0A) {
+            throw new IllegalArgumentException("The trouble codes are read with the mode 03, 07 or 0A");
+        }
+        this.mode = mode;
+        readCommand = SimpleCommands.create(String.format("%02X", mode));
+    }
+
+    /**
+     * Check if the status must be read
+     *
+     * @param now The current time (in milliseconds)
+     * @return {@code true} if the last check is older than {@link #getInterval()}
+     */
+    synchronized boolean isDue(long now) {
+        return lastCheck < 0 || now - lastCheck >= interval;
+    }
+
+    /**
+     * Read the status, and the codes if needed
+     *
+     * @param service The service to send the commands with
+     * @param now     The current time (in milliseconds)
+     */
+    synchronized void poll(Obd2Service service, long now) {
+        lastCheck = now;
+        int status = readStatus(service.run(statusCommand));
+        boolean stale = lastRead < 0 || now - lastRead >= fullReadInterval;
+        if (status < 0 ? !stale : status == lastStatus && !stale) {
+            return;
+        }
+
+        Response response = service.run(readCommand);
+        if (response == null || response instanceof ExceptionResponse) {
+            return;
+        }
+        DtcSet current = DtcSet.parse(response.getRawResult(), mode);
+        DtcSet previous = codes;
+        lastStatus = status;
+        lastRead = now;
+        codes = current;
+        if (current.equals(previous)) {
+            return;
+        }
+        DtcSet added = current.minus(previous);
+        DtcSet cleared = previous.minus(current);
+        for (DtcListener listener : listeners) {
+            listener.changed(added, cleared, current);
+        }
+    }
+
+    /**
+     * Read the MIL status and the number of confirmed codes
+     *
+     * @param response The response of {@code 0101}
+     * @return The first byte of the status, or {@code -1} if the status is unknown
+     */
+    static int readStatus(Response response) {
+        if (response == null || response instanceof ExceptionResponse || response.getRawResult() == null) {
+            return -1;
+        }
+        String hex = new String(response.getRawResult(), StandardCharsets.US_ASCII).replaceAll("\\s", "");
+        int start = hex.indexOf("4101");
+        if (start < 0 || hex.length() < start + 6) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hex.substring(start + 4, start + 6), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the codes found by the last read
+     *
+     * @return The codes
+     */
+    public DtcSet getCodes() {
+        return codes;
+    }
+
+    /**
+     * Add a listener of the changes of the codes (called in the thread that poll the OBD)
+     *
+     * @param listener The listener
+     */
+    public void addListener(DtcListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the changes of the codes
+     *
+     * @param listener The listener
+     */
+    public void removeListener(DtcListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the time between two reads of the status
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Set the time between two reads of the status
+     *
+     * @param interval The time (in milliseconds)
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Get the longest time without reading the codes, even if the status doesn't change
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getFullReadInterval() {
+        return fullReadInterval;
+    }
+
+    /**
+     * Set the longest time without reading the codes, even if the status doesn't change
+     *
+     * @param fullReadInterval The time (in milliseconds)
+     */
+    public void setFullReadInterval(long fullReadInterval) {
+        this.fullReadInterval = fullReadInterval;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable set of Diagnostic Trouble Codes, stored as a sorted array of their 2 bytes value.
+ * <p>
+ * A code is the raw value sent by the ECU: the 2 first bits are the system
+ * ({@code P}owertrain, {@code C}hassis, {@code B}ody, {@code U} network), the others are the digits.
+ * For example {@code 0x0133} is {@code P0133}.
+ *
+ * @author MacFJA
+ */
+public final class DtcSet {
+    /**
+     * The empty set
+     */
+    public static final DtcSet EMPTY = new DtcSet(new int[0]);
+    private static final char[] SYSTEMS = {'P', 'C', 'B', 'U'};
+
+    private final int[] codes;
+
+    private DtcSet(int[] codes) {
+        this.codes = codes;
+    }
+
+    /**
+     * Create a set of codes
+     *
+     * @param codes The raw value of the codes (in any order, duplicates are ignored)
+     * @return The set
+     */
+    public static DtcSet of(int... codes) {
+        int[] sorted = codes.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int index = 0; index < sorted.length; index++) {
+            if (index == 0 || sorted[index] != sorted[index - 1]) {
+                sorted[size++] = sorted[index];
+            }
+        }
+        return size == 0 ? EMPTY : new DtcSet(Arrays.copyOf(sorted, size));
+    }
+
+    /**
+     * Read the codes of the response of a mode 03, 07 or 0A request (the headers of the adapter must be off).
+     * <p>
+     * Every line (or every multi-frame message, for the CAN protocols) is the response of one ECU.
+     * The count of codes that start the CAN responses is skipped, and the padding {@code 0000} codes are ignored.
+     *
+     * @param raw  The raw response
+     * @param mode The mode of the request ({@code 0x03}, {@code 0x07} or {@code 0x0A})
+     * @return The codes
+     */
+    public static DtcSet parse(byte[] raw, int mode) {
+        if (raw == null) {
+            return EMPTY;
+        }
+        StringBuilder message = new StringBuilder();
+        // Every code use at least 4 characters of the response
+        int[] found = new int[raw.length / 4 + 1];
+        int size = 0;
+        int length = -1;
+        for (String line : new String(raw, StandardCharsets.US_ASCII).split("[\r\n>]+")) {
+            line = line.trim();
+            int colon = line.indexOf(':');
+            if (colon > 0 && isHex(line.substring(0, colon).trim())) {
+                // A frame of a CAN multi-frame message: the first one ("0:") start a new message
+                if (line.substring(0, colon).trim().equals("0") && message.length() > 0) {
+                    size = addCodes(truncate(message, length), mode, found, size);
+                    length = -1;
+                }
+                message.append(line.substring(colon + 1).replace(" ", ""));
+                continue;
+            }
+            String hex = line.replace(" ", "");
+            size = addCodes(truncate(message, length), mode, found, size);
+            length = -1;
+            if (hex.length() <= 3) {
+                // The byte count of a CAN multi-frame message (the last frame is padded)
+                length = isHex(hex) ? Integer.parseInt(hex, 16) : -1;
+                continue;
+            }
+            message.append(hex);
+        }
+        size = addCodes(truncate(message, length), mode, found, size);
+        return of(Arrays.copyOf(found, size));
+    }
+
+    /**
+     * Get (and reset) a message, without its padding
+     *
+     * @param message The message
+     * @param length  The number of bytes of the message, or {@code -1} if unknown
+     * @return The message
+     */
+    private static String truncate(StringBuilder message, int length) {
+        String hex = message.toString();
+        message.setLength(0);
+        return length >= 0 && hex.length() > length * 2 ? hex.substring(0, length * 2) : hex;
+    }
+
+    /**
+     * Add the codes of the response of one ECU
+     *
+     * @param hex   The response, without spaces
+     * @param mode  The mode of the request
+     * @param codes The codes found
+     * @param size  The number of codes found
+     * @return The new number of codes found
+     */
+    private static int addCodes(String hex, int mode, int[] codes, int size) {
+        if (hex.length() < 2 || hex.length() % 2 != 0 || !isHex(hex) || Integer.parseInt(hex.substring(0, 2), 16) != 0x40 + mode) {
+            return size;
+        }
+        int start = 2;
+        if ((hex.length() / 2 - 1) % 2 == 1) {
+            // An odd number of bytes: the first one is the count of codes
+            start += 2;
+        }
+        for (int index = start; index + 4 <= hex.length() && size < codes.length; index += 4) {
+            int code = Integer.parseInt(hex.substring(index, index + 4), 16);
+            if (code != 0) {
+                codes[size++] = code;
+            }
+        }
+        return size;
+    }
+
+    private static boolean isHex(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int index = 0; index < value.length(); index++) {
+            if (Character.digit(value.charAt(index), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the name of a code
+     *
+     * @param code The raw value of the code
+     * @return The name (for example {@code P0133})
+     */
+    public static String format(int code) {
+        return SYSTEMS[(code >> 14) & 3] + Integer.toString((code >> 12) & 3) + String.format("%03X", code & 0xFFF);
+    }
+
+    /**
+     * Get the raw value of a code
+     *
+     * @param name The name of the code (for example {@code P0133})
+     * @return The raw value
+     */
+    public static int parseCode(String name) {
+        if (name.length() != 5) {
+            throw new IllegalArgumentException(String.format("'%s' is not a trouble code", name));
+        }
+        int system = new String(SYSTEMS).indexOf(Character.toUpperCase(name.charAt(0)));
+        int digit = Character.digit(name.charAt(1), 4);
+        if (system < 0 || digit < 0 || !isHex(name.substring(2))) {
+            throw new IllegalArgumentException(String.format("'%s' is not a trouble code", name));
+        }
+        return system << 14 | digit << 12 | Integer.parseInt(name.substring(2), 16);
+    }
+
+    /**
+     * Get the codes of this set that are not in another one
+     *
+     * @param other The other set
+     * @return The difference
+     */
+    public DtcSet minus(DtcSet other) {
+        int[] result = new int[codes.length];
+        int size = 0;
+        int position = 0;
+        for (int code : codes) {
+            while (position < other.codes.length && other.codes[position] < code) {
+                position++;
+            }
+            if (position >= other.codes.length || other.codes[position] != code) {
+                result[size++] = code;
+            }
+        }
+        return size == 0 ? EMPTY : new DtcSet(Arrays.copyOf(result, size));
+    }
+
+    /**
+     * Check if a code is in the set
+     *
+     * @param code The raw value of the code
+     * @return {@code true} if the code is in the set
+     */
+    public boolean contains(int code) {
+        return Arrays.binarySearch(codes, code) >= 0;
+    }
+
+    /**
+     * Get a code of the set
+     *
+     * @param index The position of the code (the codes are sorted)
+     * @return The raw value of the code
+     */
+    public int get(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Get the number of codes
+     *
+     * @return The number of codes
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Check if the set is empty
+     *
+     * @return {@code true} if there is no code
+     */
+    public boolean isEmpty() {
+        return codes.length == 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof DtcSet && Arrays.equals(codes, ((DtcSet) other).codes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(codes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int index = 0; index < codes.length; index++) {
+            if (index > 0) {
+                builder.append(", ");
+            }
+            builder.append(format(codes[index]));
+        }
+        return builder.append(']').toString();
+    }
+}
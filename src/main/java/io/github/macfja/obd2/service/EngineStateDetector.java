@@ -0,0 +1,267 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Find the {@link EngineState} from the observed signals.
+ * <ul>
+ * <li>A positive engine RPM: {@link EngineState#RUNNING} if the vehicle speed is positive, {@link EngineState#IDLE} otherwise</li>
+ * <li>No engine RPM (zero or error), but a voltage that show the alternator is charging: {@link EngineState#IDLE}</li>
+ * <li>Otherwise: {@link EngineState#KEY_OFF}</li>
+ * </ul>
+ * A running engine is detected at the first signal, but the engine is only considered stopped after
+ * {@link #getStopConfirmations()} consecutive engine RPM observations (a single {@code NO DATA} doesn't slow down the polling).
+ *
+ * @author MacFJA
+ * @see Service#setEngineStateDetector(EngineStateDetector)
+ */
+public class EngineStateDetector {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private List<EngineStateListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile EngineState state = EngineState.RUNNING;
+    private double rpm = Double.NaN;
+    private double speed = Double.NaN;
+    private double voltage = Double.NaN;
+    private int stopObservations = 0;
+    private int stopConfirmations = 3;
+    private double chargingVoltage = 13.2;
+
+    private ObdObserver rpmObserver = new SignalObserver() {
+        @Override
+        void signal(double value) {
+            onRpm(value);
+        }
+    };
+    private ObdObserver speedObserver = new SignalObserver() {
+        @Override
+        void signal(double value) {
+            onSpeed(value);
+        }
+    };
+    private ObdObserver voltageObserver = new SignalObserver() {
+        @Override
+        void signal(double value) {
+            onVoltage(value);
+        }
+    };
+
+    /**
+     * Get the current state of the engine
+     *
+     * @return The state ({@link EngineState#RUNNING} until the first observation)
+     */
+    public EngineState getState() {
+        return state;
+    }
+
+    /**
+     * Add an action to do when the state of the engine change
+     *
+     * @param listener The action
+     */
+    public void addListener(EngineStateListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove an action to do when the state of the engine change
+     *
+     * @param listener The action
+     */
+    public void removeListener(EngineStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Give a new engine RPM
+     *
+     * @param value The RPM, or {@link Double#NaN} if the OBD didn't respond
+     */
+    public void onRpm(double value) {
+        EngineState[] change;
+        synchronized (this) {
+            rpm = value;
+            change = evaluate(true);
+        }
+        notifyChange(change);
+    }
+
+    /**
+     * Give a new vehicle speed
+     *
+     * @param value The speed, or {@link Double#NaN} if the OBD didn't respond
+     */
+    public void onSpeed(double value) {
+        EngineState[] change;
+        synchronized (this) {
+            speed = value;
+            change = evaluate(false);
+        }
+        notifyChange(change);
+    }
+
+    /**
+     * Give a new voltage (of the control module, or of the battery read by the adapter)
+     *
+     * @param value The voltage, or {@link Double#NaN} if unknown
+     */
+    public void onVoltage(double value) {
+        EngineState[] change;
+        synchronized (this) {
+            voltage = value;
+            change = evaluate(false);
+        }
+        notifyChange(change);
+    }
+
+    /**
+     * Get the observer to attach to the engine RPM command ({@code 010C})
+     *
+     * @return The observer
+     */
+    public ObdObserver getRpmObserver() {
+        return rpmObserver;
+    }
+
+    /**
+     * Get the observer to attach to the vehicle speed command ({@code 010D})
+     *
+     * @return The observer
+     */
+    public ObdObserver getSpeedObserver() {
+        return speedObserver;
+    }
+
+    /**
+     * Get the observer to attach to a voltage command (for example the control module voltage {@code 0142})
+     *
+     * @return The observer
+     */
+    public ObdObserver getVoltageObserver() {
+        return voltageObserver;
+    }
+
+    /**
+     * Get the number of consecutive observations of a stopped engine needed to switch to {@link EngineState#KEY_OFF}
+     *
+     * @return The number of observations
+     */
+    public int getStopConfirmations() {
+        return stopConfirmations;
+    }
+
+    /**
+     * Set the number of consecutive observations of a stopped engine needed to switch to {@link EngineState#KEY_OFF}
+     *
+     * @param stopConfirmations The number of observations
+     */
+    public void setStopConfirmations(int stopConfirmations) {
+        this.stopConfirmations = stopConfirmations;
+    }
+
+    /**
+     * Get the voltage above which the alternator is considered charging (so the engine running)
+     *
+     * @return The voltage
+     */
+    public double getChargingVoltage() {
+        return chargingVoltage;
+    }
+
+    /**
+     * Set the voltage above which the alternator is considered charging (so the engine running)
+     *
+     * @param chargingVoltage The voltage
+     */
+    public void setChargingVoltage(double chargingVoltage) {
+        this.chargingVoltage = chargingVoltage;
+    }
+
+    /**
+     * Compute the state from the last signals
+     *
+     * @param observation If the signal count as an observation of a stopped engine (only the RPM does)
+     * @return The previous and the new state if the state changed, {@code null} otherwise
+     */
+    private EngineState[] evaluate(boolean observation) {
+        EngineState observed;
+        if (rpm > 0) {
+            observed = speed > 0 ? EngineState.RUNNING : EngineState.IDLE;
+        } else if (voltage >= chargingVoltage) {
+            observed = EngineState.IDLE;
+        } else {
+            observed = EngineState.KEY_OFF;
+        }
+
+        if (observed == EngineState.KEY_OFF) {
+            if (observation) {
+                stopObservations++;
+            }
+            if (stopObservations < stopConfirmations) {
+                return null;
+            }
+            // The speed is not polled anymore, don't trust it on the next start
+            speed = Double.NaN;
+        } else {
+            stopObservations = 0;
+        }
+        if (observed == state) {
+            return null;
+        }
+        EngineState previous = state;
+        state = observed;
+        return new EngineState[]{previous, observed};
+    }
+
+    private void notifyChange(EngineState[] change) {
+        if (change == null) {
+            return;
+        }
+        logger.info("Engine state changed from {} to {}", change[0], change[1]);
+        for (EngineStateListener listener : listeners) {
+            listener.stateChanged(change[0], change[1]);
+        }
+    }
+
+    /**
+     * Observer that read the numeric value of a response ({@link Double#NaN} on error)
+     */
+    private abstract static class SignalObserver implements ObdObserver {
+        abstract void signal(double value);
+
+        @Override
+        public void update(Response response) {
+            signal(ResponseValues.toDouble(response));
+        }
+
+        @Override
+        public void error(Command request, Response response, Exception exception) {
+            signal(Double.NaN);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A rate-limited logger for command errors.
+ * <p>
+ * For each command and each {@link ErrorResponse.Type}, the first error is logged,
+ * then at most one message is logged every {@link #getInterval()} milliseconds,
+ * with the number of errors that have not been logged in between.
+ *
+ * @author MacFJA
+ */
+public class ErrorLogger {
+    private static final int COUNT = 0;
+    private static final int SUPPRESSED = 1;
+    private static final int LAST_LOG = 2;
+    private static final int SLOTS = 3;
+
+    private Logger logger;
+    private long interval;
+    private Map<String, long[]> counters = new HashMap<>();
+    private long[] totals = new long[ErrorResponse.Type.values().length];
+
+    /**
+     * Class constructor.
+     *
+     * @param logger   The logger to write to
+     * @param interval The minimum time (in milliseconds) between two messages of the same error of the same command
+     */
+    public ErrorLogger(Logger logger, long interval) {
+        this.logger = logger;
+        this.interval = interval;
+    }
+
+    /**
+     * Report an error
+     *
+     * @param request   The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param type      The type of error
+     * @param exception The original exception
+     * @param now       The current time (in milliseconds)
+     */
+    public synchronized void report(String request, ErrorResponse.Type type, Exception exception, long now) {
+        totals[type.ordinal()]++;
+        long[] counter = counters.get(request);
+        if (counter == null) {
+            counter = new long[totals.length * SLOTS];
+            for (int index = 0; index < totals.length; index++) {
+                counter[index * SLOTS + LAST_LOG] = Long.MIN_VALUE;
+            }
+            counters.put(request, counter);
+        }
+        int offset = type.ordinal() * SLOTS;
+        counter[offset + COUNT]++;
+
+        if (counter[offset + LAST_LOG] != Long.MIN_VALUE && now - counter[offset + LAST_LOG] < interval) {
+            counter[offset + SUPPRESSED]++;
+            return;
+        }
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        long suppressed = counter[offset + SUPPRESSED];
+        counter[offset + SUPPRESSED] = 0;
+        counter[offset + LAST_LOG] = now;
+        if (suppressed == 0) {
+            logger.warn("An error ({}) occurs while running command '{}': {}",
+                    type, request, exception.getLocalizedMessage());
+        } else {
+            logger.warn("An error ({}) occurs while running command '{}': {} ({} similar error(s) not logged)",
+                    type, request, exception.getLocalizedMessage(), suppressed);
+        }
+    }
+
+    /**
+     * Get the number of error of a type, for all commands
+     *
+     * @param type The type of error
+     * @return The number of error
+     */
+    public synchronized long getCount(ErrorResponse.Type type) {
+        return totals[type.ordinal()];
+    }
+
+    /**
+     * Get the number of error of a type, for a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param type    The type of error
+     * @return The number of error
+     */
+    public synchronized long getCount(String request, ErrorResponse.Type type) {
+        long[] counter = counters.get(request);
+        if (counter == null) {
+            return 0;
+        }
+        return counter[type.ordinal() * SLOTS + COUNT];
+    }
+
+    /**
+     * Get the minimum time (in milliseconds) between two messages of the same error of the same command
+     *
+     * @return The time in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Set the minimum time (in milliseconds) between two messages of the same error of the same command
+     *
+     * @param interval The time in milliseconds
+     */
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+}
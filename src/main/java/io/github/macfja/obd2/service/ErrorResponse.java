@@ -0,0 +1,156 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.exception.ExceptionResponse;
+
+import javax.script.ScriptException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A typed, reusable {@link ExceptionResponse}.
+ * <p>
+ * Only one instance exists per {@link Type} (see {@link #of(Type)}), and no stack trace is recorded,
+ * so reporting an error doesn't allocate anything.
+ *
+ * @author MacFJA
+ */
+public class ErrorResponse extends ExceptionResponse {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The kind of error
+     */
+    public enum Type {
+        /**
+         * The OBD (or the adapter) didn't respond in time
+         */
+        TIMEOUT("TIMEOUT"),
+        /**
+         * The OBD respond without any data (the command is most likely not supported)
+         */
+        NO_DATA("NO DATA"),
+        /**
+         * The communication with the OBD failed
+         */
+        BUS_ERROR("BUS ERROR"),
+        /**
+         * The response of the OBD can't be read
+         */
+        PARSE_ERROR("PARSE ERROR");
+
+        private String message;
+
+        Type(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Get the message of the error
+         *
+         * @return The message
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private static final ErrorResponse[] INSTANCES;
+
+    static {
+        Type[] types = Type.values();
+        INSTANCES = new ErrorResponse[types.length];
+        for (Type type : types) {
+            INSTANCES[type.ordinal()] = new ErrorResponse(type);
+        }
+    }
+
+    private Type type;
+
+    private ErrorResponse(Type type) {
+        super(type.getMessage().getBytes(StandardCharsets.US_ASCII));
+        this.type = type;
+    }
+
+    /**
+     * Get the shared response of a type of error
+     *
+     * @param type The type of error
+     * @return The error response
+     */
+    public static ErrorResponse of(Type type) {
+        return INSTANCES[type.ordinal()];
+    }
+
+    /**
+     * Get the shared response that correspond to an exception
+     *
+     * @param exception The exception that occurs while running a command
+     * @return The error response
+     */
+    public static ErrorResponse of(Exception exception) {
+        return of(classify(exception));
+    }
+
+    /**
+     * Find the type of error of an exception
+     *
+     * @param exception The exception that occurs while running a command
+     * @return The type of error
+     */
+    public static Type classify(Exception exception) {
+        if (exception instanceof ErrorResponse) {
+            return ((ErrorResponse) exception).getType();
+        }
+        if (exception instanceof ScriptException) {
+            return Type.PARSE_ERROR;
+        }
+        if (exception instanceof InterruptedIOException) {
+            return Type.TIMEOUT;
+        }
+        if (exception instanceof ExceptionResponse) {
+            String message = exception.getMessage();
+            if (message != null && message.toUpperCase().contains(Type.NO_DATA.getMessage())) {
+                return Type.NO_DATA;
+            }
+        }
+        return Type.BUS_ERROR;
+    }
+
+    /**
+     * Get the type of the error
+     *
+     * @return The type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Instances are shared, their stack trace would be meaningless.
+     *
+     * @return This error
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
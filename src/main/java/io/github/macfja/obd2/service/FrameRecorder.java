@@ -0,0 +1,104 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keep the last response of every command, to build a {@link Snapshot} at the end of each tick.
+ *
+ * @author MacFJA
+ */
+class FrameRecorder {
+    private Response[] responses = new Response[0];
+    private long[] timestamps = new long[0];
+    private long[] updatedAt = new long[0];
+    /** The ids of the recorded commands, in the order of their first response */
+    private int[] order = new int[0];
+    private int count = 0;
+    private long tick = 1;
+
+    /**
+     * Record the response of a command
+     *
+     * @param id       The id of the command
+     * @param response The response
+     * @param now      The time of the response
+     */
+    synchronized void record(int id, Response response, long now) {
+        if (id >= responses.length) {
+            int length = Math.max(id + 1, CommandId.size());
+            responses = Arrays.copyOf(responses, length);
+            timestamps = Arrays.copyOf(timestamps, length);
+            updatedAt = Arrays.copyOf(updatedAt, length);
+        }
+        if (responses[id] == null) {
+            if (count == order.length) {
+                order = Arrays.copyOf(order, Math.max(8, count * 2));
+            }
+            order[count++] = id;
+        }
+        responses[id] = response;
+        timestamps[id] = now;
+        updatedAt[id] = tick;
+    }
+
+    /**
+     * End the current tick
+     *
+     * @param now       The time of the tick
+     * @param scheduled The ids of the scheduled commands (the only ones in the snapshot)
+     * @return The snapshot, or {@code null} if no scheduled command have been updated in the tick
+     */
+    synchronized Snapshot endTick(long now, BitSet scheduled) {
+        int size = 0;
+        boolean changed = false;
+        for (int index = 0; index < count; index++) {
+            if (scheduled.get(order[index])) {
+                size++;
+                changed = changed || updatedAt[order[index]] == tick;
+            }
+        }
+        tick++;
+        if (!changed) {
+            return null;
+        }
+        int[] ids = new int[size];
+        Response[] frameResponses = new Response[size];
+        long[] frameTimestamps = new long[size];
+        boolean[] updated = new boolean[size];
+        int position = 0;
+        for (int index = 0; index < count; index++) {
+            int id = order[index];
+            if (!scheduled.get(id)) {
+                continue;
+            }
+            ids[position] = id;
+            frameResponses[position] = responses[id];
+            frameTimestamps[position] = timestamps[id];
+            updated[position] = updatedAt[id] == tick - 1;
+            position++;
+        }
+        return new Snapshot(now, ids, frameResponses, frameTimestamps, updated);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * A {@link SignalModel} based on a one dimension Kalman filter (a random walk observed with noise).
+ * <p>
+ * The predicted value is the filtered value of the last measure, its variance grow with the time
+ * ({@link #getProcessNoise()} per second) and shrink with every measure ({@link #getMeasurementNoise()}).
+ * The uncertainty is the standard deviation of the prediction.
+ *
+ * @author MacFJA
+ */
+public class KalmanModel implements SignalModel {
+    private final double processNoise;
+    private final double measurementNoise;
+    private double estimate = Double.NaN;
+    private double variance;
+    private long lastTime;
+
+    /**
+     * Class constructor.
+     *
+     * @param processNoise     How much the value can change (variance per second, in the unit of the value squared)
+     * @param measurementNoise How noisy are the measures (variance, in the unit of the value squared)
+     */
+    public KalmanModel(double processNoise, double measurementNoise) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public synchronized void update(double value, long time) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (Double.isNaN(estimate)) {
+            estimate = value;
+            variance = measurementNoise;
+            lastTime = time;
+            return;
+        }
+        double predicted = variance + processNoise * Math.max(0, time - lastTime) / 1000;
+        double gain = predicted / (predicted + measurementNoise);
+        estimate += gain * (value - estimate);
+        variance = (1 - gain) * predicted;
+        lastTime = time;
+    }
+
+    @Override
+    public synchronized double predict(long time) {
+        return estimate;
+    }
+
+    @Override
+    public synchronized double uncertainty(long time) {
+        if (Double.isNaN(estimate)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.sqrt(variance + processNoise * Math.max(0, time - lastTime) / 1000);
+    }
+
+    /**
+     * Get how much the value can change
+     *
+     * @return The variance per second
+     */
+    public double getProcessNoise() {
+        return processNoise;
+    }
+
+    /**
+     * Get how noisy are the measures
+     *
+     * @return The variance
+     */
+    public double getMeasurementNoise() {
+        return measurementNoise;
+    }
+}
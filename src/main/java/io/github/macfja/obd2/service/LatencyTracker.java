@@ -0,0 +1,111 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.util.Arrays;
+
+/**
+ * Measure the round-trip time of the commands sent to the OBD.
+ * <p>
+ * For every command (by {@link CommandId}), an exponential moving average of the round-trip time is kept.
+ *
+ * @author MacFJA
+ */
+public class LatencyTracker {
+    /**
+     * Weight of the last measure in the moving average
+     */
+    private static final double WEIGHT = 0.2;
+
+    private double[] averages = new double[0];
+    private long[] counts = new long[0];
+    private double overall = 0;
+    private long overallCount = 0;
+
+    /**
+     * Record the round-trip time of a command
+     *
+     * @param id    The id of the command ({@link CommandId})
+     * @param nanos The round-trip time (in nanoseconds)
+     */
+    public synchronized void record(int id, long nanos) {
+        ensureCapacity(id);
+        averages[id] = counts[id] == 0 ? nanos : averages[id] + WEIGHT * (nanos - averages[id]);
+        counts[id]++;
+        overall = overallCount == 0 ? nanos : overall + WEIGHT * (nanos - overall);
+        overallCount++;
+    }
+
+    /**
+     * Set the average round-trip time of a command, if it has not been measured yet (for example from a cache)
+     *
+     * @param id    The id of the command ({@link CommandId})
+     * @param nanos The round-trip time (in nanoseconds)
+     */
+    public synchronized void seed(int id, long nanos) {
+        ensureCapacity(id);
+        if (counts[id] == 0) {
+            averages[id] = nanos;
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= averages.length) {
+            int length = Math.max(id + 1, CommandId.size());
+            averages = Arrays.copyOf(averages, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+    }
+
+    /**
+     * Get the average round-trip time of a command
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The average time (in nanoseconds), or {@code -1} if the command was never measured
+     */
+    public synchronized long getAverage(int id) {
+        if (id >= averages.length || averages[id] == 0) {
+            return -1;
+        }
+        return (long) averages[id];
+    }
+
+    /**
+     * Get the number of measure of a command
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The number of measure
+     */
+    public synchronized long getCount(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Get the average round-trip time of all commands
+     *
+     * @return The average time (in nanoseconds), or {@code -1} if nothing was measured
+     */
+    public synchronized long getOverallAverage() {
+        if (overallCount <= 0) {
+            return -1;
+        }
+        return (long) overall;
+    }
+}
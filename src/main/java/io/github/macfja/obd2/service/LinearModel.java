@@ -0,0 +1,68 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * A {@link SignalModel} that extrapolate the value from the two last measures.
+ * <p>
+ * The uncertainty is the error of the last extrapolation, scaled to the time since the last measure:
+ * a value that changed as predicted can be predicted for long, a value that surprised the model is polled again soon.
+ *
+ * @author MacFJA
+ */
+public class LinearModel implements SignalModel {
+    private double lastValue = Double.NaN;
+    private long lastTime;
+    private double slope = Double.NaN;
+    private double error = Double.POSITIVE_INFINITY;
+    private long interval;
+
+    @Override
+    public synchronized void update(double value, long time) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (!Double.isNaN(lastValue) && time > lastTime) {
+            if (!Double.isNaN(slope)) {
+                error = Math.abs(value - predict(time));
+            }
+            slope = (value - lastValue) / (time - lastTime);
+            interval = time - lastTime;
+        }
+        lastValue = value;
+        lastTime = time;
+    }
+
+    @Override
+    public synchronized double predict(long time) {
+        if (Double.isNaN(slope)) {
+            return lastValue;
+        }
+        return lastValue + slope * (time - lastTime);
+    }
+
+    @Override
+    public synchronized double uncertainty(long time) {
+        if (Double.isInfinite(error) || interval <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return error * (time - lastTime) / interval;
+    }
+}
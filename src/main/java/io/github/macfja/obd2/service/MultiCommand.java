@@ -24,9 +24,7 @@ import io.github.macfja.obd2.SimpleCommands;
 
 import javax.script.ScriptException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * An abstract implementation of the {@link MultiCommand}.
@@ -35,9 +33,11 @@ import java.util.Map;
  *
  * @author MacFJA
  */
-abstract public class MultiCommand implements Command, MultiCommandInterface {
+abstract public class MultiCommand implements Command, SlottedMultiCommand {
     private List<Command> commands;
-    private Map<String, Response> responses = new HashMap<>();
+    private int[] ids;
+    private MultiResponse responses;
+    private String request;
 
     /**
      * Create a new MultiCommand from a list of command code
@@ -50,6 +50,7 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
             commands.add(SimpleCommands.create(request));
         }
         this.commands = commands;
+        init();
     }
 
     /**
@@ -59,6 +60,18 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
      */
     public MultiCommand(List<Command> commands) {
         this.commands = commands;
+        init();
+    }
+
+    /**
+     * Assign a slot to every sub-command
+     */
+    private void init() {
+        ids = new int[commands.size()];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = CommandId.of(commands.get(index));
+        }
+        responses = new MultiResponse(ids);
     }
 
     /**
@@ -66,7 +79,9 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
      *
      * @param command The sub command to lookup
      * @return The response associated to the command
+     * @deprecated Use the {@link MultiResponse} given to {@link #getResponse(MultiResponse)} instead
      */
+    @Deprecated
     protected Response getResponseOfCommand(Command command) {
         return getResponseOfCommand(command.getRequest());
     }
@@ -76,20 +91,33 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
      *
      * @param code The sub command code to lookup
      * @return The response associated to the command
+     * @deprecated Use the {@link MultiResponse} given to {@link #getResponse(MultiResponse)} instead
      */
+    @Deprecated
     protected Response getResponseOfCommand(String code) {
-        return responses.get(code);
+        return responses.getResponse(code);
     }
 
+    /**
+     * Get the code of the command.
+     * <p>
+     * The code is built (once) from the code of every sub-command.
+     *
+     * @return The command code
+     */
     @Override
     public String getRequest() {
-        StringBuilder request = new StringBuilder();
+        if (request != null) {
+            return request;
+        }
+        StringBuilder builder = new StringBuilder();
         for (Command command : commands) {
-            request.append("[");
-            request.append(command.getRequest());
-            request.append("]");
+            builder.append("[");
+            builder.append(command.getRequest());
+            builder.append("]");
         }
-        return request.toString();
+        request = builder.toString();
+        return request;
     }
 
     @Override
@@ -97,9 +125,15 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
         return commands;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @deprecated The storage is shared between evaluations, use {@link #getResponse(MultiResponse)} instead
+     */
+    @Deprecated
     @Override
     public void setResponse(String request, Response response) {
-        responses.put(request, response);
+        responses.setResponse(request, response);
     }
 
     /**
@@ -111,6 +145,25 @@ abstract public class MultiCommand implements Command, MultiCommandInterface {
      */
     @Override
     public Response getResponse(byte[] rawResult) throws ScriptException {
-        return new MultiResponse(responses);
+        MultiResponse copy = new MultiResponse(ids);
+        for (int slot = 0; slot < ids.length; slot++) {
+            copy.setResponseAt(slot, responses.getResponseAt(slot));
+        }
+        copy.setReadOnly();
+        return getResponse(copy);
+    }
+
+    /**
+     * Get the response of the command based on every sub command.
+     * <p>
+     * By default, the {@link MultiResponse} itself is the response.
+     *
+     * @param responses The responses of every sub-command
+     * @return The response object
+     * @throws ScriptException If the conversion equation is wrong
+     */
+    @Override
+    public Response getResponse(MultiResponse responses) throws ScriptException {
+        return responses;
     }
 }
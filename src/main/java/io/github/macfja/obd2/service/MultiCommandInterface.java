@@ -44,6 +44,9 @@ public interface MultiCommandInterface extends Command {
      *
      * @param request  The value of {@link Command#getRequest()} of a sub-command
      * @param response The response of a sub-command
+     * @deprecated The storage is shared between evaluations, implement {@link SlottedMultiCommand} instead
      */
+    @Deprecated
     void setResponse(String request, Response response);
+
 }
@@ -23,18 +23,34 @@ import io.github.macfja.obd2.Command;
 import io.github.macfja.obd2.Response;
 import io.github.macfja.obd2.Unit;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
  * Base implementation of a response that contains several sub-response.
  * <p>
  * This class can be useful if you use a {@link MultiCommandInterface}
+ * <p>
+ * Every sub-response have a fixed slot (the position of the sub-command in {@link MultiCommandInterface#getCommands()}),
+ * so reading a sub-response is an array read.
+ * The {@link Service} fill a new MultiResponse for each evaluation of a multi-command, and make it read-only
+ * before the evaluation: the MultiResponse given to the observers can't be modified.
+ * <p>
+ * Every slot also carry the time when its request was sent and its response received.
+ * As the sub-commands are sent one after the other, the {@link Service} also set the value of every slot
+ * at a common instant (see {@link SampleHistory#valueAt(int, long)}), {@link #getValueAt(int)} should be preferred
+ * over the raw sub-response to compute a derived value.
  *
  * @author MacFJA
  */
 public class MultiResponse implements Response {
-    private Map<String, Response> responses = new HashMap<>();
+    private int[] ids;
+    private Response[] responses;
+    private long[] requestTimes;
+    private long[] receiveTimes;
+    private double[] values;
+    private long instant = -1;
+    private boolean readOnly = false;
 
     /**
      * Initialize the MultiResponse with a list of sub-response
@@ -42,22 +58,150 @@ public class MultiResponse implements Response {
      * @param responses The map that contains responses
      */
     public MultiResponse(Map<String, Response> responses) {
-        this.responses = responses;
+        this();
+        for (Map.Entry<String, Response> entry : responses.entrySet()) {
+            setResponse(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Initialize an empty MultiResponse with one slot per command
+     *
+     * @param ids The {@link CommandId} of the command of each slot
+     */
+    public MultiResponse(int[] ids) {
+        this.ids = ids;
+        responses = new Response[ids.length];
+        requestTimes = new long[ids.length];
+        receiveTimes = new long[ids.length];
+        values = new double[ids.length];
+        Arrays.fill(requestTimes, -1);
+        Arrays.fill(receiveTimes, -1);
+        Arrays.fill(values, Double.NaN);
     }
 
     /**
      * Create an empty MultiResponse
      */
-    public MultiResponse() {}
+    public MultiResponse() {
+        this(new int[0]);
+    }
 
     /**
      * Set/Save the response of a command.
      *
      * @param request  The Command code ({@link Command#getRequest()}) associated to the response
      * @param response The response to store
+     * @throws UnsupportedOperationException If the MultiResponse is read-only (filled by the {@link Service})
      */
     public void setResponse(String request, Response response) {
-        responses.put(request, response);
+        if (readOnly) {
+            throw new UnsupportedOperationException("The responses of an evaluation can't be modified");
+        }
+        int id = CommandId.of(request);
+        int slot = indexOf(id);
+        if (slot < 0) {
+            slot = ids.length;
+            ids = Arrays.copyOf(ids, slot + 1);
+            ids[slot] = id;
+            responses = Arrays.copyOf(responses, slot + 1);
+            requestTimes = Arrays.copyOf(requestTimes, slot + 1);
+            receiveTimes = Arrays.copyOf(receiveTimes, slot + 1);
+            values = Arrays.copyOf(values, slot + 1);
+            requestTimes[slot] = -1;
+            receiveTimes[slot] = -1;
+            values[slot] = Double.NaN;
+        }
+        responses[slot] = response;
+    }
+
+    /**
+     * Set/Save the response of a slot.
+     *
+     * @param slot     The position of the command
+     * @param response The response to store
+     */
+    void setResponseAt(int slot, Response response) {
+        responses[slot] = response;
+    }
+
+    /**
+     * Set the times of the sub-response of a slot
+     *
+     * @param slot         The position of the command
+     * @param requestNanos The time (from {@link Scheduler#nanoTime()}) when the request was sent
+     * @param receiveNanos The time (from {@link Scheduler#nanoTime()}) when the response was received
+     */
+    void setTimesAt(int slot, long requestNanos, long receiveNanos) {
+        requestTimes[slot] = requestNanos;
+        receiveTimes[slot] = receiveNanos;
+    }
+
+    /**
+     * Get the time when the request of a slot was sent
+     *
+     * @param slot The position of the command
+     * @return The time (from {@link Scheduler#nanoTime()}), or {@code -1} if unknown
+     */
+    public long getRequestTimeAt(int slot) {
+        return requestTimes[slot];
+    }
+
+    /**
+     * Get the time when the response of a slot was received
+     *
+     * @param slot The position of the command
+     * @return The time (from {@link Scheduler#nanoTime()}), or {@code -1} if unknown
+     */
+    public long getReceiveTimeAt(int slot) {
+        return receiveTimes[slot];
+    }
+
+    /**
+     * Set the value of a slot at the common instant of the evaluation
+     *
+     * @param slot  The position of the command
+     * @param value The value at {@link #getInstant()}
+     */
+    void setValueAt(int slot, double value) {
+        values[slot] = value;
+    }
+
+    /**
+     * Get the value of a slot.
+     * <p>
+     * The value at the common instant is used if it's known, otherwise the value of the sub-response.
+     *
+     * @param slot The position of the command
+     * @return The value, or {@link Double#NaN} if the sub-response is an error or is not a number
+     */
+    public double getValueAt(int slot) {
+        return Double.isNaN(values[slot]) ? ResponseValues.toDouble(responses[slot]) : values[slot];
+    }
+
+    /**
+     * Set the common instant of the values of the slots
+     *
+     * @param instant The time (from {@link Scheduler#nanoTime()})
+     */
+    void setInstant(long instant) {
+        this.instant = instant;
+    }
+
+    /**
+     * Forbid any further modification (with {@link #setResponse(String, Response)})
+     */
+    void setReadOnly() {
+        readOnly = true;
+    }
+
+    /**
+     * Get the common instant of the values of the slots
+     *
+     * @return The time (from {@link Scheduler#nanoTime()}), or {@code -1} if the values are not aligned
+     */
+    public long getInstant() {
+        return instant;
     }
 
     /**
@@ -77,7 +221,39 @@ public class MultiResponse implements Response {
      * @return The response of a command
      */
     public Response getResponse(String command) {
-        return responses.get(command);
+        int slot = indexOf(CommandId.of(command));
+        if (slot < 0) {
+            return null;
+        }
+        return responses[slot];
+    }
+
+    /**
+     * Get the sub-response of a slot
+     *
+     * @param slot The position of the command
+     * @return The response of the command
+     */
+    public Response getResponseAt(int slot) {
+        return responses[slot];
+    }
+
+    /**
+     * Get the number of slot
+     *
+     * @return The number of sub-response
+     */
+    public int size() {
+        return responses.length;
+    }
+
+    private int indexOf(int id) {
+        for (int index = 0; index < ids.length; index++) {
+            if (ids[index] == id) {
+                return index;
+            }
+        }
+        return -1;
     }
 
     @Override
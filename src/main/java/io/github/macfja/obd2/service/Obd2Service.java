@@ -52,6 +52,32 @@ public interface Obd2Service {
      */
     void addObserver(Class<? extends Command> command, ObdObserver observer, boolean once);
 
+    /**
+     * Add an observer on a command
+     *
+     * @param command  The command to listen (only its code, {@link Command#getRequest()}, is used)
+     * @param observer The associated observer
+     */
+    void addObserver(Command command, ObdObserver observer);
+
+    /**
+     * Add an observer on a command, only notified when the policy allow it
+     *
+     * @param command  The command to listen (only its code, {@link Command#getRequest()}, is used)
+     * @param observer The associated observer
+     * @param policy   When the observer must be notified
+     */
+    void addObserver(Command command, ObdObserver observer, DeliveryPolicy policy);
+
+    /**
+     * Add an observer on a command, only notified when the policy allow it
+     *
+     * @param command  The command to listen
+     * @param observer The associated observer
+     * @param policy   When the observer must be notified
+     */
+    void addObserver(Class<? extends Command> command, ObdObserver observer, DeliveryPolicy policy);
+
     /**
      * Schedule a command to be execute at fixed interval.
      * <p>
@@ -75,6 +101,16 @@ public interface Obd2Service {
      */
     void schedule(Command command, double frequency, ObdObserver observer);
 
+    /**
+     * Schedule and observe a command at a fixed interval, the observer is only notified when the policy allow it.
+     *
+     * @param command   The command to schedule
+     * @param frequency The time between each execution (in seconds)
+     * @param observer  The observe to associate
+     * @param policy    When the observer must be notified
+     */
+    void schedule(Command command, double frequency, ObdObserver observer, DeliveryPolicy policy);
+
     /**
      * Schedule and observe a command at a fixed interval.
      * <p>
@@ -86,6 +122,16 @@ public interface Obd2Service {
      */
     void schedule(Class<? extends Command> command, double frequency, ObdObserver observer);
 
+    /**
+     * Schedule and observe a command at a fixed interval, the observer is only notified when the policy allow it.
+     *
+     * @param command   The command to schedule
+     * @param frequency The time between each execution (in seconds)
+     * @param observer  The observe to associate
+     * @param policy    When the observer must be notified
+     */
+    void schedule(Class<? extends Command> command, double frequency, ObdObserver observer, DeliveryPolicy policy);
+
     /**
      * Remove an observer.
      *
@@ -93,6 +139,55 @@ public interface Obd2Service {
      */
     void removeObserver(ObdObserver observer);
 
+    /**
+     * Receive, at the end of each tick of the scheduler, the last response of every scheduled command in one snapshot.
+     * <p>
+     * The snapshot contains every scheduled command executed since the observer was added (in the order of their
+     * first response), and is only given if at least one of them have been executed since the previous tick
+     * (by the scheduler or by {@link #run(Command)}).
+     *
+     * @param observer The observer of the snapshots
+     */
+    void addFrameObserver(FrameObserver observer);
+
+    /**
+     * Remove an observer of snapshots.
+     *
+     * @param observer The observer to remove
+     */
+    void removeFrameObserver(FrameObserver observer);
+
+    /**
+     * Receive a summary (min, max, mean, last) of the values of a command at the end of each window of time.
+     * <p>
+     * The command is not scheduled.
+     *
+     * @param command  The command to aggregate (can be a {@link MultiCommandInterface})
+     * @param window   The length of the window (in milliseconds)
+     * @param observer The observer of the summaries
+     */
+    void aggregate(Command command, long window, WindowObserver observer);
+
+    /**
+     * Receive a summary (min, max, mean, last) of the values of a command over a sliding window of time.
+     * <p>
+     * The command is not scheduled.
+     * It can throws an {@link IllegalArgumentException} if the window is not a multiple of the step
+     *
+     * @param command  The command to aggregate (can be a {@link MultiCommandInterface})
+     * @param window   The length of the window (in milliseconds)
+     * @param step     The time between two summaries (in milliseconds)
+     * @param observer The observer of the summaries
+     */
+    void aggregate(Command command, long window, long step, WindowObserver observer);
+
+    /**
+     * Remove an observer of summaries.
+     *
+     * @param observer The observer to remove
+     */
+    void removeAggregate(WindowObserver observer);
+
     /**
      * Remove all schedulers that don't have at least one observer waiting
      */
@@ -130,6 +225,25 @@ public interface Obd2Service {
      */
     boolean isAvailable(MultiCommandInterface multiCommand, boolean allMustBeAvailable);
 
+    /**
+     * Get the health of a command.
+     * <p>
+     * A command that keep failing is delayed (exponential back-off), and then suspended.
+     * A command that is not available (see {@link #isAvailable(Command)}) is also suspended.
+     * Suspended commands are not scheduled anymore, except for a probe from time to time.
+     *
+     * @param command The command to check
+     * @return A snapshot of the command health
+     */
+    CommandHealth getHealth(Command command);
+
+    /**
+     * Forget every failure of a command, so it will be scheduled again normally.
+     *
+     * @param command The command to restore
+     */
+    void resetHealth(Command command);
+
     /**
      * Execute a command.
      * <p>
@@ -153,9 +267,29 @@ public interface Obd2Service {
      * <p>
      * For example it can be used to register {@link ObdObserver}, or to notify the user that the service is ready.
      * <p>
-     * Note: The {@link Runnable} is not run inside a separate Thread.
+     * Same as {@link #onReady(StartupStage, Runnable)} with the stage {@link StartupStage#ADAPTER}.
+     * Note: The {@link Runnable} is run inside a separate Thread.
      *
      * @param runnable The action to execute.
      */
     void onReady(Runnable runnable);
+
+    /**
+     * Action to execute when a stage of the start of the service is done.
+     * <p>
+     * The action is run (inside a separate Thread) every time the stage is done,
+     * and right away if the stage is already done.
+     *
+     * @param stage    The stage to wait for
+     * @param runnable The action to execute.
+     */
+    void onReady(StartupStage stage, Runnable runnable);
+
+    /**
+     * Indicate if a stage of the start of the service is done
+     *
+     * @param stage The stage to check
+     * @return {@code true} if the stage is done
+     */
+    boolean isReady(StartupStage stage);
 }
@@ -0,0 +1,90 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+
+import javax.script.ScriptException;
+
+/**
+ * Decode the OBD responses seen on the bus (for example the responses to another scan tool).
+ * <p>
+ * The frame must be a single frame response ({@code [length] [mode + 0x40] [PID] [data...]}) to the command request.
+ * The conversion is done by the command itself ({@link Command#getResponse(byte[])}).
+ *
+ * @author MacFJA
+ */
+public class ObdFrameDecoder implements FrameDecoder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private Command command;
+    private int mode;
+    private int pid;
+
+    /**
+     * Class constructor.
+     * <p>
+     * It can throws an {@link IllegalArgumentException} if the command is not a mode + PID request.
+     *
+     * @param command The command to decode the response of
+     */
+    public ObdFrameDecoder(Command command) {
+        this.command = command;
+        String request = command.getRequest();
+        if (!request.matches("[0-9A-Fa-f]{4}")) {
+            throw new IllegalArgumentException(String.format("The command '%s' is not a mode and PID request", request));
+        }
+        mode = Integer.parseInt(request.substring(0, 2), 16);
+        pid = Integer.parseInt(request.substring(2, 4), 16);
+    }
+
+    @Override
+    public Response decode(CanFrame frame) throws ScriptException {
+        if (frame.getLength() < 3) {
+            return null;
+        }
+        int length = frame.getByte(0);
+        if (length < 2 || length >= frame.getLength() || frame.getByte(1) != mode + 0x40 || frame.getByte(2) != pid) {
+            return null;
+        }
+
+        // Same format as the adapter response: "41 0C 1A F8"
+        byte[] raw = new byte[length * 3 - 1];
+        for (int index = 0; index < length; index++) {
+            int value = frame.getByte(index + 1);
+            raw[index * 3] = (byte) HEX[value >> 4];
+            raw[index * 3 + 1] = (byte) HEX[value & 0x0F];
+            if (index < length - 1) {
+                raw[index * 3 + 2] = ' ';
+            }
+        }
+        return command.getResponse(raw);
+    }
+
+    /**
+     * Get the decoded command
+     *
+     * @return The command
+     */
+    public Command getCommand() {
+        return command;
+    }
+}
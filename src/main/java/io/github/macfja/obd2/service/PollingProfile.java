@@ -0,0 +1,82 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+
+import java.util.BitSet;
+
+/**
+ * Which scheduled commands are run, and how often, in an {@link EngineState}.
+ *
+ * @author MacFJA
+ * @see Service#setPollingProfile(EngineState, PollingProfile)
+ */
+public class PollingProfile {
+    private double slowdown;
+    private BitSet ids;
+
+    /**
+     * Class constructor.
+     *
+     * @param slowdown The factor applied to the time between two executions of a command ({@code 1} for the scheduled rate)
+     * @param commands The only commands to run, all scheduled commands are run if empty
+     */
+    public PollingProfile(double slowdown, Command... commands) {
+        if (slowdown <= 0) {
+            throw new IllegalArgumentException("The slowdown must be a positive number");
+        }
+        this.slowdown = slowdown;
+        if (commands.length > 0) {
+            ids = new BitSet();
+            for (Command command : commands) {
+                ids.set(CommandId.of(command));
+            }
+        }
+    }
+
+    /**
+     * Create a profile that run every scheduled command at its scheduled rate
+     *
+     * @return The profile
+     */
+    public static PollingProfile full() {
+        return new PollingProfile(1);
+    }
+
+    /**
+     * Get the factor applied to the time between two executions of a command
+     *
+     * @return The factor
+     */
+    public double getSlowdown() {
+        return slowdown;
+    }
+
+    /**
+     * Check if a scheduled command is run in this profile
+     *
+     * @param id The id of the command (see {@link CommandId})
+     * @return {@code true} if the command can be run
+     */
+    boolean allows(int id) {
+        return ids == null || ids.get(id);
+    }
+}
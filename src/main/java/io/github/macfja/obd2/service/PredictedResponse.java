@@ -0,0 +1,60 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Unit;
+import io.github.macfja.obd2.response.CalculatedResponse;
+
+/**
+ * A value predicted by a {@link SignalModel}, delivered instead of sending the command (see {@link Prediction}).
+ *
+ * @author MacFJA
+ */
+public class PredictedResponse extends CalculatedResponse {
+    private final double uncertainty;
+    private final Unit unit;
+
+    /**
+     * Class constructor.
+     *
+     * @param value       The predicted value
+     * @param uncertainty The expected error of the value
+     * @param unit        The unit of the value (the one of the last real response), can be {@code null}
+     */
+    public PredictedResponse(double value, double uncertainty, Unit unit) {
+        super(new byte[0], value);
+        this.uncertainty = uncertainty;
+        this.unit = unit;
+    }
+
+    /**
+     * Get the expected error of the value
+     *
+     * @return The uncertainty (in the unit of the value)
+     */
+    public double getUncertainty() {
+        return uncertainty;
+    }
+
+    @Override
+    public Unit getUnit() {
+        return unit == null ? super.getUnit() : unit;
+    }
+}
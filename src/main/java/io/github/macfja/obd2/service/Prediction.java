@@ -0,0 +1,144 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.Unit;
+
+/**
+ * Skip the polls of a slowly changing command, while its value can be predicted.
+ * <p>
+ * At every scheduled execution of the command, if the uncertainty of the {@link SignalModel} is below the tolerance,
+ * a {@link PredictedResponse} is delivered to the observers and the command is not sent,
+ * the bus is then free for the other commands.
+ * A real poll is always done if the last one is older than {@link #getMaxAge()}.
+ *
+ * @author MacFJA
+ * @see Service#setPrediction(io.github.macfja.obd2.Command, Prediction)
+ */
+public class Prediction {
+    private final SignalModel model;
+    private final double tolerance;
+    private long maxAge = 60000;
+    private long lastPoll = -1;
+    private Unit unit;
+    private long polls = 0;
+    private long avoidedPolls = 0;
+
+    /**
+     * Class constructor.
+     *
+     * @param model     The model of the value (used by this prediction only)
+     * @param tolerance The highest uncertainty allowed (in the unit of the command)
+     */
+    public Prediction(SignalModel model, double tolerance) {
+        this.model = model;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the predicted response, if the prediction is good enough
+     *
+     * @param now The current time (in milliseconds)
+     * @return The predicted response, or {@code null} if the command must be sent
+     */
+    synchronized Response predict(long now) {
+        if (lastPoll < 0 || now - lastPoll >= maxAge) {
+            return null;
+        }
+        double uncertainty = model.uncertainty(now);
+        if (!(uncertainty <= tolerance)) {
+            return null;
+        }
+        avoidedPolls++;
+        return new PredictedResponse(model.predict(now), uncertainty, unit);
+    }
+
+    /**
+     * Add the response of a real poll to the model
+     *
+     * @param response The response
+     * @param now      The time of the response (in milliseconds)
+     */
+    synchronized void update(Response response, long now) {
+        polls++;
+        double value = ResponseValues.toDouble(response);
+        if (Double.isNaN(value)) {
+            return;
+        }
+        model.update(value, now);
+        unit = response.getUnit();
+        lastPoll = now;
+    }
+
+    /**
+     * Get the model of the value
+     *
+     * @return The model
+     */
+    public SignalModel getModel() {
+        return model;
+    }
+
+    /**
+     * Get the highest uncertainty allowed
+     *
+     * @return The tolerance (in the unit of the command)
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Get the longest time without a real poll
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Set the longest time without a real poll
+     *
+     * @param maxAge The time (in milliseconds)
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Get the number of real polls of the command
+     *
+     * @return The number of polls
+     */
+    public synchronized long getPolls() {
+        return polls;
+    }
+
+    /**
+     * Get the number of polls replaced by a predicted value
+     *
+     * @return The number of avoided polls
+     */
+    public synchronized long getAvoidedPolls() {
+        return avoidedPolls;
+    }
+}
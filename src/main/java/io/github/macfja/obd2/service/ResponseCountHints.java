@@ -0,0 +1,242 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
+import java.util.Arrays;
+
+/**
+ * Learn how many ECUs respond to each mode 01 request, and append this count to the request.
+ * <p>
+ * Without the hint, an ELM327 adapter wait for its timeout after the last response, in case another ECU respond.
+ * With it (for example {@code 010C1}), the adapter return as soon as the expected number of responses is received.
+ * <p>
+ * The count is learned from the responses of a request (one line per ECU, the headers must be off).
+ * The hint is used once {@value #SAMPLES} requests have been answered without it, and the average round-trip time
+ * of these requests is compared (in the log) to the one of the first {@value #SAMPLES} requests with the hint.
+ *
+ * @author MacFJA
+ */
+public class ResponseCountHints {
+    /**
+     * Number of round-trip times measured without the hint, then with it, to compare them
+     */
+    static final int SAMPLES = 10;
+    private static final int NEVER = -1;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private int[] counts = new int[0];
+    /** Number of responses received without the hint, then with it */
+    private int[] samples = new int[0];
+    /** Sum of the round-trip times without the hint */
+    private long[] baselineTotals = new long[0];
+    /** Sum of the round-trip times with the hint */
+    private long[] hintedTotals = new long[0];
+    private Command[] hinted = new Command[0];
+
+    /**
+     * Get the command to send, with the response count hint if it's known
+     *
+     * @param command The command
+     * @param id      The id of the command ({@link CommandId})
+     * @return The command with the hint, or {@code command} if the count is unknown
+     */
+    public synchronized Command apply(Command command, int id) {
+        return id < hinted.length && hinted[id] != null ? hinted[id] : command;
+    }
+
+    /**
+     * Learn the number of ECUs that respond to a command
+     *
+     * @param id       The id of the command ({@link CommandId})
+     * @param command  The command sent
+     * @param response The response of the command
+     * @param latency  The round-trip time of the command (in nanoseconds)
+     */
+    public synchronized void learn(int id, Command command, Response response, long latency) {
+        ensureCapacity(id);
+        if (counts[id] == NEVER || response == null || response instanceof ExceptionResponse) {
+            return;
+        }
+        if (hinted[id] != null) {
+            compare(id, latency);
+            return;
+        }
+        String request = CommandId.request(id);
+        if (!isHintable(request)) {
+            counts[id] = NEVER;
+            return;
+        }
+        int count = countResponses(response.getRawResult(), request.charAt(2), request.charAt(3));
+        if (count < 1 || count > 15) {
+            return;
+        }
+        counts[id] = count;
+        baselineTotals[id] += latency;
+        if (++samples[id] == SAMPLES) {
+            // Enough round-trip times without the hint to compare them with the ones with it
+            samples[id] = 0;
+            hinted[id] = new HintedCommand(command, request + Integer.toHexString(count).toUpperCase());
+        }
+    }
+
+    /**
+     * Log the average round-trip time of a command with the hint, compared to the one without
+     *
+     * @param id      The id of the command
+     * @param latency The round-trip time of the command with the hint
+     */
+    private void compare(int id, long latency) {
+        if (samples[id] >= SAMPLES) {
+            return;
+        }
+        hintedTotals[id] += latency;
+        if (++samples[id] < SAMPLES) {
+            return;
+        }
+        logger.info(String.format(
+                "The round-trip time of '%s' is %.1f ms with the response count hint (%.1f ms without)",
+                CommandId.request(id), hintedTotals[id] / 1e6 / SAMPLES, baselineTotals[id] / 1e6 / SAMPLES
+        ));
+    }
+
+    /**
+     * Get the number of ECUs that respond to a command
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The number of ECUs, or {@code 0} if unknown
+     */
+    public synchronized int getCount(int id) {
+        return id < counts.length ? Math.max(0, counts[id]) : 0;
+    }
+
+    /**
+     * Get the average round-trip time of a command before the hint was used
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The time (in nanoseconds), or {@code -1} if unknown
+     */
+    public synchronized long getBaseline(int id) {
+        return id < counts.length && hinted[id] != null ? baselineTotals[id] / SAMPLES : -1;
+    }
+
+    /**
+     * Get the average round-trip time of a command with the hint
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The time (in nanoseconds), or {@code -1} if not enough requests have been sent with the hint
+     */
+    public synchronized long getHintedAverage(int id) {
+        return id < counts.length && hinted[id] != null && samples[id] >= SAMPLES ? hintedTotals[id] / SAMPLES : -1;
+    }
+
+    /**
+     * Forget every learned count (for example when the vehicle change)
+     */
+    public synchronized void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(samples, 0);
+        Arrays.fill(baselineTotals, 0);
+        Arrays.fill(hintedTotals, 0);
+        Arrays.fill(hinted, null);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= counts.length) {
+            int length = Math.max(id + 1, CommandId.size());
+            counts = Arrays.copyOf(counts, length);
+            samples = Arrays.copyOf(samples, length);
+            baselineTotals = Arrays.copyOf(baselineTotals, length);
+            hintedTotals = Arrays.copyOf(hintedTotals, length);
+            hinted = Arrays.copyOf(hinted, length);
+        }
+    }
+
+    /**
+     * Check if a request is a single PID of the mode 01
+     *
+     * @param request The request
+     * @return {@code true} if the hint can be appended
+     */
+    private static boolean isHintable(String request) {
+        return request.length() == 4 && request.startsWith("01")
+                && Character.digit(request.charAt(2), 16) >= 0 && Character.digit(request.charAt(3), 16) >= 0;
+    }
+
+    /**
+     * Count the lines of a raw response that are a response to a mode 01 PID
+     *
+     * @param raw  The raw response
+     * @param high The first digit of the PID
+     * @param low  The second digit of the PID
+     * @return The number of responses
+     */
+    static int countResponses(byte[] raw, char high, char low) {
+        if (raw == null) {
+            return 0;
+        }
+        high = Character.toUpperCase(high);
+        low = Character.toUpperCase(low);
+        int count = 0;
+        int matched = 0;
+        for (byte value : raw) {
+            char current = Character.toUpperCase((char) value);
+            if (current == '\r' || current == '\n') {
+                matched = 0;
+            } else if (current != ' ' && matched >= 0 && matched < 4) {
+                char expected = matched == 0 ? '4' : matched == 1 ? '1' : matched == 2 ? high : low;
+                matched = current == expected ? matched + 1 : -1;
+                if (matched == 4) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A command with the response count hint appended to its request
+     */
+    private static class HintedCommand implements Command {
+        private final Command command;
+        private final String request;
+
+        HintedCommand(Command command, String request) {
+            this.command = command;
+            this.request = request;
+        }
+
+        @Override
+        public String getRequest() {
+            return request;
+        }
+
+        @Override
+        public Response getResponse(byte[] rawResult) throws ScriptException {
+            return command.getResponse(rawResult);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+import io.github.macfja.obd2.response.CalculatedResponse;
+
+/**
+ * Helpers to read the numeric value of a {@link Response}.
+ *
+ * @author MacFJA
+ */
+public final class ResponseValues {
+    private ResponseValues() {
+    }
+
+    /**
+     * Get the numeric value of a response.
+     * <p>
+     * The value of a {@link CalculatedResponse} is used, otherwise the formatted string is parsed.
+     *
+     * @param response The response
+     * @return The value, or {@link Double#NaN} if the response is an error or is not a number
+     */
+    public static double toDouble(Response response) {
+        if (response == null || response instanceof ExceptionResponse) {
+            return Double.NaN;
+        }
+        if (response instanceof CalculatedResponse) {
+            Number value = ((CalculatedResponse) response).getCalculated();
+            return value == null ? Double.NaN : value.doubleValue();
+        }
+        String formatted = response.getFormattedString();
+        if (formatted == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(formatted.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
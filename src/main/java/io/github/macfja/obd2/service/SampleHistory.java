@@ -0,0 +1,204 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.util.Arrays;
+
+/**
+ * Keep the last samples of every command, with the time they were taken.
+ * <p>
+ * For every command (by {@link CommandId}), the {@link #DEPTH} last samples are kept in a ring:
+ * the time the request was sent, the time the response was received (both from {@link Scheduler#nanoTime()})
+ * and the numeric value of the response.
+ * The value is considered measured by the ECU between the two times, at their midpoint.
+ * <p>
+ * It allow to get the value of a command at any instant ({@link #valueAt(int, long)}),
+ * so commands that are read one after the other can be combined as if they were read at the same time.
+ *
+ * @author MacFJA
+ */
+public class SampleHistory {
+    /**
+     * Number of samples kept for every command
+     */
+    public static final int DEPTH = 4;
+
+    private long[] requestTimes = new long[0];
+    private long[] receiveTimes = new long[0];
+    private double[] values = new double[0];
+    private int[] counts = new int[0];
+    private volatile long maxExtrapolation = 1000000000;
+
+    /**
+     * Record a sample of a command
+     *
+     * @param id           The id of the command ({@link CommandId})
+     * @param requestNanos The time when the request was sent
+     * @param receiveNanos The time when the response was received
+     * @param value        The value of the response ({@link Double#NaN} if the response is not a number)
+     */
+    public synchronized void record(int id, long requestNanos, long receiveNanos, double value) {
+        ensureCapacity(id);
+        int index = id * DEPTH + counts[id] % DEPTH;
+        requestTimes[index] = requestNanos;
+        receiveTimes[index] = receiveNanos;
+        values[index] = value;
+        counts[id]++;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= counts.length) {
+            int length = Math.max(id + 1, CommandId.size());
+            requestTimes = Arrays.copyOf(requestTimes, length * DEPTH);
+            receiveTimes = Arrays.copyOf(receiveTimes, length * DEPTH);
+            values = Arrays.copyOf(values, length * DEPTH);
+            counts = Arrays.copyOf(counts, length);
+        }
+    }
+
+    /**
+     * Get the position of the n-th last sample of a command
+     *
+     * @param id   The id of the command
+     * @param back The sample to get (0 for the last one)
+     * @return The position in the arrays, or {@code -1} if there is no such sample
+     */
+    private int indexOf(int id, int back) {
+        if (id >= counts.length || back >= Math.min(counts[id], DEPTH)) {
+            return -1;
+        }
+        return id * DEPTH + (counts[id] - 1 - back) % DEPTH;
+    }
+
+    /**
+     * Get the time when the last request of a command was sent
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The time (from {@link Scheduler#nanoTime()}), or {@code -1} if the command was never sent
+     */
+    public synchronized long getRequestTime(int id) {
+        int index = indexOf(id, 0);
+        return index < 0 ? -1 : requestTimes[index];
+    }
+
+    /**
+     * Get the time when the last response of a command was received
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The time (from {@link Scheduler#nanoTime()}), or {@code -1} if the command was never sent
+     */
+    public synchronized long getReceiveTime(int id) {
+        int index = indexOf(id, 0);
+        return index < 0 ? -1 : receiveTimes[index];
+    }
+
+    /**
+     * Get the number of samples of a command
+     *
+     * @param id The id of the command ({@link CommandId})
+     * @return The number of samples recorded since the start
+     */
+    public synchronized int getCount(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Get the value of a command at an instant.
+     * <p>
+     * The value is linearly interpolated between the two samples around the instant.
+     * After the last sample, the value is extrapolated from the two last samples,
+     * but never further than {@link #getMaxExtrapolation()} (after that, the value is the extrapolated one at this limit).
+     * Before the oldest kept sample, the value of the oldest sample is used.
+     *
+     * @param id      The id of the command ({@link CommandId})
+     * @param instant The instant (from {@link Scheduler#nanoTime()})
+     * @return The value, or {@link Double#NaN} if there is no numeric sample of the command
+     */
+    public synchronized double valueAt(int id, long instant) {
+        int newer = -1;
+        for (int back = 0; ; back++) {
+            int index = indexOf(id, back);
+            if (index < 0) {
+                return newer < 0 ? Double.NaN : values[newer];
+            }
+            if (Double.isNaN(values[index])) {
+                continue;
+            }
+            if (timeOf(index) <= instant) {
+                if (newer < 0) {
+                    // After the last sample: extrapolate from the previous one
+                    int previous = previousNumber(id, back);
+                    if (previous < 0) {
+                        return values[index];
+                    }
+                    return interpolate(previous, index, Math.min(instant, timeOf(index) + maxExtrapolation));
+                }
+                return interpolate(index, newer, instant);
+            }
+            newer = index;
+        }
+    }
+
+    /**
+     * Get the longest time a value is extrapolated after its last sample
+     *
+     * @return The duration (in nanoseconds)
+     */
+    public long getMaxExtrapolation() {
+        return maxExtrapolation;
+    }
+
+    /**
+     * Set the longest time a value is extrapolated after its last sample
+     *
+     * @param maxExtrapolation The duration (in nanoseconds), {@code 0} to use the last value as is
+     */
+    public void setMaxExtrapolation(long maxExtrapolation) {
+        this.maxExtrapolation = maxExtrapolation;
+    }
+
+    /**
+     * Get the position of the numeric sample before the n-th last sample
+     *
+     * @param id   The id of the command
+     * @param back The sample to start from (0 for the last one)
+     * @return The position, or {@code -1} if there is none
+     */
+    private int previousNumber(int id, int back) {
+        for (int index = indexOf(id, ++back); index >= 0; index = indexOf(id, ++back)) {
+            if (!Double.isNaN(values[index])) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private long timeOf(int index) {
+        return requestTimes[index] + (receiveTimes[index] - requestTimes[index]) / 2;
+    }
+
+    private double interpolate(int older, int newer, long instant) {
+        long span = timeOf(newer) - timeOf(older);
+        if (span <= 0) {
+            return values[newer];
+        }
+        return values[older] + (values[newer] - values[older]) * (instant - timeOf(older)) / span;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The time and the threads used by a {@link Service}.
+ * <p>
+ * The {@link SystemScheduler} use the wall-clock and real threads,
+ * the {@link VirtualScheduler} use a virtual time to simulate hours of polling in a few milliseconds.
+ *
+ * @author MacFJA
+ * @see Service#Service(io.github.macfja.obd2.commander.CommanderInterface, Scheduler)
+ */
+public interface Scheduler {
+    /**
+     * Get the current time
+     *
+     * @return The time in milliseconds since epoch
+     */
+    long currentTimeMillis();
+
+    /**
+     * Get the current value of a high-resolution time source (only to measure elapsed time)
+     *
+     * @return The time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Run a task repeatedly, with a fixed delay between the start of each execution
+     *
+     * @param task   The task
+     * @param delay  The time before the first execution (in milliseconds)
+     * @param period The time between the start of two executions (in milliseconds)
+     * @return The handle to stop the task
+     */
+    Task schedule(Runnable task, long delay, long period);
+
+    /**
+     * Run a task as soon as possible, without blocking the caller
+     *
+     * @param task The task
+     */
+    void execute(Runnable task);
+
+    /**
+     * A task run repeatedly.
+     */
+    interface Task {
+        /**
+         * Stop the task (the current execution, if any, is not interrupted)
+         */
+        void cancel();
+    }
+}
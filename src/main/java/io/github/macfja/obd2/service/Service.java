@@ -21,9 +21,14 @@ package io.github.macfja.obd2.service;
 
 import io.github.macfja.obd2.Command;
 import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.SimpleCommands;
+import io.github.macfja.obd2.command.DTCsCommand;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.command.livedata.VehicleSpeed;
 import io.github.macfja.obd2.commander.CommanderInterface;
 import io.github.macfja.obd2.commander.SupportedInterface;
 import io.github.macfja.obd2.exception.ExceptionResponse;
+import io.github.macfja.obd2.response.CalculatedResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +36,9 @@ import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Implementation of {@link Obd2Service}.
@@ -43,22 +50,77 @@ public class Service implements Obd2Service {
      * The lowest frequency (in seconds) possible for the scheduling of commands.
      */
     protected static final Double MINIMUM_FREQUENCY = 1.5;
+    /** The time between two computations of the {@link AdmissionPolicy#SCALE_DOWN} factor (in milliseconds) */
+    private static final long SCALE_DOWN_CHECK = 1000;
+    private static final PollingProfile FULL_PROFILE = PollingProfile.full();
 
-    private List<Schedule> schedules = new ArrayList<>();
+    private List<Schedule> schedules = new CopyOnWriteArrayList<>();
     private CommanderInterface commander;
-    private Timer timer;
+    private Scheduler scheduler;
+    private volatile Scheduler.Task timer;
     private Logger logger = LoggerFactory.getLogger(getClass());
-    private boolean ready = false;
-    private List<Runnable> onReadys = new ArrayList<>();
+    private volatile boolean ready = false;
+    private Map<StartupStage, List<Runnable>> onReadys = new EnumMap<>(StartupStage.class);
+    private volatile long[] stageDurations = newStageDurations();
+    private volatile int connection = 0;
+    private List<Command> prefetchCommands = new ArrayList<Command>(Collections.singletonList(new DTCsCommand()));
+    private LatencyTracker latencyTracker = new LatencyTracker();
+    private final SampleHistory sampleHistory = new SampleHistory();
+    private final ResponseCountHints responseCountHints = new ResponseCountHints();
+    private volatile AdapterSettings adapterSettings = AdapterSettings.none();
+    private volatile boolean sampleAlignment = false;
+    private CapabilityCache capabilityCache;
+    private volatile VehicleCapabilities capabilities;
+    private volatile String vin;
+    /**
+     * Only one command can be sent to the OBD at a time
+     */
+    private final Object busLock = new Object();
+    private volatile boolean monitoring = false;
+    private volatile OutputStream toObd;
+    private volatile InputStream fromObd;
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private ErrorLogger errorLogger = new ErrorLogger(logger, 10000);
+    private volatile SharedValueTable sharedValueTable;
+    private final List<Aggregation> aggregations = new CopyOnWriteArrayList<>();
+    private volatile EngineStateDetector engineStateDetector;
+    private volatile DtcMonitor dtcMonitor;
+    private volatile Prediction[] predictions = new Prediction[0];
+    private AdmissionPolicy admissionPolicy = AdmissionPolicy.WARN;
+    private double maxUtilization = 0.9;
+    /** The slow down applied to every schedule by {@link AdmissionPolicy#SCALE_DOWN} */
+    private volatile double scaleDown = 1;
+    private long scaleDownCheckedAt = 0;
+    private long defaultLatency = 100000000;
+    private volatile ServiceEventListener eventListener;
+    private final List<FrameObserver> frameObservers = new CopyOnWriteArrayList<>();
+    private final FrameRecorder frameRecorder = new FrameRecorder();
+    /** The ids of the scheduled commands, reused by each tick of the polling thread */
+    private final BitSet scheduledIds = new BitSet();
+    private final Map<EngineState, PollingProfile> pollingProfiles = newPollingProfiles();
 
-    private List<ResponseListener> responseListeners = new ArrayList<>();
+    /**
+     * The observers of every command, indexed by the {@link CommandId} of the command
+     */
+    private volatile ResponseListeners[] responseListeners = new ResponseListeners[0];
 
     /**
      * Create a new service for the provided Commander
      * @param commander The Commander to use
      */
     public Service(CommanderInterface commander) {
+        this(commander, new SystemScheduler());
+    }
+
+    /**
+     * Create a new service for the provided Commander, with a custom time source
+     *
+     * @param commander The commander to use
+     * @param scheduler The time and the threads to use (for example a {@link VirtualScheduler} to simulate polling)
+     */
+    public Service(CommanderInterface commander, Scheduler scheduler) {
         this.commander = commander;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -68,7 +130,46 @@ public class Service implements Obd2Service {
 
     @Override
     public void addObserver(Class<? extends Command> command, ObdObserver observer, boolean once) {
-        responseListeners.add(new ResponseListener(command, observer, once));
+        addListener(new ResponseListener(command, observer, once));
+    }
+
+    @Override
+    public void addObserver(Command command, ObdObserver observer) {
+        addListener(new ResponseListener(command, observer, false));
+    }
+
+    @Override
+    public void addObserver(Command command, ObdObserver observer, DeliveryPolicy policy) {
+        ResponseListener listener = new ResponseListener(command, observer, false);
+        listener.setPolicy(policy);
+        addListener(listener);
+    }
+
+    @Override
+    public void addObserver(Class<? extends Command> command, ObdObserver observer, DeliveryPolicy policy) {
+        ResponseListener listener = new ResponseListener(command, observer, false);
+        listener.setPolicy(policy);
+        addListener(listener);
+    }
+
+    /**
+     * Register a listener in the list of its command
+     *
+     * @param listener The listener to add
+     */
+    private synchronized void addListener(ResponseListener listener) {
+        if (listener.getId() < 0) {
+            return;
+        }
+        ResponseListeners[] current = responseListeners;
+        if (listener.getId() >= current.length) {
+            current = Arrays.copyOf(current, Math.max(listener.getId() + 1, CommandId.size()));
+        }
+        if (current[listener.getId()] == null) {
+            current[listener.getId()] = new ResponseListeners();
+        }
+        current[listener.getId()].add(listener);
+        responseListeners = current;
     }
 
     /**
@@ -77,7 +178,8 @@ public class Service implements Obd2Service {
      * If the command is a {@link MultiCommandInterface}, its the instance that will be executed,
      * otherwise, to avoid duplicate command, only one reference is keep (and the best frequency is select).
      * <p>
-     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number
+     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number,
+     * or if the bus can't deliver it and the {@link AdmissionPolicy} is {@link AdmissionPolicy#REJECT}
      *
      * @param command   The command to schedule
      * @param frequency The time between each execution (in seconds)
@@ -88,193 +190,1194 @@ public class Service implements Obd2Service {
             throw new IllegalArgumentException("The frequency must be a positive number");
         }
         if (command instanceof MultiCommandInterface) {
-            schedules.add(new Schedule(command, frequency));
+            Schedule schedule = new Schedule(command, frequency);
+            schedules.add(schedule);
+            admit(schedule, 0);
             prepareTimer();
             return;
         }
 
+        int id = CommandId.of(command);
         for (Schedule schedule : schedules) {
-            if (schedule.getCommand().getClass() == command.getClass()) {
+            if (schedule.getId() == id) {
+                double previousFrequency = schedule.frequency;
                 double newFrequency = GCD((int) (frequency * 10), (int) (schedule.getFrequency() * 10));
 //                schedules.add(new Schedule(command, Math.max(MINIMUM_FREQUENCY, newFrequency / 10)));
                 schedule.frequency = Math.max(MINIMUM_FREQUENCY, newFrequency / 10);
+                admit(schedule, previousFrequency);
                 prepareTimer();
                 return;
             }
         }
 
-        schedules.add(new Schedule(command, frequency));
+        Schedule schedule = new Schedule(command, frequency);
+        schedules.add(schedule);
+        admit(schedule, 0);
         prepareTimer();
     }
 
     /**
-     * Schedule and observe a command at a fixed interval.
+     * Check that the bus can deliver the scheduled commands, and apply the {@link AdmissionPolicy} if not
+     *
+     * @param schedule          The schedule that have been added or changed
+     * @param previousFrequency The frequency of the schedule before the change, {@code 0} if the schedule is new
+     */
+    private void admit(Schedule schedule, double previousFrequency) {
+        BusLoad load = getBusLoad();
+        if (load.getUtilization() <= maxUtilization) {
+            updateScaleDown(load.getUtilization());
+            return;
+        }
+        switch (admissionPolicy) {
+            case REJECT:
+                if (previousFrequency > 0) {
+                    schedule.frequency = previousFrequency;
+                } else {
+                    schedules.remove(schedule);
+                }
+                throw new IllegalArgumentException(String.format(
+                        "Scheduling '%s' exceed the capacity of the bus (%s)", schedule.getCommand().getRequest(), load
+                ));
+            case SCALE_DOWN:
+                updateScaleDown(load.getUtilization());
+                logger.warn("The scheduled commands exceed the capacity of the bus ({}), they are slowed down {} times",
+                        load, String.format("%.2f", scaleDown));
+                break;
+            default:
+                logger.warn("The scheduled commands exceed the capacity of the bus ({})", load);
+        }
+    }
+
+    /**
+     * Get the planned load of the scheduled commands (at their requested period), and the capacity of the bus.
+     * <p>
+     * The capacity is estimated from the measured round-trip times, failed requests included
+     * (or {@link #getDefaultLatency()} for commands that have not been sent yet).
+     *
+     * @return The load of the bus
+     */
+    public BusLoad getBusLoad() {
+        double plannedRate = 0;
+        for (Schedule schedule : schedules) {
+            plannedRate += schedule.getLeafIds().length / schedule.getFrequency();
+        }
+        return new BusLoad(plannedRate, 1e9 / fallbackLatency(), plannedUtilization());
+    }
+
+    /**
+     * Get the part of the time of the bus needed by the scheduled commands, at their requested period (without allocation)
+     *
+     * @return The utilization
+     */
+    private double plannedUtilization() {
+        long fallback = fallbackLatency();
+        double utilization = 0;
+        Schedule schedule;
+        for (int index = 0; (schedule = elementAt(schedules, index)) != null; index++) {
+            double period = schedule.getFrequency();
+            for (int leafId : schedule.getLeafIds()) {
+                long latency = latencyTracker.getAverage(leafId);
+                utilization += (latency > 0 ? latency : fallback) / 1e9 / period;
+            }
+        }
+        return utilization;
+    }
+
+    private long fallbackLatency() {
+        long overall = latencyTracker.getOverallAverage();
+        return overall > 0 ? overall : defaultLatency;
+    }
+
+    /**
+     * Compute the slow down of the schedules from the planned utilization of the bus
+     *
+     * @param utilization The utilization at the requested periods
+     */
+    private void updateScaleDown(double utilization) {
+        scaleDown = admissionPolicy == AdmissionPolicy.SCALE_DOWN && utilization > maxUtilization
+                ? utilization / maxUtilization
+                : 1;
+    }
+
+    /**
+     * Get the factor applied to the periods of the schedules, when the {@link AdmissionPolicy} is
+     * {@link AdmissionPolicy#SCALE_DOWN}.
+     * <p>
+     * The requested periods are kept: the factor is computed again from the measured round-trip times
+     * (every second while polling) and when a schedule is added or removed.
+     *
+     * @return The factor, {@code 1} if the bus can deliver the requested periods
+     */
+    public double getScaleDown() {
+        return scaleDown;
+    }
+
+    /**
+     * Get what {@link #schedule(Command, double)} do when the bus can't deliver the scheduled commands
+     *
+     * @return The policy
+     */
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    /**
+     * Set what {@link #schedule(Command, double)} do when the bus can't deliver the scheduled commands
+     *
+     * @param admissionPolicy The policy
+     */
+    public void setAdmissionPolicy(AdmissionPolicy admissionPolicy) {
+        this.admissionPolicy = admissionPolicy;
+        updateScaleDown(plannedUtilization());
+    }
+
+    /**
+     * Get the maximum part of the time of the bus the scheduled commands can use
+     *
+     * @return The utilization (between {@code 0} and {@code 1})
+     */
+    public double getMaxUtilization() {
+        return maxUtilization;
+    }
+
+    /**
+     * Set the maximum part of the time of the bus the scheduled commands can use
+     *
+     * @param maxUtilization The utilization (between {@code 0} and {@code 1})
+     */
+    public void setMaxUtilization(double maxUtilization) {
+        this.maxUtilization = maxUtilization;
+        updateScaleDown(plannedUtilization());
+    }
+
+    /**
+     * Get the round-trip time used for the commands that have not been measured yet
+     *
+     * @return The time in nanoseconds
+     */
+    public long getDefaultLatency() {
+        return defaultLatency;
+    }
+
+    /**
+     * Set the round-trip time used for the commands that have not been measured yet
+     *
+     * @param defaultLatency The time in nanoseconds
+     */
+    public void setDefaultLatency(long defaultLatency) {
+        this.defaultLatency = defaultLatency;
+    }
+
+    /**
+     * Schedule and observe a command at a fixed interval.
+     * <p>
+     * If the command is a {@link MultiCommandInterface}, its the instance that will be executed,
+     * otherwise, to avoid duplicate command, only one reference is keep (and the best frequency is select).
+     * <p>
+     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number
+     *
+     * @param command   The command to schedule
+     * @param frequency The time between each execution (in seconds)
+     * @param observer  The observe to associate
+     */
+    @Override
+    public void schedule(Command command, double frequency, ObdObserver observer) {
+        schedule(command, frequency);
+        addListener(new ResponseListener(command, observer, false));
+    }
+
+    @Override
+    public void schedule(Command command, double frequency, ObdObserver observer, DeliveryPolicy policy) {
+        schedule(command, frequency);
+        addObserver(command, observer, policy);
+    }
+
+    /**
+     * Schedule and observe a command at a fixed interval
+     * <p>
+     * If the command is already scheduled, the best frequency will be set to the existing one.
+     * <p>
+     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number
+     *
+     * @param command   The command to schedule
+     * @param frequency The time between each execution (in seconds)
+     * @param observer  The observe to associate
+     */
+    @Override
+    public void schedule(Class<? extends Command> command, double frequency, ObdObserver observer) {
+        Command instance;
+        try {
+            instance = CommandFactories.create(command);
+        } catch (IllegalArgumentException e) {
+            logger.error(String.format("Unable to schedule %s", command.getName()), e);
+            return;
+        }
+        schedule(instance, frequency);
+        addObserver(command, observer);
+    }
+
+    @Override
+    public void schedule(Class<? extends Command> command, double frequency, ObdObserver observer, DeliveryPolicy policy) {
+        Command instance;
+        try {
+            instance = CommandFactories.create(command);
+        } catch (IllegalArgumentException e) {
+            logger.error(String.format("Unable to schedule %s", command.getName()), e);
+            return;
+        }
+        schedule(instance, frequency);
+        addObserver(command, observer, policy);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public boolean isReady(StartupStage stage) {
+        return stageDurations[stage.ordinal()] >= 0;
+    }
+
+    /**
+     * Get the time spent in a stage of the start of the service
+     *
+     * @param stage The stage
+     * @return The duration (in milliseconds), or {@code -1} if the stage is not done yet
+     */
+    public long getStartupDuration(StartupStage stage) {
+        long duration = stageDurations[stage.ordinal()];
+        return duration < 0 ? -1 : duration / 1000000;
+    }
+
+    /**
+     * Get the commands executed in the {@link StartupStage#PREFETCH} stage
+     *
+     * @return The list of commands
+     */
+    public List<Command> getPrefetchCommands() {
+        return prefetchCommands;
+    }
+
+    /**
+     * Set the commands to execute in the {@link StartupStage#PREFETCH} stage (after the VIN is read).
+     * <p>
+     * By default the DTCs are read.
+     *
+     * @param prefetchCommands The list of commands
+     */
+    public void setPrefetchCommands(List<Command> prefetchCommands) {
+        this.prefetchCommands = prefetchCommands;
+    }
+
+    @Override
+    public boolean isAvailable(Command command) {
+        if (!isReady()) {
+            return false;
+        }
+
+        if (command instanceof MultiCommandInterface) {
+            return isAvailable((MultiCommandInterface) command, true);
+        }
+
+        VehicleCapabilities known = capabilities;
+        if (known != null && known.isKnown(command.getRequest())) {
+            if (known.isStale(command.getRequest(), scheduler.currentTimeMillis(), capabilityCache.getMaxAge())) {
+                refreshAvailability(command, known);
+            }
+            return known.isSupported(command.getRequest());
+        }
+
+        boolean supported = probe(command);
+        if (known != null) {
+            known.setSupported(command.getRequest(), supported, scheduler.currentTimeMillis());
+            saveCapabilities();
+        }
+        return supported;
+    }
+
+    /**
+     * Ask the OBD if a command is supported
+     *
+     * @param command The command to test
+     * @return {@code true} is the command is supported
+     */
+    private boolean probe(Command command) {
+        boolean supported;
+        if (commander instanceof SupportedInterface) {
+            supported = ((SupportedInterface) commander).isCommandSupported(command);
+        } else {
+            try {
+                synchronized (busLock) {
+                    send(command);
+                }
+                supported = true;
+            } catch (IOException | ScriptException | ExceptionResponse e) {
+                supported = false;
+            }
+        }
+
+        if (!supported) {
+            circuitBreaker.suspend(CommandId.of(command), scheduler.currentTimeMillis());
+        }
+        return supported;
+    }
+
+    /**
+     * Check again (in background) if a command is supported
+     *
+     * @param command      The command to test
+     * @param capabilities The capabilities to update
+     */
+    private void refreshAvailability(final Command command, final VehicleCapabilities capabilities) {
+        // Mark as checked right away, to not refresh the same command several times
+        final boolean previous = capabilities.isSupported(command.getRequest());
+        capabilities.setSupported(command.getRequest(), previous, scheduler.currentTimeMillis());
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean supported = probe(command);
+                capabilities.setSupported(command.getRequest(), supported, scheduler.currentTimeMillis());
+                if (supported != previous) {
+                    logger.info("The support of the command '{}' changed to {}", command.getRequest(), supported);
+                }
+                saveCapabilities();
+            }
+        });
+    }
+
+    @Override
+    public boolean isAvailable(MultiCommandInterface multiCommand, boolean allMustBeAvailable) {
+        if (!isReady()) {
+            return false;
+        }
+
+        for (Command command : multiCommand.getCommands()) {
+            boolean result = isAvailable(command);
+
+            if (allMustBeAvailable && !result) {
+                return false;
+            }
+            if (!allMustBeAvailable && result) {
+                return true;
+            }
+        }
+
+        return allMustBeAvailable;
+    }
+
+    @Override
+    public Response run(Command command) {
+        return run(command, CommandId.of(command), leafIdsOf(command));
+    }
+
+    /**
+     * Execute a command and notify its observers
+     *
+     * @param command The command to execute
+     * @param id      The id of the command
+     * @param leafIds The ids of the commands actually sent (see {@link #leafIdsOf(Command)})
+     * @return The response of the command, can be an {@link ExceptionResponse}
+     */
+    private Response run(Command command, int id, int[] leafIds) {
+        Response response = doRun(command, id, leafIds);
+        notifyObservers(id, command, response);
+        return response;
+    }
+
+    /**
+     * The method is the one who actually end request to the OBD.
+     * <p>
+     * It handle {@link MultiCommandInterface} command as well as normal {@link Command}.
+     * It also always return a response (which can be an {@link ExceptionResponse}).
+     *
+     * @param command The command to execute
+     * @param id      The id of the command
+     * @param leafIds The ids of the commands actually sent (see {@link #leafIdsOf(Command)}), can be {@code null}
+     * @return The result of the command
+     */
+    private Response doRun(Command command, int id, int[] leafIds) {
+        if (command instanceof MultiCommandInterface) {
+            if (leafIds == null) {
+                leafIds = leafIdsOf(command);
+            }
+            ServiceEventListener events = eventListener;
+            long start = events == null ? 0 : scheduler.nanoTime();
+            MultiCommandInterface multiCommand = (MultiCommandInterface) command;
+            List<Command> commands = multiCommand.getCommands();
+            // A new frame for every evaluation: it's never shared, and never modified once returned
+            MultiResponse responses = new MultiResponse(leafIds);
+            long instant = -1;
+            for (int slot = 0; slot < leafIds.length; slot++) {
+                Command subCommand = commands.get(slot);
+                responses.setResponseAt(slot, doRun(subCommand, leafIds[slot], null));
+                long requestTime = sampleHistory.getRequestTime(leafIds[slot]);
+                long receiveTime = sampleHistory.getReceiveTime(leafIds[slot]);
+                responses.setTimesAt(slot, requestTime, receiveTime);
+                instant = Math.max(instant, requestTime + (receiveTime - requestTime) / 2);
+            }
+            if (sampleAlignment && instant >= 0) {
+                // The sub-commands are read one after the other: evaluate all of them at the time of the last one
+                responses.setInstant(instant);
+                for (int slot = 0; slot < leafIds.length; slot++) {
+                    if (!(responses.getResponseAt(slot) instanceof ExceptionResponse)) {
+                        responses.setValueAt(slot, sampleHistory.valueAt(leafIds[slot], instant));
+                    }
+                }
+            }
+            // The frame can be returned to the observers, they must not change it
+            responses.setReadOnly();
+            Response response;
+            try {
+                response = evaluate(multiCommand, responses);
+            } catch (ScriptException e) {
+                response = reportError(id, e);
+            }
+            if (events != null) {
+                events.multiCommandEvaluated(CommandId.request(id), scheduler.nanoTime() - start, typeOf(response));
+            }
+            return response;
+        }
+
+        long start = 0;
+        try {
+            Response response;
+            long end;
+            synchronized (busLock) {
+                if (monitoring) {
+                    // The bus is used by a CanMonitor: not a failure of the command
+                    return ErrorResponse.of(ErrorResponse.Type.BUS_ERROR);
+                }
+                boolean hint = adapterSettings.isResponseCountHint();
+                start = scheduler.nanoTime();
+                response = send(hint ? responseCountHints.apply(command, id) : command);
+                end = scheduler.nanoTime();
+                latencyTracker.record(id, end - start);
+                if (hint) {
+                    responseCountHints.learn(id, command, response, end - start);
+                }
+            }
+            long latency = end - start;
+            sampleHistory.record(id, start, end, response instanceof CalculatedResponse ? ResponseValues.toDouble(response) : Double.NaN);
+            circuitBreaker.success(id);
+            ServiceEventListener events = eventListener;
+            if (events != null) {
+                byte[] raw = response == null ? null : response.getRawResult();
+                events.commandSent(CommandId.request(id), raw == null ? 0 : raw.length, latency, null);
+            }
+            return response;
+        } catch (IOException | ScriptException | ExceptionResponse e) {
+            long end = scheduler.nanoTime();
+            long latency = end - start;
+            // The failures (timeouts) are the longest requests, they are part of the capacity of the bus
+            latencyTracker.record(id, latency);
+            sampleHistory.record(id, start, end, Double.NaN);
+            circuitBreaker.failure(id, scheduler.currentTimeMillis());
+            ErrorResponse error = reportError(id, e);
+            ServiceEventListener events = eventListener;
+            if (events != null) {
+                events.commandSent(CommandId.request(id), 0, latency, error.getType());
+            }
+            return error;
+        }
+    }
+
+    /**
+     * Calculate the response of a multi-command from the responses of its sub-commands
+     *
+     * @param multiCommand The multi-command
+     * @param responses    The responses of the sub-commands
+     * @return The response of the multi-command
+     * @throws ScriptException If the response can't be calculated
+     */
+    @SuppressWarnings("deprecation")
+    private static Response evaluate(MultiCommandInterface multiCommand, MultiResponse responses) throws ScriptException {
+        if (multiCommand instanceof SlottedMultiCommand) {
+            return ((SlottedMultiCommand) multiCommand).getResponse(responses);
+        }
+        // An older implementation: its storage is shared, so an evaluation must not be interleaved with another one
+        synchronized (multiCommand) {
+            List<Command> commands = multiCommand.getCommands();
+            for (int slot = 0; slot < responses.size(); slot++) {
+                multiCommand.setResponse(commands.get(slot).getRequest(), responses.getResponseAt(slot));
+            }
+            return multiCommand.getResponse(new byte[0]);
+        }
+    }
+
+    /**
+     * Get an element of a copy-on-write list without an iterator (the loops of the tick must not allocate).
+     * <p>
+     * The list can shrink between the check of its size and the read, in this case the end of the list is reached.
+     *
+     * @param list  The list
+     * @param index The position of the element
+     * @param <T>   The type of the elements
+     * @return The element, or {@code null} after the end of the list
+     */
+    private static <T> T elementAt(List<T> list, int index) {
+        try {
+            return index < list.size() ? list.get(index) : null;
+        } catch (IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the type of error of a response
+     *
+     * @param response The response
+     * @return The type of error, or {@code null} if the response is not an error
+     */
+    private static ErrorResponse.Type typeOf(Response response) {
+        return response instanceof ExceptionResponse ? ErrorResponse.classify((ExceptionResponse) response) : null;
+    }
+
+    /**
+     * Send a command to the OBD, with the commander (the bus must be locked)
+     *
+     * @param command The command to send
+     * @return The response of the OBD
+     * @throws IOException       If the communication failed
+     * @throws ScriptException   If the response can't be read
+     * @throws ExceptionResponse If the OBD respond with an error
+     */
+    Response send(Command command) throws IOException, ScriptException, ExceptionResponse {
+        return commander.sendCommand(command);
+    }
+
+    /**
+     * Log (with rate limit) an error and get the shared response of its type
+     *
+     * @param id        The id of the command that failed
+     * @param exception The exception that occurs
+     * @return The error response
+     */
+    private ErrorResponse reportError(int id, Exception exception) {
+        ErrorResponse.Type type = ErrorResponse.classify(exception);
+        errorLogger.report(CommandId.request(id), type, exception, scheduler.currentTimeMillis());
+        return ErrorResponse.of(type);
+    }
+
+    /**
+     * Get the logger used to report command errors
+     *
+     * @return The error logger
+     */
+    public ErrorLogger getErrorLogger() {
+        return errorLogger;
+    }
+
+    @Override
+    public void setCommunication(OutputStream toObd, InputStream fromObd) {
+        final int generation;
+        synchronized (onReadys) {
+            generation = ++connection;
+            stageDurations = newStageDurations();
+        }
+        ready = false;
+        capabilities = null;
+        vin = null;
+
+        long start = scheduler.nanoTime();
+        synchronized (busLock) {
+            commander.setCommunicationInterface(toObd, fromObd);
+            this.toObd = toObd;
+            this.fromObd = fromObd;
+            responseCountHints.clear();
+            negotiate(adapterSettings);
+        }
+        ready = true;
+        stageDone(StartupStage.ADAPTER, generation, start);
+
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = scheduler.nanoTime();
+                Response supportedPids = Service.this.run(SimpleCommands.create("0100"));
+                if (!stageDone(StartupStage.PROTOCOL, generation, start)) {
+                    return;
+                }
+
+                start = scheduler.nanoTime();
+                identifyVehicle(supportedPids);
+                for (Command command : prefetchCommands) {
+                    if (generation != connection) {
+                        return;
+                    }
+                    Service.this.run(command);
+                }
+                if (stageDone(StartupStage.PREFETCH, generation, start)) {
+                    saveCapabilities();
+                }
+            }
+        });
+    }
+
+    /**
+     * Send the settings to the adapter (the bus must be locked)
+     *
+     * @param settings The settings to negotiate
+     */
+    private void negotiate(AdapterSettings settings) {
+        List<String> refused = new ArrayList<>();
+        for (String request : settings.getCommands()) {
+            try {
+                Response response = send(SimpleCommands.create(request));
+                if (response != null && response.getRawResult() != null
+                        && new String(response.getRawResult(), StandardCharsets.US_ASCII).contains("?")) {
+                    refused.add(request);
+                }
+            } catch (IOException | ScriptException | ExceptionResponse e) {
+                refused.add(request);
+            }
+        }
+        if (!refused.isEmpty()) {
+            logger.info("The adapter refused the settings {}, its defaults are used instead", refused);
+        }
+    }
+
+    /**
+     * Get the settings negotiated with the adapter
+     *
+     * @return The settings
+     */
+    public AdapterSettings getAdapterSettings() {
+        return adapterSettings;
+    }
+
+    /**
+     * Set the settings negotiated with the adapter (on the next {@link #setCommunication(OutputStream, InputStream)}).
+     * <p>
+     * By default ({@link AdapterSettings#none()}) the settings of the adapter are kept and the response count hint is not used.
+     *
+     * @param adapterSettings The settings, {@link AdapterSettings#none()} to keep the settings of the adapter
+     */
+    public void setAdapterSettings(AdapterSettings adapterSettings) {
+        this.adapterSettings = adapterSettings;
+    }
+
+    /**
+     * Get the number of ECUs that respond to the mode 01 requests
+     *
+     * @return The learned response counts
+     */
+    public ResponseCountHints getResponseCountHints() {
+        return responseCountHints;
+    }
+
+    /**
+     * Read the VIN, and load the capabilities of the vehicle (if a {@link CapabilityCache} is set)
+     *
+     * @param supportedPids The response of the command {@code 0100}, used to validate the cached capabilities
+     */
+    private void identifyVehicle(Response supportedPids) {
+        String vin = VehicleCapabilities.parseVin(run(SimpleCommands.create("0902")));
+        this.vin = vin;
+        if (vin == null || capabilityCache == null) {
+            return;
+        }
+
+        String signature = null;
+        if (supportedPids != null && !(supportedPids instanceof ExceptionResponse) && supportedPids.getRawResult() != null) {
+            signature = new String(supportedPids.getRawResult(), StandardCharsets.US_ASCII).trim();
+        }
+        VehicleCapabilities loaded = capabilityCache.load(vin);
+        if (signature != null && loaded.getSignature() != null && !signature.equals(loaded.getSignature())) {
+            logger.info("The supported PIDs of {} changed, its cached capabilities are discarded", vin);
+            loaded = new VehicleCapabilities(vin);
+        }
+        if (signature != null) {
+            loaded.setSignature(signature);
+        }
+
+        long now = scheduler.currentTimeMillis();
+        for (String request : loaded.getKnownRequests()) {
+            if (!loaded.isSupported(request)) {
+                circuitBreaker.suspend(CommandId.of(request), now);
+            }
+        }
+        for (String request : loaded.getMeasuredRequests()) {
+            latencyTracker.seed(CommandId.of(request), loaded.getLatency(request));
+        }
+        capabilities = loaded;
+        logger.info("Capabilities of {} loaded ({} known command(s))", vin, loaded.getKnownRequests().size());
+    }
+
+    /**
+     * Store the capabilities of the current vehicle (and the measured round-trip times) in the {@link CapabilityCache}
+     */
+    public void saveCapabilities() {
+        VehicleCapabilities current = capabilities;
+        CapabilityCache cache = capabilityCache;
+        if (current == null || cache == null) {
+            return;
+        }
+        for (int id = 0; id < CommandId.size(); id++) {
+            if (latencyTracker.getCount(id) > 0) {
+                current.setLatency(CommandId.request(id), latencyTracker.getAverage(id));
+            }
+        }
+        synchronized (cache) {
+            cache.save(current);
+        }
+    }
+
+    /**
+     * Get the store of the vehicle capabilities.
+     *
+     * @return The capability cache, or {@code null} if not used
+     */
+    public CapabilityCache getCapabilityCache() {
+        return capabilityCache;
+    }
+
+    /**
+     * Set the store of the vehicle capabilities.
+     * <p>
+     * When the VIN is read (in the {@link StartupStage#PREFETCH} stage) the capabilities of the vehicle are loaded,
+     * and {@link #isAvailable(Command)} use them instead of asking the OBD.
+     * Capabilities older than {@link CapabilityCache#getMaxAge()} are checked again in background.
+     *
+     * @param capabilityCache The capability cache, or {@code null} to not use any
+     */
+    public void setCapabilityCache(CapabilityCache capabilityCache) {
+        this.capabilityCache = capabilityCache;
+    }
+
+    /**
+     * Get the capabilities of the current vehicle
+     *
+     * @return The capabilities, or {@code null} if no {@link CapabilityCache} is used or the VIN is unknown
+     */
+    public VehicleCapabilities getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Get the Vehicle Identification Number of the current vehicle
+     *
+     * @return The VIN, or {@code null} if it can't be read (yet)
+     */
+    public String getVin() {
+        return vin;
+    }
+
+    /**
+     * Get the round-trip times of the commands
+     *
+     * @return The latency tracker
+     */
+    public LatencyTracker getLatencyTracker() {
+        return latencyTracker;
+    }
+
+    /**
+     * Get the time and the threads used by the service
+     *
+     * @return The scheduler
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Get the last samples of the commands, with the time of their request and of their response
+     *
+     * @return The history of the samples
+     */
+    public SampleHistory getSampleHistory() {
+        return sampleHistory;
+    }
+
+    /**
+     * Set if the sub-commands of a multi-command are evaluated at a common instant.
+     * <p>
+     * If enabled, the value of every sub-command is interpolated (or extrapolated) from its history
+     * at the time of the last sub-command read (see {@link MultiResponse#getValueAt(int)}).
+     * Sub-commands that are also scheduled on their own have a richer history, so the multi-command is more accurate.
+     * <p>
+     * Disabled by default: the multi-commands use the raw sub-responses, as before the alignment existed.
+     *
+     * @param sampleAlignment {@code true} to align the values of the sub-commands
+     */
+    public void setSampleAlignment(boolean sampleAlignment) {
+        this.sampleAlignment = sampleAlignment;
+    }
+
+    /**
+     * Check if the sub-commands of a multi-command are evaluated at a common instant
+     *
+     * @return {@code true} if the values are aligned
+     */
+    public boolean isSampleAlignment() {
+        return sampleAlignment;
+    }
+
+    /**
+     * Mark a stage of the start as done, and run (in separate threads) its actions
+     *
+     * @param stage      The stage that is done
+     * @param generation The connection the stage belongs to
+     * @param start      The time (from {@link Scheduler#nanoTime()}) when the stage started
+     * @return {@code false} if the connection changed since the stage started
+     */
+    private boolean stageDone(StartupStage stage, int generation, long start) {
+        long duration = scheduler.nanoTime() - start;
+        List<Runnable> actions;
+        synchronized (onReadys) {
+            if (generation != connection) {
+                return false;
+            }
+            long[] durations = stageDurations.clone();
+            durations[stage.ordinal()] = duration;
+            stageDurations = durations;
+            actions = onReadys.get(stage);
+            actions = actions == null ? Collections.<Runnable>emptyList() : new ArrayList<>(actions);
+        }
+        logger.info("Startup stage {} done in {} ms", stage, duration / 1000000);
+        for (Runnable action : actions) {
+            scheduler.execute(action);
+        }
+        return true;
+    }
+
+    private static long[] newStageDurations() {
+        long[] durations = new long[StartupStage.values().length];
+        Arrays.fill(durations, -1);
+        return durations;
+    }
+
+    @Override
+    public void onReady(Runnable runnable) {
+        onReady(StartupStage.ADAPTER, runnable);
+    }
+
+    @Override
+    public void onReady(StartupStage stage, Runnable runnable) {
+        synchronized (onReadys) {
+            List<Runnable> actions = onReadys.get(stage);
+            if (actions == null) {
+                actions = new ArrayList<>();
+                onReadys.put(stage, actions);
+            }
+            actions.add(runnable);
+            if (!isReady(stage)) {
+                return;
+            }
+        }
+        scheduler.execute(runnable);
+    }
+
+    /**
+     * Stop the polling of the scheduled commands (the schedules are kept, a new schedule restart the polling)
+     */
+    public void stop() {
+        Scheduler.Task current = timer;
+        timer = null;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * Handle the scheduling of commands.
+     * <p>
+     * Stop any running timer.
+     * Create a new timer that run as the best rate possible.
+     */
+    private void prepareTimer() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        if (schedules.isEmpty() && dtcMonitor == null) {
+            return;
+        }
+        final long period = new Double(minFrequency() * 1000).longValue();
+        final long delay = 500;
+        final long plannedStart = scheduler.currentTimeMillis() + delay;
+        timer = scheduler.schedule(new Runnable() {
+            private long lastStart = -1;
+
+            @Override
+            public void run() {
+                // Loops with elementAt: this is run at every tick, it must not allocate (no iterator)
+                long now = scheduler.currentTimeMillis();
+                long lag = now - (lastStart < 0 ? plannedStart : lastStart + period);
+                lastStart = now;
+                ServiceEventListener events = eventListener;
+                long tickStart = events == null ? 0 : scheduler.nanoTime();
+                int executed = 0;
+                Aggregation aggregation;
+                for (int index = 0; (aggregation = elementAt(aggregations, index)) != null; index++) {
+                    aggregation.roll(now);
+                }
+                if (!isReady(StartupStage.PROTOCOL) || monitoring) {
+                    return;
+                }
+                if (admissionPolicy == AdmissionPolicy.SCALE_DOWN && now - scaleDownCheckedAt >= SCALE_DOWN_CHECK) {
+                    // The round-trip times change: speed up again when the bus has headroom
+                    scaleDownCheckedAt = now;
+                    updateScaleDown(plannedUtilization());
+                }
+                PollingProfile profile = getPollingProfile();
+                double slowdown = profile.getSlowdown() * scaleDown;
+                Schedule schedule;
+                for (int index = 0; (schedule = elementAt(schedules, index)) != null; index++) {
+                    if (!profile.allows(schedule.getId()) || !schedule.canRun(slowdown) || !isAllowed(schedule)) {
+                        continue;
+                    }
+                    Prediction prediction = predictionOf(schedule.getId());
+                    Response predicted = prediction == null ? null : prediction.predict(now);
+                    if (predicted != null) {
+                        // The value is known well enough: the bus is left to the other commands
+                        notifyObservers(schedule.getId(), schedule.getCommand(), predicted);
+                        markSimilarSchedulerAsRan(schedule);
+                        continue;
+                    }
+                    Response response = Service.this.run(schedule.getCommand(), schedule.getId(), schedule.getLeafIds());
+                    if (prediction != null) {
+                        prediction.update(response, now);
+                    }
+                    markSimilarSchedulerAsRan(schedule);
+                    executed++;
+                }
+                DtcMonitor monitor = dtcMonitor;
+                if (monitor != null && lag < period && monitor.isDue(now)) {
+                    // Low priority: after the scheduled commands, and only if the tick is on time
+                    monitor.poll(Service.this, now);
+                }
+                if (!frameObservers.isEmpty()) {
+                    notifyFrameObservers(now);
+                }
+                if (events != null) {
+                    events.tick(lag, scheduler.nanoTime() - tickStart, executed);
+                }
+            }
+        }, delay, period);
+    }
+
+    /**
+     * Get the prediction of a command
+     *
+     * @param id The id of the command
+     * @return The prediction, or {@code null} if the command is always polled
+     */
+    private Prediction predictionOf(int id) {
+        Prediction[] current = predictions;
+        return id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Set the prediction of a scheduled command.
      * <p>
-     * If the command is a {@link MultiCommandInterface}, its the instance that will be executed,
-     * otherwise, to avoid duplicate command, only one reference is keep (and the best frequency is select).
-     * <p>
-     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number
+     * While the {@link SignalModel} of the prediction is accurate enough, the observers of the command receive
+     * a {@link PredictedResponse} instead of a real poll.
+     * The predicted values are not written in the {@link SharedValueTable}, nor in the {@link Snapshot} of the frame observers.
+     * It's useful for the slowly changing commands (fuel level, temperatures, barometric pressure, ...).
      *
-     * @param command   The command to schedule
-     * @param frequency The time between each execution (in seconds)
-     * @param observer  The observe to associate
+     * @param command    The command
+     * @param prediction The prediction, or {@code null} to always poll the command
      */
-    @Override
-    public void schedule(Command command, double frequency, ObdObserver observer) {
-        schedule(command, frequency);
-        responseListeners.add(new ResponseListener(command, observer, false));
+    public synchronized void setPrediction(Command command, Prediction prediction) {
+        int id = CommandId.of(command);
+        Prediction[] copy = Arrays.copyOf(predictions, Math.max(predictions.length, id + 1));
+        copy[id] = prediction;
+        predictions = copy;
     }
 
     /**
-     * Schedule and observe a command at a fixed interval
-     * <p>
-     * If the command is already scheduled, the best frequency will be set to the existing one.
+     * Get the prediction of a command
+     *
+     * @param command The command
+     * @return The prediction, or {@code null} if the command is always polled
+     */
+    public Prediction getPrediction(Command command) {
+        return predictionOf(CommandId.of(command));
+    }
+
+    /**
+     * Get the number of polls replaced by a predicted value, for all the commands
+     *
+     * @return The number of avoided polls
+     */
+    public long getAvoidedPolls() {
+        long avoided = 0;
+        for (Prediction prediction : predictions) {
+            if (prediction != null) {
+                avoided += prediction.getAvoidedPolls();
+            }
+        }
+        return avoided;
+    }
+
+    /**
+     * Check with the {@link CircuitBreaker} if a scheduled command can be executed.
      * <p>
-     * It can throws an {@link IllegalArgumentException} if the frequency is not a positive number
+     * A {@link MultiCommandInterface} is allowed only if all its sub-commands are allowed.
      *
-     * @param command   The command to schedule
-     * @param frequency The time between each execution (in seconds)
-     * @param observer  The observe to associate
+     * @param schedule The schedule of the command to check
+     * @return {@code true} if the command can be executed
      */
-    @Override
-    public void schedule(Class<? extends Command> command, double frequency, ObdObserver observer) {
-        try {
-            schedule(command.newInstance(), frequency);
-            addObserver(command, observer);
-        } catch (InstantiationException | IllegalAccessException e) {
-            logger.error(String.format("Unable to schedule %s", command.getName()), e);
+    private boolean isAllowed(Schedule schedule) {
+        long now = scheduler.currentTimeMillis();
+        for (int id : schedule.getLeafIds()) {
+            if (!circuitBreaker.allows(id, now)) {
+                return false;
+            }
         }
+        return true;
     }
 
     @Override
-    public boolean isReady() {
-        return ready;
+    public CommandHealth getHealth(Command command) {
+        return circuitBreaker.getHealth(CommandId.of(command));
     }
 
     @Override
-    public boolean isAvailable(Command command) {
-        if (!isReady()) {
-            return false;
-        }
+    public void resetHealth(Command command) {
+        circuitBreaker.reset(CommandId.of(command));
+    }
 
-        if (command instanceof MultiCommandInterface) {
-            return isAvailable((MultiCommandInterface) command, true);
-        }
+    /**
+     * Get the circuit breaker used to delay or suspend failing commands
+     *
+     * @return The circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
 
-        if (commander instanceof SupportedInterface) {
-            return ((SupportedInterface) commander).isCommandSupported(command);
-        }
+    /**
+     * Set the circuit breaker used to delay or suspend failing commands
+     *
+     * @param circuitBreaker The circuit breaker
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
 
-        try {
-            commander.sendCommand(command);
-            return true;
-        } catch (IOException | ScriptException | ExceptionResponse e) {
-            return false;
-        }
+    /**
+     * Get the detector of the engine state used to select the {@link PollingProfile}
+     *
+     * @return The detector, or {@code null} if not used
+     */
+    public EngineStateDetector getEngineStateDetector() {
+        return engineStateDetector;
     }
 
-    @Override
-    public boolean isAvailable(MultiCommandInterface multiCommand, boolean allMustBeAvailable) {
-        if (!isReady()) {
-            return false;
+    /**
+     * Set the detector of the engine state used to select the {@link PollingProfile}.
+     * <p>
+     * The detector observe the engine RPM and the vehicle speed (they must be scheduled).
+     * Without detector, every scheduled command is run at its scheduled rate.
+     *
+     * @param engineStateDetector The detector, or {@code null} to not use any
+     */
+    public synchronized void setEngineStateDetector(EngineStateDetector engineStateDetector) {
+        if (this.engineStateDetector != null) {
+            removeObserver(this.engineStateDetector.getRpmObserver());
+            removeObserver(this.engineStateDetector.getSpeedObserver());
         }
-
-        for (Command command : multiCommand.getCommands()) {
-            boolean result = isAvailable(command);
-
-            if (allMustBeAvailable && !result) {
-                return false;
-            }
-            if (!allMustBeAvailable && result) {
-                return true;
-            }
+        this.engineStateDetector = engineStateDetector;
+        if (engineStateDetector != null) {
+            addObserver(new EngineRPM(), engineStateDetector.getRpmObserver());
+            addObserver(new VehicleSpeed(), engineStateDetector.getSpeedObserver());
         }
+    }
 
-        return allMustBeAvailable;
+    /**
+     * Get the monitor of the trouble codes
+     *
+     * @return The monitor, or {@code null} if the trouble codes are not monitored
+     */
+    public DtcMonitor getDtcMonitor() {
+        return dtcMonitor;
     }
 
-    @Override
-    public Response run(Command command) {
-        Response response = doRun(command);
-        notifyObservers(command, response);
-        return response;
+    /**
+     * Set the monitor of the trouble codes (run by the timer of the service, even if no command is scheduled)
+     *
+     * @param dtcMonitor The monitor, or {@code null} to stop monitoring the trouble codes
+     */
+    public void setDtcMonitor(DtcMonitor dtcMonitor) {
+        this.dtcMonitor = dtcMonitor;
+        prepareTimer();
     }
 
     /**
-     * The method is the one who actually end request to the OBD.
+     * Set which scheduled commands are run, and how often, in a state of the engine.
      * <p>
-     * It handle {@link MultiCommandInterface} command as well as normal {@link Command}.
-     * It also always return a response (which can be an {@link ExceptionResponse}).
+     * By default, every command run at its scheduled rate when the engine is running (or idle),
+     * and only the engine RPM is run (10 times slower) when the engine is stopped.
      *
-     * @param command The command to execute
-     * @return The result of the command
+     * @param state   The state of the engine
+     * @param profile The profile to use in this state
      */
-    private Response doRun(Command command) {
-        if (command instanceof MultiCommandInterface) {
-            for (Command subCommand : ((MultiCommandInterface) command).getCommands()) {
-                Response response = doRun(subCommand);
-                ((MultiCommandInterface) command).setResponse(subCommand.getRequest(), response);
-            }
-            try {
-                return command.getResponse("".getBytes());
-            } catch (ScriptException e) {
-                logger.warn("An error occurs while transforming the result of the multi-command '%s': %s", command.getRequest(), e.getLocalizedMessage());
-                return new ExceptionResponse(e.getLocalizedMessage().getBytes());
-            }
-        }
+    public void setPollingProfile(EngineState state, PollingProfile profile) {
+        pollingProfiles.put(state, profile);
+    }
 
-        try {
-            return commander.sendCommand(command);
-        } catch (IOException | ScriptException | ExceptionResponse e) {
-            logger.warn("An error occurs while running command '%s': %s", command.getRequest(), e.getLocalizedMessage());
-            return new ExceptionResponse(e.getLocalizedMessage().getBytes());
+    /**
+     * Get the profile of the current state of the engine
+     *
+     * @return The profile (the full profile if there is no {@link EngineStateDetector})
+     */
+    public PollingProfile getPollingProfile() {
+        EngineStateDetector detector = engineStateDetector;
+        if (detector == null) {
+            return FULL_PROFILE;
         }
+        return pollingProfiles.get(detector.getState());
     }
 
-    @Override
-    public void setCommunication(OutputStream toObd, InputStream fromObd) {
-        commander.setCommunicationInterface(toObd, fromObd);
-        ready = true;
-        for (Runnable runnable : onReadys) {
-            runnable.run();
-        }
+    private static Map<EngineState, PollingProfile> newPollingProfiles() {
+        Map<EngineState, PollingProfile> profiles = Collections.synchronizedMap(
+                new EnumMap<EngineState, PollingProfile>(EngineState.class));
+        profiles.put(EngineState.RUNNING, FULL_PROFILE);
+        profiles.put(EngineState.IDLE, FULL_PROFILE);
+        profiles.put(EngineState.KEY_OFF, new PollingProfile(10, new EngineRPM()));
+        return profiles;
     }
 
-    @Override
-    public void onReady(Runnable runnable) {
-        onReadys.add(runnable);
+    /**
+     * Get the listener of the timing events
+     *
+     * @return The listener, or {@code null} if the events are disabled
+     */
+    public ServiceEventListener getEventListener() {
+        return eventListener;
     }
 
     /**
-     * Handle the scheduling of commands.
+     * Set the listener of the timing events (scheduler ticks, commands sent, multi-commands, observers).
      * <p>
-     * Stop any running timer.
-     * Create a new timer that run as the best rate possible.
+     * Can be changed at any time. When {@code null} (the default), nothing is measured.
+     *
+     * @param eventListener The listener, or {@code null} to disable the events
      */
-    private void prepareTimer() {
-        if (timer != null) {
-            timer.cancel();
-            timer.purge();
-        }
-        if (schedules.isEmpty()) {
-            return;
-        }
-        timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                if (!isReady()) {
-                    return;
-                }
-                for (Schedule schedule : schedules) {
-                    if (!schedule.canRun()) {
-                        continue;
-                    }
-                    Service.this.run(schedule.getCommand());
-                    markSimilarSchedulerAsRan(schedule);
-                }
-            }
-        }, 500, new Double(minFrequency() * 1000).longValue());
+    public void setEventListener(ServiceEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    /**
+     * Get the memory-mapped table where the last value of every command is written
+     *
+     * @return The table, or {@code null} if not used
+     */
+    public SharedValueTable getSharedValueTable() {
+        return sharedValueTable;
+    }
+
+    /**
+     * Set the memory-mapped table where the last value of every command is written.
+     * <p>
+     * Every response (including the ones read by a {@link CanMonitor}) is written, even without observer.
+     *
+     * @param sharedValueTable The table, or {@code null} to not use any
+     */
+    public void setSharedValueTable(SharedValueTable sharedValueTable) {
+        this.sharedValueTable = sharedValueTable;
     }
 
     /**
@@ -287,8 +1390,9 @@ public class Service implements Obd2Service {
             schedule.hasRun();
             return;
         }
-        for (Schedule otherSchedule : schedules) {
-            if (otherSchedule.getCommand().getRequest().equals(schedule.getCommand().getRequest())) {
+        Schedule otherSchedule;
+        for (int index = 0; (otherSchedule = elementAt(schedules, index)) != null; index++) {
+            if (otherSchedule.getId() == schedule.getId()) {
                 otherSchedule.hasRun();
             }
         }
@@ -296,9 +1400,76 @@ public class Service implements Obd2Service {
 
     @Override
     public void removeObserver(ObdObserver observer) {
-        for (ResponseListener responseListener : responseListeners) {
-            if (responseListener.getObserver().equals(observer)) {
-                responseListeners.remove(responseListener);
+        for (ResponseListeners listeners : responseListeners) {
+            if (listeners == null) {
+                continue;
+            }
+            for (ResponseListener responseListener : listeners) {
+                if (responseListener.getObserver().equals(observer)) {
+                    listeners.remove(responseListener);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addFrameObserver(FrameObserver observer) {
+        frameObservers.add(observer);
+    }
+
+    @Override
+    public void removeFrameObserver(FrameObserver observer) {
+        frameObservers.remove(observer);
+    }
+
+    /**
+     * Give the snapshot of the tick to the frame observers, if at least one scheduled command have been updated
+     *
+     * @param now The time of the tick
+     */
+    private void notifyFrameObservers(long now) {
+        scheduledIds.clear();
+        Schedule schedule;
+        for (int index = 0; (schedule = elementAt(schedules, index)) != null; index++) {
+            scheduledIds.set(schedule.getId());
+        }
+        Snapshot snapshot = frameRecorder.endTick(now, scheduledIds);
+        if (snapshot == null) {
+            return;
+        }
+        FrameObserver observer;
+        for (int index = 0; (observer = elementAt(frameObservers, index)) != null; index++) {
+            observer.frame(snapshot);
+        }
+    }
+
+    @Override
+    public void aggregate(Command command, long window, WindowObserver observer) {
+        aggregate(command, window, window, observer);
+    }
+
+    @Override
+    public synchronized void aggregate(Command command, long window, long step, WindowObserver observer) {
+        int id = CommandId.of(command);
+        for (Aggregation aggregation : aggregations) {
+            if (aggregation.isSame(id, window, step)) {
+                aggregation.getObservers().add(observer);
+                return;
+            }
+        }
+        Aggregation aggregation = new Aggregation(id, window, step, scheduler);
+        aggregation.getObservers().add(observer);
+        aggregations.add(aggregation);
+        addListener(new ResponseListener(command, aggregation, false));
+    }
+
+    @Override
+    public synchronized void removeAggregate(WindowObserver observer) {
+        for (Aggregation aggregation : aggregations) {
+            aggregation.getObservers().remove(observer);
+            if (aggregation.getObservers().isEmpty()) {
+                aggregations.remove(aggregation);
+                removeObserver(aggregation);
             }
         }
     }
@@ -306,17 +1477,16 @@ public class Service implements Obd2Service {
     @Override
     public void cleanLeafSchedulers() {
         boolean shouldPrepareTimer = false;
-        Set<String> requests = new HashSet<>();
-        for (ResponseListener listener : responseListeners) {
-            requests.add(listener.getRequest());
-        }
+        ResponseListeners[] listeners = responseListeners;
         for (Schedule schedule : schedules) {
-            if (!requests.contains(schedule.getCommand().getRequest())) {
+            int id = schedule.getId();
+            if (id >= listeners.length || listeners[id] == null || listeners[id].isEmpty()) {
                 schedules.remove(schedule);
                 shouldPrepareTimer = true;
             }
         }
         if (shouldPrepareTimer) {
+            updateScaleDown(plannedUtilization());
             prepareTimer();
         }
     }
@@ -324,23 +1494,129 @@ public class Service implements Obd2Service {
     /**
      * Find every observer that are waiting response for the command and update them
      *
+     * @param id       The id of the command that have been executed
      * @param command  The command that have been executed
      * @param response The response of the command
      */
-    private void notifyObservers(Command command, Response response) {
-        for (ResponseListener responseListener : responseListeners) {
-            if (responseListener.getRequest().equals(command.getRequest())) {
-                if (response instanceof ExceptionResponse) {
-                    responseListener.getObserver().error(command, response, (ExceptionResponse) response);
-                } else {
-                    responseListener.getObserver().update(response);
+    private void notifyObservers(int id, Command command, Response response) {
+        // Only the measured values are shared and recorded in the frames, a prediction is not a sample
+        boolean measured = id >= 0 && !(response instanceof PredictedResponse);
+        SharedValueTable table = sharedValueTable;
+        if (table != null && measured) {
+            table.write(id, response, scheduler.currentTimeMillis());
+        }
+        if (!frameObservers.isEmpty() && measured) {
+            frameRecorder.record(id, response, scheduler.currentTimeMillis());
+        }
+        ResponseListeners[] current = responseListeners;
+        if (id >= current.length || current[id] == null) {
+            return;
+        }
+        ResponseListeners listeners = current[id];
+        boolean error = response instanceof ExceptionResponse;
+        ServiceEventListener events = eventListener;
+        double value = Double.NaN;
+        boolean valueRead = false;
+        long now = 0;
+        ResponseListener responseListener;
+        for (int index = 0; (responseListener = elementAt(listeners, index)) != null; index++) {
+            DeliveryFilter filter = responseListener.getFilter();
+            if (filter != null) {
+                if (!valueRead) {
+                    value = ResponseValues.toDouble(response);
+                    now = scheduler.currentTimeMillis();
+                    valueRead = true;
                 }
-
-                if (responseListener.isOnce()) {
-                    responseListeners.remove(responseListener);
+                if (!filter.accept(value, error, now)) {
+                    continue;
                 }
             }
+            long dispatchStart = events == null ? 0 : scheduler.nanoTime();
+            if (error) {
+                responseListener.getObserver().error(command, response, (ExceptionResponse) response);
+            } else {
+                responseListener.getObserver().update(response);
+            }
+            if (events != null) {
+                events.observerNotified(CommandId.request(id), responseListener.getObserver(), scheduler.nanoTime() - dispatchStart);
+            }
+
+            if (responseListener.isOnce() && listeners.remove(responseListener)) {
+                index--;
+            }
+        }
+    }
+
+    /**
+     * Notify the observers of a command with a response that have not been requested (for example read by a {@link CanMonitor})
+     *
+     * @param id       The id of the command
+     * @param command  The command
+     * @param response The response
+     */
+    void publish(int id, Command command, Response response) {
+        notifyObservers(id, command, response);
+    }
+
+    /**
+     * Run an action in a thread of the service
+     *
+     * @param runnable The action to run
+     */
+    void execute(Runnable runnable) {
+        scheduler.execute(runnable);
+    }
+
+    CommanderInterface getCommander() {
+        return commander;
+    }
+
+    Object getBusLock() {
+        return busLock;
+    }
+
+    OutputStream getOutputStream() {
+        return toObd;
+    }
+
+    InputStream getInputStream() {
+        return fromObd;
+    }
+
+    /**
+     * Pause (or resume) the use of the bus by the service
+     *
+     * @param monitoring {@code true} if the bus is used by a {@link CanMonitor}
+     */
+    void setMonitoring(boolean monitoring) {
+        this.monitoring = monitoring;
+    }
+
+    /**
+     * Indicate if the bus is monitored (no command can be sent)
+     *
+     * @return {@code true} if a {@link CanMonitor} is running
+     */
+    public boolean isMonitoring() {
+        return monitoring;
+    }
+
+    /**
+     * Get the ids of the commands that are actually sent to the OBD when a command is executed.
+     *
+     * @param command The command
+     * @return The ids of the sub-commands of a {@link MultiCommandInterface}, or the id of the command itself
+     */
+    private static int[] leafIdsOf(Command command) {
+        if (!(command instanceof MultiCommandInterface)) {
+            return new int[]{CommandId.of(command)};
+        }
+        List<Command> commands = ((MultiCommandInterface) command).getCommands();
+        int[] ids = new int[commands.size()];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = CommandId.of(commands.get(index));
         }
+        return ids;
     }
 
     /**
@@ -377,31 +1653,30 @@ public class Service implements Obd2Service {
      * @author MacFJA
      */
     private class ResponseListener {
-        private String request;
+        private int id;
         private ObdObserver observer;
         private boolean once;
+        private DeliveryFilter filter;
 
         ResponseListener(Command command, ObdObserver observer, boolean once) {
-            request = command.getRequest();
+            id = CommandId.of(command);
             this.observer = observer;
             this.once = once;
         }
 
         ResponseListener(Class<? extends Command> commandClass, ObdObserver observer, boolean once) {
-            Command command;
-            request = "";
+            id = -1;
             try {
-                command = commandClass.newInstance();
-                request = command.getRequest();
-            } catch (InstantiationException | IllegalAccessException e) {
-                e.printStackTrace();
+                id = CommandFactories.idOf(commandClass);
+            } catch (IllegalArgumentException e) {
+                logger.error(String.format("Unable to observe %s", commandClass.getName()), e);
             }
             this.observer = observer;
             this.once = once;
         }
 
-        String getRequest() {
-            return request;
+        int getId() {
+            return id;
         }
 
         ObdObserver getObserver() {
@@ -411,6 +1686,26 @@ public class Service implements Obd2Service {
         boolean isOnce() {
             return once;
         }
+
+        /**
+         * Get the state of the delivery policy of the observer
+         *
+         * @return The filter, or {@code null} if every response is delivered
+         */
+        DeliveryFilter getFilter() {
+            return filter;
+        }
+
+        void setPolicy(DeliveryPolicy policy) {
+            filter = policy == null ? null : new DeliveryFilter(policy);
+        }
+    }
+
+    /**
+     * The observers of a single command
+     */
+    private static class ResponseListeners extends CopyOnWriteArrayList<ResponseListener> {
+        private static final long serialVersionUID = 1L;
     }
 
     /**
@@ -418,12 +1713,34 @@ public class Service implements Obd2Service {
      */
     private class Schedule {
         private Command command;
+        private int id;
+        private int[] leafIds;
         private double frequency;
-        private Date lastRun;
+        private long lastRun = -1;
 
         Schedule(Command command, double frequency) {
             this.command = command;
             this.frequency = frequency;
+            id = CommandId.of(command);
+            leafIds = leafIdsOf(command);
+        }
+
+        /**
+         * Get the id of the command
+         *
+         * @return The {@link CommandId} of the command
+         */
+        int getId() {
+            return id;
+        }
+
+        /**
+         * Get the ids of the commands that are actually send to the OBD
+         *
+         * @return The id of every sub-command, or the id of the command itself
+         */
+        int[] getLeafIds() {
+            return leafIds;
         }
 
         double getFrequency() {
@@ -438,7 +1755,7 @@ public class Service implements Obd2Service {
          * Mark the schedule as just ran.
          */
         void hasRun() {
-            lastRun = GregorianCalendar.getInstance().getTime();
+            lastRun = scheduler.currentTimeMillis();
         }
 
         /**
@@ -447,12 +1764,22 @@ public class Service implements Obd2Service {
          * @return {@code true} if the execution time + the frequency is less than right now
          */
         public boolean canRun() {
-            if (lastRun == null) {
+            return canRun(1);
+        }
+
+        /**
+         * Check if the schedule can be execute based on the last execution time and the frequency slowed down by
+         * a {@link PollingProfile}
+         *
+         * @param slowdown The factor applied to the frequency
+         * @return {@code true} if the execution time + the slowed down frequency is less than right now
+         */
+        boolean canRun(double slowdown) {
+            if (lastRun < 0) {
                 return true;
             }
-            Date now = GregorianCalendar.getInstance().getTime();
-            long elapse = now.getTime() - lastRun.getTime();
-            return elapse > (frequency * 1000);
+            long elapse = scheduler.currentTimeMillis() - lastRun;
+            return elapse > (frequency * slowdown * 1000);
         }
     }
 }
@@ -0,0 +1,69 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * Timing events of a {@link Service}, to find where the time goes (slow command, slow observer, late scheduler).
+ * <p>
+ * The events are only measured when a listener is set (see {@link Service#setEventListener(ServiceEventListener)}),
+ * and are emitted in the thread that did the work, so the listener must be fast (for example by committing a
+ * Java Flight Recorder event, or by adding to counters).
+ *
+ * @author MacFJA
+ * @see ServiceEventAdapter
+ */
+public interface ServiceEventListener {
+    /**
+     * A tick of the scheduler is done
+     *
+     * @param lag      The time between the planned start and the actual start of the tick (in milliseconds)
+     * @param duration The time spent in the tick (in nanoseconds)
+     * @param executed The number of scheduled commands executed
+     */
+    void tick(long lag, long duration, int executed);
+
+    /**
+     * A command have been sent to the OBD
+     *
+     * @param request The request of the command
+     * @param bytes   The size of the raw response ({@code 0} on error)
+     * @param latency The round-trip time (in nanoseconds)
+     * @param error   The type of error, or {@code null} on success
+     */
+    void commandSent(String request, int bytes, long latency, ErrorResponse.Type error);
+
+    /**
+     * The response of a {@link MultiCommandInterface} have been calculated (the sub-commands included)
+     *
+     * @param request  The request of the command
+     * @param duration The time spent (in nanoseconds)
+     * @param error    The type of error, or {@code null} on success
+     */
+    void multiCommandEvaluated(String request, long duration, ErrorResponse.Type error);
+
+    /**
+     * An observer have been notified
+     *
+     * @param request  The request of the command
+     * @param observer The observer
+     * @param duration The time spent in the observer (in nanoseconds)
+     */
+    void observerNotified(String request, ObdObserver observer, long duration);
+}
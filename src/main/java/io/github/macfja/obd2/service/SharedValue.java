@@ -0,0 +1,75 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * A value read from a {@link SharedValueTable} (reusable, see {@link SharedValueReader#read(int, SharedValue)}).
+ *
+ * @author MacFJA
+ */
+public class SharedValue {
+    long sequence;
+    long timestamp;
+    double value;
+    int status;
+
+    /**
+     * Get the number of updates of the value
+     *
+     * @return The number of updates
+     */
+    public long getUpdateCount() {
+        return sequence / 2;
+    }
+
+    /**
+     * Get the time of the value
+     *
+     * @return The time in milliseconds since epoch, {@code 0} if there is no value yet
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the value
+     *
+     * @return The value, or {@link Double#NaN} if the response was not a number
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Get the error of the last response
+     *
+     * @return The type of error, or {@code null} if the last response is not an error
+     */
+    public ErrorResponse.Type getError() {
+        ErrorResponse.Type[] types = ErrorResponse.Type.values();
+        return status <= 0 || status > types.length ? null : types[status - 1];
+    }
+
+    @Override
+    public String toString() {
+        return "SharedValue{value=" + value + ", timestamp=" + timestamp + ", updates=" + getUpdateCount()
+                + ", error=" + getError() + '}';
+    }
+}
@@ -0,0 +1,149 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read the values of a {@link SharedValueTable}, from any process.
+ *
+ * @author MacFJA
+ */
+public class SharedValueReader implements Closeable {
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private volatile boolean open = true;
+    /** Written then read between the sequence and the data, as a full barrier (see {@link #fullFence(long)}) */
+    private volatile long fence;
+
+    /**
+     * Map a table
+     *
+     * @param path The file of the table
+     * @throws IOException If the file can't be read or is not a table
+     */
+    public SharedValueReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.length() < SharedValueTable.HEADER_SIZE || buffer.getInt(0) != SharedValueTable.MAGIC) {
+            file.close();
+            throw new IOException("Not a shared value table: " + path);
+        }
+        capacity = buffer.getInt(SharedValueTable.SLOT_COUNT_OFFSET);
+    }
+
+    /**
+     * Get the number of commands in the table
+     *
+     * @return The number of used slots
+     */
+    public int size() {
+        return Math.min(buffer.getInt(SharedValueTable.USED_OFFSET), capacity);
+    }
+
+    /**
+     * Find the slot of a command
+     *
+     * @param request The request of the command (ex: {@code 010C})
+     * @return The slot, or {@code -1} if the command is not in the table
+     */
+    public int find(String request) {
+        byte[] expected = request.getBytes(StandardCharsets.US_ASCII);
+        int size = size();
+        // The slots are read after their count
+        fullFence(size);
+        for (int slot = 0; slot < size; slot++) {
+            int offset = SharedValueTable.HEADER_SIZE + slot * SharedValueTable.SLOT_SIZE;
+            int length = buffer.get(offset + SharedValueTable.REQUEST_LENGTH);
+            if (length != Math.min(expected.length, SharedValueTable.MAX_REQUEST_LENGTH)) {
+                continue;
+            }
+            boolean same = true;
+            for (int index = 0; index < length && same; index++) {
+                same = buffer.get(offset + SharedValueTable.REQUEST + index) == expected[index];
+            }
+            if (same) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read the value of a slot (without allocation nor lock)
+     *
+     * @param slot  The slot (see {@link #find(String)})
+     * @param value The holder to fill
+     * @return The holder
+     */
+    public SharedValue read(int slot, SharedValue value) {
+        int offset = SharedValueTable.HEADER_SIZE + slot * SharedValueTable.SLOT_SIZE;
+        long before;
+        long after;
+        do {
+            before = buffer.getLong(offset + SharedValueTable.SEQUENCE);
+            checkOpen();
+            // The data is read after the first sequence, and before the second one
+            fullFence(before);
+            value.timestamp = buffer.getLong(offset + SharedValueTable.TIMESTAMP);
+            value.value = buffer.getDouble(offset + SharedValueTable.VALUE);
+            value.status = buffer.getInt(offset + SharedValueTable.STATUS);
+            fullFence(before);
+            after = buffer.getLong(offset + SharedValueTable.SEQUENCE);
+        } while ((before & 1) != 0 || before != after);
+        value.sequence = before;
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        file.close();
+    }
+
+    /**
+     * Full memory barrier: a volatile write followed by a volatile read of the same field.
+     * <p>
+     * The loads of the mapped buffer before the call are not reordered after it, and the loads after the call
+     * are not reordered before it ({@code VarHandle.fullFence()} doesn't exist before Java 9).
+     *
+     * @param mark Any value
+     * @return The value read back
+     */
+    private long fullFence(long mark) {
+        fence = mark;
+        return fence;
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("The reader is closed");
+        }
+    }
+}
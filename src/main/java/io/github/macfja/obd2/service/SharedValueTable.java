@@ -0,0 +1,229 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A memory-mapped file with the last value of every command run by a {@link Service}.
+ * <p>
+ * Other processes (JVM with {@link SharedValueReader}, or native) can read the values at any rate,
+ * without lock and without touching the OBD.
+ * <p>
+ * Layout (little-endian):
+ * <pre>
+ * Header (64 bytes)
+ *   0  int    magic "OBDV" (0x5644424F)
+ *   4  int    version (1)
+ *   8  int    number of slots
+ *   12 int    size of a slot (64)
+ *   16 int    number of used slots
+ * Slot (64 bytes), starting at 64 + index * 64
+ *   0  long   sequence, odd while the slot is being written
+ *   8  long   timestamp (milliseconds since epoch)
+ *   16 double value (NaN if the response is not a number)
+ *   24 int    status: 0 on success, 1 + {@link ErrorResponse.Type#ordinal()} on error
+ *   28 byte   length of the request
+ *   29 byte[] request (ASCII, up to 35 bytes)
+ * </pre>
+ * A reader copy the slot, and start again if the sequence was odd or changed in between (seqlock).
+ * The number of updates of a slot is {@code sequence / 2}.
+ * <p>
+ * Memory ordering: the writer store the odd sequence, then the data, then the even sequence, with a full barrier
+ * between each step. A new slot is filled before the number of used slots is increased, and the header before the magic.
+ * A native reader must use the same order, with acquire loads (or a full barrier) between the steps:
+ * load the sequence, barrier, load the data, barrier, load the sequence again
+ * (with C11: {@code atomic_thread_fence(memory_order_acquire)} after the first load
+ * and before the second one, or {@code memory_order_seq_cst} loads of the sequence).
+ * The number of used slots is loaded before the slots, with a barrier in between.
+ *
+ * @author MacFJA
+ */
+public class SharedValueTable implements Closeable {
+    static final int MAGIC = 0x5644424F;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 64;
+    static final int SLOT_COUNT_OFFSET = 8;
+    static final int USED_OFFSET = 16;
+    static final int SEQUENCE = 0;
+    static final int TIMESTAMP = 8;
+    static final int VALUE = 16;
+    static final int STATUS = 24;
+    static final int REQUEST_LENGTH = 28;
+    static final int REQUEST = 29;
+    static final int MAX_REQUEST_LENGTH = SLOT_SIZE - REQUEST;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int used = 0;
+    /** Slot of each {@link CommandId}, {@code -1} if not assigned */
+    private int[] slots = new int[0];
+    /** Written then read between the sequence and the data, as a full barrier (see {@link #fullFence(long)}) */
+    private volatile long fence;
+
+    /**
+     * Create (or truncate) the file and map it
+     *
+     * @param path     The file
+     * @param capacity The maximum number of commands
+     * @throws IOException If the file can't be created
+     */
+    public SharedValueTable(File path, int capacity) throws IOException {
+        this.capacity = capacity;
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(0);
+        long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(SLOT_COUNT_OFFSET, capacity);
+        buffer.putInt(12, SLOT_SIZE);
+        buffer.putInt(USED_OFFSET, 0);
+        fullFence(0);
+        // The magic is written last, a reader never see a partial header
+        buffer.putInt(0, MAGIC);
+    }
+
+    /**
+     * Write the response of a command in its slot
+     *
+     * @param id        The id of the command (see {@link CommandId})
+     * @param response  The response
+     * @param timestamp The time of the response (milliseconds since epoch)
+     */
+    public synchronized void write(int id, Response response, long timestamp) {
+        if (buffer == null) {
+            return;
+        }
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return;
+        }
+        int offset = HEADER_SIZE + slot * SLOT_SIZE;
+        long sequence = buffer.getLong(offset + SEQUENCE);
+        buffer.putLong(offset + SEQUENCE, sequence + 1);
+        // The odd sequence is visible before the data
+        fullFence(sequence + 1);
+        buffer.putLong(offset + TIMESTAMP, timestamp);
+        buffer.putDouble(offset + VALUE, ResponseValues.toDouble(response));
+        buffer.putInt(offset + STATUS, response instanceof ExceptionResponse
+                ? 1 + ErrorResponse.classify((ExceptionResponse) response).ordinal()
+                : 0);
+        // The data is visible before the even sequence
+        fullFence(sequence + 2);
+        buffer.putLong(offset + SEQUENCE, sequence + 2);
+    }
+
+    /**
+     * Get the number of commands that have a slot
+     *
+     * @return The number of slots used
+     */
+    public synchronized int getUsed() {
+        return used;
+    }
+
+    /**
+     * Get the maximum number of commands
+     *
+     * @return The number of slots
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Unmap the file (readers see the last written values)
+     *
+     * @throws IOException If the file can't be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        buffer.force();
+        buffer = null;
+        file.close();
+    }
+
+    private int slotOf(int id) {
+        if (id < slots.length && slots[id] != -1) {
+            return slots[id];
+        }
+        if (id >= slots.length) {
+            int oldLength = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(id + 1, oldLength * 2));
+            Arrays.fill(slots, oldLength, slots.length, -1);
+        }
+        if (used >= capacity) {
+            logger.warn("The shared value table is full, the command '{}' is not shared", CommandId.request(id));
+            // Don't warn again for this command
+            slots[id] = Integer.MIN_VALUE;
+            return -1;
+        }
+        byte[] request = CommandId.request(id).getBytes(StandardCharsets.US_ASCII);
+        int length = Math.min(request.length, MAX_REQUEST_LENGTH);
+        int offset = HEADER_SIZE + used * SLOT_SIZE;
+        buffer.putLong(offset + SEQUENCE, 0);
+        buffer.putLong(offset + TIMESTAMP, 0);
+        buffer.putDouble(offset + VALUE, Double.NaN);
+        buffer.put(offset + REQUEST_LENGTH, (byte) length);
+        for (int index = 0; index < length; index++) {
+            buffer.put(offset + REQUEST + index, request[index]);
+        }
+        // The slot is visible before it's counted in the used slots
+        fullFence(used);
+        slots[id] = used;
+        used++;
+        buffer.putInt(USED_OFFSET, used);
+        return slots[id];
+    }
+
+    /**
+     * Full memory barrier: a volatile write followed by a volatile read of the same field.
+     * <p>
+     * The stores of the mapped buffer before the call are not reordered after it, and the stores after the call
+     * are not reordered before it ({@code VarHandle.fullFence()} doesn't exist before Java 9).
+     *
+     * @param mark Any value
+     * @return The value read back
+     */
+    private long fullFence(long mark) {
+        fence = mark;
+        return fence;
+    }
+}
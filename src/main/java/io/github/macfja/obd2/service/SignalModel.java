@@ -0,0 +1,57 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * A model of the value of a command, that predict the value between two polls.
+ * <p>
+ * Used by a {@link Prediction}: while the uncertainty of the prediction is small enough,
+ * the predicted value is delivered instead of sending the command.
+ * A model is used by one command only.
+ *
+ * @author MacFJA
+ * @see LinearModel
+ * @see KalmanModel
+ */
+public interface SignalModel {
+    /**
+     * Add a measured value
+     *
+     * @param value The value read from the OBD
+     * @param time  The time of the measure (in milliseconds)
+     */
+    void update(double value, long time);
+
+    /**
+     * Predict the value at a time
+     *
+     * @param time The time (in milliseconds)
+     * @return The predicted value, or {@link Double#NaN} if nothing was measured
+     */
+    double predict(long time);
+
+    /**
+     * Get the uncertainty of the prediction at a time
+     *
+     * @param time The time (in milliseconds)
+     * @return The expected error (in the unit of the value), {@link Double#POSITIVE_INFINITY} if it's unknown
+     */
+    double uncertainty(long time);
+}
@@ -0,0 +1,47 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+
+import javax.script.ScriptException;
+
+/**
+ * A {@link MultiCommandInterface} that is evaluated from a {@link MultiResponse} built for each evaluation,
+ * instead of the responses stored with {@link MultiCommandInterface#setResponse(String, Response)}.
+ * <p>
+ * The {@link Service} use {@link #getResponse(MultiResponse)} for the commands that implement this interface,
+ * the other multi-commands are still evaluated with {@code setResponse} and {@code getResponse(byte[])}.
+ *
+ * @author MacFJA
+ */
+public interface SlottedMultiCommand extends MultiCommandInterface {
+    /**
+     * Get the response of the command based on the responses of its sub-commands.
+     * <p>
+     * The slot {@code i} of {@code responses} contains the response of the {@code i}th command of {@link #getCommands()}.
+     * A sub-response can be an {@link io.github.macfja.obd2.exception.ExceptionResponse}.
+     *
+     * @param responses The responses of every sub-command
+     * @return The response object
+     * @throws ScriptException If the response can't be calculated
+     */
+    Response getResponse(MultiResponse responses) throws ScriptException;
+}
@@ -0,0 +1,162 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+
+/**
+ * The last response of every scheduled command, at the end of a tick of the scheduler.
+ * <p>
+ * A snapshot is immutable. The commands are in the order of their first response,
+ * and only the commands that have been executed at least once are present.
+ * <p>
+ * A response counts as soon as it's received, whatever sent the command: the scheduler, or a call to
+ * {@link Service#run(Command)} between two ticks (its response is then flagged as updated in the next snapshot).
+ *
+ * @author MacFJA
+ * @see FrameObserver
+ */
+public class Snapshot {
+    private long time;
+    private int[] ids;
+    private Response[] responses;
+    private double[] values;
+    private long[] timestamps;
+    private boolean[] updated;
+
+    Snapshot(long time, int[] ids, Response[] responses, long[] timestamps, boolean[] updated) {
+        this.time = time;
+        this.ids = ids;
+        this.responses = responses;
+        this.timestamps = timestamps;
+        this.updated = updated;
+        values = new double[ids.length];
+        for (int index = 0; index < ids.length; index++) {
+            values[index] = ResponseValues.toDouble(responses[index]);
+        }
+    }
+
+    /**
+     * Get the time of the tick
+     *
+     * @return The time in milliseconds since epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the number of commands in the snapshot
+     *
+     * @return The number of commands
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Find the position of a command in the snapshot
+     *
+     * @param command The command
+     * @return The position, or {@code -1} if the command is not in the snapshot
+     */
+    public int indexOf(Command command) {
+        return indexOf(command.getRequest());
+    }
+
+    /**
+     * Find the position of a command in the snapshot
+     *
+     * @param request The request of the command (ex: {@code 010C})
+     * @return The position, or {@code -1} if the command is not in the snapshot
+     */
+    public int indexOf(String request) {
+        for (int index = 0; index < ids.length; index++) {
+            if (CommandId.request(ids[index]).equals(request)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the request of a command
+     *
+     * @param index The position of the command
+     * @return The request (ex: {@code 010C})
+     */
+    public String getRequest(int index) {
+        return CommandId.request(ids[index]);
+    }
+
+    /**
+     * Get the last response of a command
+     *
+     * @param index The position of the command
+     * @return The response, can be an {@link io.github.macfja.obd2.exception.ExceptionResponse}
+     */
+    public Response getResponse(int index) {
+        return responses[index];
+    }
+
+    /**
+     * Get the numeric value of the last response of a command
+     *
+     * @param index The position of the command
+     * @return The value, or {@link Double#NaN} if the response is an error or not a number
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Get the time of the last response of a command
+     *
+     * @param index The position of the command
+     * @return The time in milliseconds since epoch
+     */
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Check if a response of the command have been received since the previous tick
+     * (otherwise the response is the last known one)
+     *
+     * @param index The position of the command
+     * @return {@code true} if the response is new (from this tick, or from a {@link Service#run(Command)} since the previous one)
+     */
+    public boolean isUpdated(int index) {
+        return updated[index];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Snapshot{time=").append(time);
+        for (int index = 0; index < ids.length; index++) {
+            builder.append(", ").append(getRequest(index)).append('=').append(values[index]);
+            if (updated[index]) {
+                builder.append('*');
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The stages of the start of the {@link Service}, in order.
+ *
+ * @author MacFJA
+ * @see Obd2Service#onReady(StartupStage, Runnable)
+ */
+public enum StartupStage {
+    /**
+     * The communication streams are given to the commander, and the adapter is initialized
+     */
+    ADAPTER,
+    /**
+     * The first OBD request (supported PIDs {@code 0100}) have been sent, so the protocol of the vehicle is detected
+     */
+    PROTOCOL,
+    /**
+     * The VIN have been read (and the cached capabilities loaded), and the prefetch commands (DTCs, etc.) have been executed
+     */
+    PREFETCH
+}
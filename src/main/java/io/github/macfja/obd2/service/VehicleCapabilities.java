@@ -0,0 +1,211 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What have been discovered about a vehicle: the commands it supports and how fast it responds.
+ *
+ * @author MacFJA
+ * @see CapabilityCache
+ */
+public class VehicleCapabilities {
+    private static final Pattern VIN = Pattern.compile("[A-HJ-NPR-Z0-9]{17}");
+    private static final Pattern HEX_BYTE = Pattern.compile("\\b[0-9A-Fa-f]{2}\\b");
+
+    private String vin;
+    private String signature;
+    private Map<String, Boolean> supported = new HashMap<>();
+    private Map<String, Long> checkedAt = new HashMap<>();
+    private Map<String, Long> latencies = new HashMap<>();
+
+    /**
+     * Create empty capabilities
+     *
+     * @param vin The Vehicle Identification Number
+     */
+    public VehicleCapabilities(String vin) {
+        this.vin = vin;
+    }
+
+    /**
+     * Extract the VIN from the response of the command {@code 0902}
+     *
+     * @param response The response of the OBD
+     * @return The VIN, or {@code null} if the response doesn't contain a VIN
+     */
+    public static String parseVin(Response response) {
+        if (response == null || response.getRawResult() == null) {
+            return null;
+        }
+        String formatted = response.getFormattedString();
+        if (formatted != null) {
+            Matcher matcher = VIN.matcher(formatted.toUpperCase());
+            if (matcher.find()) {
+                return matcher.group();
+            }
+        }
+        // The raw result is made of hexadecimal bytes (with frame headers)
+        StringBuilder decoded = new StringBuilder();
+        Matcher matcher = HEX_BYTE.matcher(new String(response.getRawResult(), StandardCharsets.US_ASCII));
+        while (matcher.find()) {
+            decoded.append((char) Integer.parseInt(matcher.group(), 16));
+        }
+        matcher = VIN.matcher(decoded);
+        if (matcher.find()) {
+            return matcher.group();
+        }
+        return null;
+    }
+
+    /**
+     * Get the Vehicle Identification Number
+     *
+     * @return The VIN
+     */
+    public String getVin() {
+        return vin;
+    }
+
+    /**
+     * Get the signature of the vehicle: the response to the supported PIDs command ({@code 0100}).
+     * <p>
+     * If the signature changed (ECU replaced, reprogrammed, etc.) the capabilities are not valid anymore.
+     *
+     * @return The signature, or {@code null} if unknown
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Set the signature of the vehicle
+     *
+     * @param signature The signature
+     */
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    /**
+     * Indicate if the support of a command is known
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @return {@code true} if the command have been checked
+     */
+    public synchronized boolean isKnown(String request) {
+        return supported.containsKey(request);
+    }
+
+    /**
+     * Indicate if a command is supported
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @return {@code true} if the command is known to be supported
+     */
+    public synchronized boolean isSupported(String request) {
+        return Boolean.TRUE.equals(supported.get(request));
+    }
+
+    /**
+     * Record the support of a command
+     *
+     * @param request   The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param supported {@code true} if the command is supported
+     * @param now       The time (in milliseconds) of the check
+     */
+    public synchronized void setSupported(String request, boolean supported, long now) {
+        this.supported.put(request, supported);
+        checkedAt.put(request, now);
+    }
+
+    /**
+     * Indicate if the support of a command should be checked again
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param now     The current time (in milliseconds)
+     * @param maxAge  The time (in milliseconds) after which a check is too old
+     * @return {@code true} if the last check is older than {@code maxAge}
+     */
+    public synchronized boolean isStale(String request, long now, long maxAge) {
+        Long time = checkedAt.get(request);
+        return time == null || now - time > maxAge;
+    }
+
+    /**
+     * Get the time of the last check of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @return The time (in milliseconds), or {@code 0}
+     */
+    public synchronized long getCheckedAt(String request) {
+        Long time = checkedAt.get(request);
+        return time == null ? 0 : time;
+    }
+
+    /**
+     * Get the measured round-trip time of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @return The time (in nanoseconds), or {@code -1} if unknown
+     */
+    public synchronized long getLatency(String request) {
+        Long latency = latencies.get(request);
+        return latency == null ? -1 : latency;
+    }
+
+    /**
+     * Set the measured round-trip time of a command
+     *
+     * @param request The command code ({@link io.github.macfja.obd2.Command#getRequest()})
+     * @param nanos   The time (in nanoseconds)
+     */
+    public synchronized void setLatency(String request, long nanos) {
+        latencies.put(request, nanos);
+    }
+
+    /**
+     * Get every command that have been checked
+     *
+     * @return The command codes
+     */
+    public synchronized Set<String> getKnownRequests() {
+        return Collections.unmodifiableSet(new HashSet<>(supported.keySet()));
+    }
+
+    /**
+     * Get every command that have a measured round-trip time
+     *
+     * @return The command codes
+     */
+    public synchronized Set<String> getMeasuredRequests() {
+        return Collections.unmodifiableSet(new HashSet<>(latencies.keySet()));
+    }
+}
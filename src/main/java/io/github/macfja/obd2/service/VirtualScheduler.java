@@ -0,0 +1,175 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * A {@link Scheduler} with a virtual time, that only move forward when asked to.
+ * <p>
+ * Every task run in the thread that call {@link #advance(long)}, in a deterministic order:
+ * tests don't need to sleep, and hours of polling can be simulated in a few milliseconds.
+ * A simulated adapter can add its latency with {@link #sleep(long)} while answering a command.
+ *
+ * @author MacFJA
+ */
+public class VirtualScheduler implements Scheduler {
+    private long nanos;
+    private List<VirtualTask> tasks = new ArrayList<>();
+    private Queue<Runnable> pending = new ArrayDeque<>();
+
+    /**
+     * Create a scheduler starting at the epoch
+     */
+    public VirtualScheduler() {
+        this(0);
+    }
+
+    /**
+     * Create a scheduler starting at a given time
+     *
+     * @param start The initial time in milliseconds since epoch
+     */
+    public VirtualScheduler(long start) {
+        nanos = start * 1000000;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return nanos / 1000000;
+    }
+
+    @Override
+    public synchronized long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public synchronized Task schedule(Runnable task, long delay, long period) {
+        VirtualTask virtualTask = new VirtualTask(task, currentTimeMillis() + delay, period);
+        tasks.add(virtualTask);
+        return virtualTask;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        pending.offer(task);
+    }
+
+    /**
+     * Move the time forward without running any task (for example to simulate the latency of an adapter)
+     *
+     * @param millis The time to add (in milliseconds)
+     */
+    public synchronized void sleep(long millis) {
+        nanos += millis * 1000000;
+    }
+
+    /**
+     * Move the time forward, and run every task that is due on the way (in the calling thread)
+     *
+     * @param millis The time to add (in milliseconds)
+     */
+    public void advance(long millis) {
+        long target = currentTimeMillis() + millis;
+        runPending();
+        VirtualTask next;
+        while ((next = nextTask(target)) != null) {
+            next.runAt(currentTimeMillis());
+            runPending();
+        }
+        synchronized (this) {
+            if (nanos < target * 1000000) {
+                nanos = target * 1000000;
+            }
+        }
+    }
+
+    /**
+     * Run the tasks given to {@link #execute(Runnable)}, at the current time
+     */
+    public void runPending() {
+        Runnable task;
+        while ((task = pollPending()) != null) {
+            task.run();
+        }
+    }
+
+    private synchronized Runnable pollPending() {
+        return pending.poll();
+    }
+
+    /**
+     * Find the first task due before a time, and move the time to it
+     *
+     * @param target The time limit (in milliseconds)
+     * @return The task, or {@code null} if no task is due before the limit
+     */
+    private synchronized VirtualTask nextTask(long target) {
+        VirtualTask next = null;
+        for (int index = 0; index < tasks.size(); index++) {
+            VirtualTask task = tasks.get(index);
+            if (next == null || task.next < next.next) {
+                next = task;
+            }
+        }
+        if (next == null || next.next > target) {
+            return null;
+        }
+        if (nanos < next.next * 1000000) {
+            nanos = next.next * 1000000;
+        }
+        return next;
+    }
+
+    private synchronized void remove(VirtualTask task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * A repeated task (the first registered run first when two tasks are due at the same time)
+     */
+    private class VirtualTask implements Task {
+        private Runnable task;
+        private long next;
+        private long period;
+
+        VirtualTask(Runnable task, long next, long period) {
+            this.task = task;
+            this.next = next;
+            this.period = period;
+        }
+
+        void runAt(long now) {
+            synchronized (VirtualScheduler.this) {
+                next = now + period;
+            }
+            task.run();
+        }
+
+        @Override
+        public void cancel() {
+            remove(this);
+        }
+    }
+}
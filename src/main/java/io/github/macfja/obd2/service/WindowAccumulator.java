@@ -0,0 +1,93 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The running aggregates of the values of a command (no allocation).
+ *
+ * @author MacFJA
+ */
+class WindowAccumulator {
+    long count;
+    long errors;
+    double min;
+    double max;
+    double sum;
+    double last;
+    long lastTime;
+
+    WindowAccumulator() {
+        clear();
+    }
+
+    /**
+     * Add a value
+     *
+     * @param value The value ({@link Double#NaN} values are ignored)
+     * @param error If the response was an error
+     * @param time  The time of the value
+     */
+    void add(double value, boolean error, long time) {
+        if (error) {
+            errors++;
+            return;
+        }
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        last = value;
+        lastTime = time;
+    }
+
+    /**
+     * Add the values of another accumulator
+     *
+     * @param other The other accumulator
+     */
+    void merge(WindowAccumulator other) {
+        count += other.count;
+        errors += other.errors;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.count > 0 && other.lastTime >= lastTime) {
+            last = other.last;
+            lastTime = other.lastTime;
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0 && errors == 0;
+    }
+
+    void clear() {
+        count = 0;
+        errors = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        sum = 0;
+        last = Double.NaN;
+        lastTime = Long.MIN_VALUE;
+    }
+}
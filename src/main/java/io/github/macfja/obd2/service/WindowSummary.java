@@ -0,0 +1,165 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service;
+
+/**
+ * The min, max, mean and last value of a command during a window of time.
+ *
+ * @author MacFJA
+ */
+public class WindowSummary {
+    private String request;
+    private long start;
+    private long end;
+    private long count;
+    private long errors;
+    private double min;
+    private double max;
+    private double sum;
+    private double last;
+
+    WindowSummary(String request, long start, long end, WindowAccumulator accumulator) {
+        this(request, start, end, accumulator.count, accumulator.errors, accumulator.min, accumulator.max,
+                accumulator.sum, accumulator.last);
+    }
+
+    private WindowSummary(String request, long start, long end, long count, long errors, double min, double max,
+                          double sum, double last) {
+        this.request = request;
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.errors = errors;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.last = last;
+    }
+
+    /**
+     * Merge two summaries of the same command (for example two consecutive windows)
+     *
+     * @param other The other summary
+     * @return A summary that cover both windows
+     */
+    public WindowSummary merge(WindowSummary other) {
+        WindowSummary first = start <= other.start ? this : other;
+        WindowSummary second = first == this ? other : this;
+        return new WindowSummary(
+                request,
+                first.start,
+                Math.max(first.end, second.end),
+                count + other.count,
+                errors + other.errors,
+                Math.min(min, other.min),
+                Math.max(max, other.max),
+                sum + other.sum,
+                second.count > 0 ? second.last : first.last
+        );
+    }
+
+    /**
+     * Get the request of the command (see {@link io.github.macfja.obd2.Command#getRequest()})
+     *
+     * @return The request
+     */
+    public String getRequest() {
+        return request;
+    }
+
+    /**
+     * Get the beginning of the window
+     *
+     * @return The time in milliseconds since epoch (included)
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * Get the end of the window
+     *
+     * @return The time in milliseconds since epoch (excluded)
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Get the number of numeric values in the window
+     *
+     * @return The number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of errors in the window
+     *
+     * @return The number of errors
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Get the smallest value
+     *
+     * @return The value, or {@link Double#NaN} if there is no value
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Get the biggest value
+     *
+     * @return The value, or {@link Double#NaN} if there is no value
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Get the average value
+     *
+     * @return The value, or {@link Double#NaN} if there is no value
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Get the most recent value
+     *
+     * @return The value, or {@link Double#NaN} if there is no value
+     */
+    public double getLast() {
+        return last;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowSummary{request='" + request + "', start=" + start + ", end=" + end + ", count=" + count
+                + ", errors=" + errors + ", min=" + getMin() + ", max=" + getMax() + ", mean=" + getMean()
+                + ", last=" + last + '}';
+    }
+}
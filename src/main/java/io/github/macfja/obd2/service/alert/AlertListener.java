@@ -0,0 +1,47 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.alert;
+
+/**
+ * Receive the alerts of a {@link RuleEngine}.
+ * <p>
+ * The methods are called one at a time, in the order of the alerts, outside of the thread that poll the OBD.
+ *
+ * @author MacFJA
+ */
+public interface AlertListener {
+    /**
+     * The action to do when an alert is raised
+     *
+     * @param rule  The rule of the alert
+     * @param value The value that raised the alert (or its rate of change)
+     * @param time  The time of the value (in milliseconds)
+     */
+    void raised(Rule rule, double value, long time);
+
+    /**
+     * The action to do when an alert is cleared
+     *
+     * @param rule  The rule of the alert
+     * @param value The value that cleared the alert (or its rate of change)
+     * @param time  The time of the value (in milliseconds)
+     */
+    void cleared(Rule rule, double value, long time);
+}
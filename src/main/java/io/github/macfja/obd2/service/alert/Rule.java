@@ -0,0 +1,202 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.alert;
+
+import io.github.macfja.obd2.Command;
+
+/**
+ * A threshold alert on the value of a command.
+ * <p>
+ * The alert is raised when the value cross the threshold, and cleared when it come back:
+ * <ul>
+ * <li>{@link #setHysteresis(double)}: the value must come back past the threshold by this much to clear the alert
+ * (a value oscillating around the threshold doesn't raise and clear the alert again and again)</li>
+ * <li>{@link #setDuration(long)}: the threshold must be crossed for this time before the alert is raised</li>
+ * <li>{@link #setRateOfChange(boolean)}: the threshold apply to the change of the value per second,
+ * instead of the value itself</li>
+ * </ul>
+ * The value is read with {@link io.github.macfja.obd2.service.ResponseValues#toDouble(io.github.macfja.obd2.Response)},
+ * errors are ignored.
+ *
+ * @author MacFJA
+ */
+public class Rule {
+    private final String name;
+    private final Command command;
+    private final boolean above;
+    private final double threshold;
+    private double hysteresis = 0;
+    private long duration = 0;
+    private boolean rateOfChange = false;
+
+    /**
+     * Class constructor.
+     *
+     * @param name      The name of the alert
+     * @param command   The command to watch
+     * @param above     {@code true} if the alert is raised above the threshold, {@code false} below
+     * @param threshold The threshold (in the unit of the command)
+     */
+    public Rule(String name, Command command, boolean above, double threshold) {
+        this.name = name;
+        this.command = command;
+        this.above = above;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Create a rule raised when the value is above a threshold
+     *
+     * @param name      The name of the alert
+     * @param command   The command to watch
+     * @param threshold The threshold (in the unit of the command)
+     * @return The rule
+     */
+    public static Rule above(String name, Command command, double threshold) {
+        return new Rule(name, command, true, threshold);
+    }
+
+    /**
+     * Create a rule raised when the value is below a threshold
+     *
+     * @param name      The name of the alert
+     * @param command   The command to watch
+     * @param threshold The threshold (in the unit of the command)
+     * @return The rule
+     */
+    public static Rule below(String name, Command command, double threshold) {
+        return new Rule(name, command, false, threshold);
+    }
+
+    /**
+     * Check if a value cross the threshold
+     *
+     * @param value The value (or its rate of change)
+     * @return {@code true} if the alert must be raised
+     */
+    boolean isCrossed(double value) {
+        return above ? value > threshold : value < threshold;
+    }
+
+    /**
+     * Check if a value come back enough to clear the alert
+     *
+     * @param value The value (or its rate of change)
+     * @return {@code true} if the alert must be cleared
+     */
+    boolean isCleared(double value) {
+        return above ? value <= threshold - hysteresis : value >= threshold + hysteresis;
+    }
+
+    /**
+     * Get the name of the alert
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the command watched
+     *
+     * @return The command
+     */
+    public Command getCommand() {
+        return command;
+    }
+
+    /**
+     * Check if the alert is raised above the threshold
+     *
+     * @return {@code true} above the threshold, {@code false} below
+     */
+    public boolean isAbove() {
+        return above;
+    }
+
+    /**
+     * Get the threshold of the alert
+     *
+     * @return The threshold (in the unit of the command, or per second)
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Get how much the value must come back past the threshold to clear the alert
+     *
+     * @return The hysteresis (in the unit of the threshold)
+     */
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * Set how much the value must come back past the threshold to clear the alert
+     *
+     * @param hysteresis The hysteresis (in the unit of the threshold), {@code 0} to clear as soon as it's not crossed
+     */
+    public void setHysteresis(double hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Get the time the threshold must be crossed before the alert is raised
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Set the time the threshold must be crossed before the alert is raised
+     *
+     * @param duration The time (in milliseconds), {@code 0} to raise the alert on the first value
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Check if the threshold apply to the change of the value per second
+     *
+     * @return {@code true} if the rate of change is compared
+     */
+    public boolean isRateOfChange() {
+        return rateOfChange;
+    }
+
+    /**
+     * Set if the threshold apply to the change of the value per second
+     *
+     * @param rateOfChange {@code true} to compare the rate of change
+     */
+    public void setRateOfChange(boolean rateOfChange) {
+        this.rateOfChange = rateOfChange;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.alert;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.service.CommandId;
+import io.github.macfja.obd2.service.Obd2Service;
+import io.github.macfja.obd2.service.ObdObserverIgnoreError;
+import io.github.macfja.obd2.service.ResponseValues;
+import io.github.macfja.obd2.service.Scheduler;
+import io.github.macfja.obd2.service.Service;
+import io.github.macfja.obd2.service.SystemScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Evaluate threshold alerts ({@link Rule}) on the responses of a service.
+ * <p>
+ * The rules are grouped by command: one observer is added to the service for every watched command,
+ * and a response only evaluate the rules of its command (in the thread that poll the OBD, without any parsing of
+ * the formatted string when the response is a calculated one).
+ * The alerts are sent to the {@link AlertListener}s in another thread (with {@link Scheduler#execute(Runnable)}),
+ * one at a time, so a slow listener never slow down the polling.
+ * <p>
+ * The engine doesn't schedule the commands, they must be scheduled on the service.
+ *
+ * @author MacFJA
+ */
+public class RuleEngine implements Closeable {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final Obd2Service service;
+    private final Scheduler scheduler;
+    private final Map<Integer, CommandRules> rules = new HashMap<>();
+    private final List<AlertListener> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<Alert> alerts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private boolean started = false;
+
+    private final Runnable dispatcher = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    /**
+     * Class constructor.
+     * <p>
+     * The engine use the scheduler of the {@link Service} (its clock and its threads),
+     * or a new {@link SystemScheduler} for other implementations.
+     *
+     * @param service The service to read the responses from
+     */
+    public RuleEngine(Obd2Service service) {
+        this(service, service instanceof Service ? ((Service) service).getScheduler() : new SystemScheduler());
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param service   The service to read the responses from
+     * @param scheduler The source of time of the rules, and the executor of the listeners
+     */
+    public RuleEngine(Obd2Service service, Scheduler scheduler) {
+        this.service = service;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add a rule (evaluated from the next response of its command)
+     *
+     * @param rule The rule to add
+     */
+    public synchronized void add(Rule rule) {
+        int id = CommandId.of(rule.getCommand());
+        CommandRules commandRules = rules.get(id);
+        if (commandRules == null) {
+            commandRules = new CommandRules();
+            rules.put(id, commandRules);
+            if (started) {
+                service.addObserver(rule.getCommand(), commandRules);
+            }
+        }
+        commandRules.add(new RuleState(rule));
+    }
+
+    /**
+     * Remove a rule (its alert is not cleared)
+     *
+     * @param rule The rule to remove
+     */
+    public synchronized void remove(Rule rule) {
+        int id = CommandId.of(rule.getCommand());
+        CommandRules commandRules = rules.get(id);
+        if (commandRules != null && commandRules.remove(rule) == 0) {
+            rules.remove(id);
+            service.removeObserver(commandRules);
+        }
+    }
+
+    /**
+     * Check if the alert of a rule is raised
+     *
+     * @param rule The rule
+     * @return {@code true} if the alert is raised
+     */
+    public synchronized boolean isRaised(Rule rule) {
+        CommandRules commandRules = rules.get(CommandId.of(rule.getCommand()));
+        return commandRules != null && commandRules.isRaised(rule);
+    }
+
+    /**
+     * Add a listener of the alerts
+     *
+     * @param listener The listener
+     */
+    public void addListener(AlertListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener of the alerts
+     *
+     * @param listener The listener
+     */
+    public void removeListener(AlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start to evaluate the rules
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (CommandRules commandRules : rules.values()) {
+            service.addObserver(commandRules.getCommand(), commandRules);
+        }
+    }
+
+    /**
+     * Stop to evaluate the rules
+     */
+    @Override
+    public synchronized void close() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        for (CommandRules commandRules : rules.values()) {
+            service.removeObserver(commandRules);
+        }
+    }
+
+    /**
+     * Queue an alert, and make sure the listeners will receive it
+     *
+     * @param alert The alert
+     */
+    private void publish(Alert alert) {
+        alerts.offer(alert);
+        if (dispatching.compareAndSet(false, true)) {
+            scheduler.execute(dispatcher);
+        }
+    }
+
+    /**
+     * Send the queued alerts to the listeners (only one dispatch run at a time)
+     */
+    private void dispatch() {
+        do {
+            for (Alert alert = alerts.poll(); alert != null; alert = alerts.poll()) {
+                for (AlertListener listener : listeners) {
+                    try {
+                        if (alert.raised) {
+                            listener.raised(alert.rule, alert.value, alert.time);
+                        } else {
+                            listener.cleared(alert.rule, alert.value, alert.time);
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("The listener of the alert '{}' failed", alert.rule, e);
+                    }
+                }
+            }
+            dispatching.set(false);
+            // An alert can be queued after the last poll, but before the flag is reset
+        } while (!alerts.isEmpty() && dispatching.compareAndSet(false, true));
+    }
+
+    /**
+     * The evaluation list of a command: the states of the rules that watch it
+     */
+    private class CommandRules extends ObdObserverIgnoreError {
+        private volatile RuleState[] states = new RuleState[0];
+
+        Command getCommand() {
+            return states[0].getRule().getCommand();
+        }
+
+        synchronized void add(RuleState state) {
+            RuleState[] copy = Arrays.copyOf(states, states.length + 1);
+            copy[states.length] = state;
+            states = copy;
+        }
+
+        /**
+         * Remove the state of a rule
+         *
+         * @param rule The rule
+         * @return The number of remaining rules
+         */
+        synchronized int remove(Rule rule) {
+            RuleState[] copy = new RuleState[states.length];
+            int size = 0;
+            for (RuleState state : states) {
+                if (state.getRule() != rule) {
+                    copy[size++] = state;
+                }
+            }
+            states = Arrays.copyOf(copy, size);
+            return size;
+        }
+
+        synchronized boolean isRaised(Rule rule) {
+            for (RuleState state : states) {
+                if (state.getRule() == rule) {
+                    return state.isRaised();
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized void update(Response response) {
+            double value = ResponseValues.toDouble(response);
+            long now = scheduler.currentTimeMillis();
+            RuleState[] current = states;
+            for (RuleState state : current) {
+                int change = state.evaluate(value, now);
+                if (change != RuleState.NONE) {
+                    publish(new Alert(state.getRule(), change == RuleState.RAISED, state.getSignal(), now));
+                }
+            }
+        }
+    }
+
+    /**
+     * A raised or cleared alert, waiting to be sent to the listeners
+     */
+    private static class Alert {
+        private final Rule rule;
+        private final boolean raised;
+        private final double value;
+        private final long time;
+
+        Alert(Rule rule, boolean raised, double value, long time) {
+            this.rule = rule;
+            this.raised = raised;
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
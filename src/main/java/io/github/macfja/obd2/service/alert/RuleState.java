@@ -0,0 +1,106 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.alert;
+
+/**
+ * The state of a {@link Rule}: if its alert is raised, and since when its threshold is crossed.
+ * <p>
+ * Only used by the thread that poll the OBD.
+ *
+ * @author MacFJA
+ */
+class RuleState {
+    static final int NONE = 0;
+    static final int RAISED = 1;
+    static final int CLEARED = -1;
+
+    private final Rule rule;
+    private boolean raised = false;
+    private long crossedSince = -1;
+    private double lastValue = Double.NaN;
+    private long lastTime = -1;
+    private double signal = Double.NaN;
+
+    RuleState(Rule rule) {
+        this.rule = rule;
+    }
+
+    Rule getRule() {
+        return rule;
+    }
+
+    boolean isRaised() {
+        return raised;
+    }
+
+    /**
+     * Get the value compared by the last evaluation
+     *
+     * @return The value or its rate of change
+     */
+    double getSignal() {
+        return signal;
+    }
+
+    /**
+     * Evaluate the rule with a new value
+     *
+     * @param value The value of the command
+     * @param now   The current time (in milliseconds)
+     * @return {@link #RAISED} or {@link #CLEARED} if the alert changed, {@link #NONE} otherwise
+     */
+    int evaluate(double value, long now) {
+        if (Double.isNaN(value)) {
+            return NONE;
+        }
+        signal = value;
+        if (rule.isRateOfChange()) {
+            double previous = lastValue;
+            long elapsed = now - lastTime;
+            lastValue = value;
+            lastTime = now;
+            if (Double.isNaN(previous) || elapsed <= 0) {
+                return NONE;
+            }
+            signal = (value - previous) * 1000 / elapsed;
+        }
+
+        if (raised) {
+            if (rule.isCleared(signal)) {
+                raised = false;
+                crossedSince = -1;
+                return CLEARED;
+            }
+            return NONE;
+        }
+        if (!rule.isCrossed(signal)) {
+            crossedSince = -1;
+            return NONE;
+        }
+        if (crossedSince < 0) {
+            crossedSince = now;
+        }
+        if (now - crossedSince >= rule.getDuration()) {
+            raised = true;
+            return RAISED;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.export;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Write {@link SampleBatch} into files, with a rollover based on the size and the age of the file.
+ *
+ * @author MacFJA
+ */
+public abstract class BatchWriter implements Closeable {
+    private File directory;
+    private String prefix;
+    private long maxBytes = 64L * 1024 * 1024;
+    private long maxAge = 3600L * 1000;
+
+    private DataOutputStream output;
+    private File file;
+    private long openedAt;
+
+    /**
+     * Class constructor.
+     *
+     * @param directory The directory where the files are created
+     * @param prefix    The beginning of the name of the files
+     */
+    public BatchWriter(File directory, String prefix) {
+        this.directory = directory;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Write a batch (a new file is started if the current one is too big or too old)
+     *
+     * @param batch The batch to write
+     * @throws IOException If the file can't be written
+     */
+    public synchronized void write(SampleBatch batch) throws IOException {
+        if (batch.getRowCount() == 0) {
+            return;
+        }
+        if (output != null && (output.size() >= maxBytes || System.currentTimeMillis() - openedAt >= maxAge)) {
+            close();
+        }
+        if (output == null) {
+            open(batch);
+        }
+        writeBatch(batch, output);
+        output.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } finally {
+            output = null;
+        }
+    }
+
+    /**
+     * Get the file currently written
+     *
+     * @return The file, or {@code null} if no file is open
+     */
+    public synchronized File getFile() {
+        return output == null ? null : file;
+    }
+
+    private void open(SampleBatch batch) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(String.format("Unable to create the directory %s", directory));
+        }
+        String name = prefix + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+        file = new File(directory, name + "." + getExtension());
+        for (int index = 1; file.exists(); index++) {
+            file = new File(directory, name + "-" + index + "." + getExtension());
+        }
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        openedAt = System.currentTimeMillis();
+        writeHeader(batch, output);
+    }
+
+    /**
+     * Get the extension of the files
+     *
+     * @return The extension (without the dot)
+     */
+    protected abstract String getExtension();
+
+    /**
+     * Write the beginning of a new file
+     *
+     * @param batch  The first batch that will be written in the file (to get the columns)
+     * @param output The file stream
+     * @throws IOException If the file can't be written
+     */
+    protected abstract void writeHeader(SampleBatch batch, DataOutputStream output) throws IOException;
+
+    /**
+     * Write the rows of a batch
+     *
+     * @param batch  The batch to write
+     * @param output The file stream
+     * @throws IOException If the file can't be written
+     */
+    protected abstract void writeBatch(SampleBatch batch, DataOutputStream output) throws IOException;
+
+    /**
+     * Get the size (in bytes) after which a new file is started
+     *
+     * @return The size in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the size (in bytes) after which a new file is started
+     *
+     * @param maxBytes The size in bytes
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the time (in milliseconds) after which a new file is started
+     *
+     * @return The time in milliseconds
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Set the time (in milliseconds) after which a new file is started
+     *
+     * @param maxAge The time in milliseconds
+     */
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.export;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Write the samples in a compact binary columnar format ({@code .obdc} files).
+ * <p>
+ * Layout (big-endian, as written by {@link DataOutputStream}):<ul>
+ * <li>Header: the magic {@code "OBDC"} (4 bytes), the version (short, {@code 1}), the number of columns (int),
+ * then the name of each column (modified UTF-8, see {@link DataOutputStream#writeUTF(String)})</li>
+ * <li>Then one block per batch: the number of rows (int), the timestamps (long per row, in milliseconds),
+ * then for each column its values (double per row, {@code NaN} if missing)</li></ul>
+ * Each column of a block is contiguous, so it can be loaded with a single read.
+ *
+ * @author MacFJA
+ */
+public class ColumnarBatchWriter extends BatchWriter {
+    /**
+     * The first bytes of the files
+     */
+    public static final byte[] MAGIC = {'O', 'B', 'D', 'C'};
+    /**
+     * The version of the format
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Class constructor.
+     *
+     * @param directory The directory where the files are created
+     * @param prefix    The beginning of the name of the files
+     */
+    public ColumnarBatchWriter(File directory, String prefix) {
+        super(directory, prefix);
+    }
+
+    @Override
+    protected String getExtension() {
+        return "obdc";
+    }
+
+    @Override
+    protected void writeHeader(SampleBatch batch, DataOutputStream output) throws IOException {
+        output.write(MAGIC);
+        output.writeShort(VERSION);
+        output.writeInt(batch.getColumnCount());
+        for (int column = 0; column < batch.getColumnCount(); column++) {
+            output.writeUTF(batch.getColumnName(column));
+        }
+    }
+
+    @Override
+    protected void writeBatch(SampleBatch batch, DataOutputStream output) throws IOException {
+        output.writeInt(batch.getRowCount());
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            output.writeLong(batch.getTimestamp(row));
+        }
+        for (int column = 0; column < batch.getColumnCount(); column++) {
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                output.writeDouble(batch.getValue(column, row));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.export;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Write the samples in CSV files.
+ * <p>
+ * The first column is the timestamp (in milliseconds), followed by one column per command.
+ * A missing value is an empty cell.
+ *
+ * @author MacFJA
+ */
+public class CsvBatchWriter extends BatchWriter {
+    /**
+     * Class constructor.
+     *
+     * @param directory The directory where the files are created
+     * @param prefix    The beginning of the name of the files
+     */
+    public CsvBatchWriter(File directory, String prefix) {
+        super(directory, prefix);
+    }
+
+    @Override
+    protected String getExtension() {
+        return "csv";
+    }
+
+    @Override
+    protected void writeHeader(SampleBatch batch, DataOutputStream output) throws IOException {
+        StringBuilder header = new StringBuilder("timestamp");
+        for (int column = 0; column < batch.getColumnCount(); column++) {
+            header.append(',').append(batch.getColumnName(column));
+        }
+        header.append('\n');
+        output.write(header.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void writeBatch(SampleBatch batch, DataOutputStream output) throws IOException {
+        StringBuilder rows = new StringBuilder(batch.getRowCount() * (14 + batch.getColumnCount() * 8));
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            rows.append(batch.getTimestamp(row));
+            for (int column = 0; column < batch.getColumnCount(); column++) {
+                rows.append(',');
+                double value = batch.getValue(column, row);
+                if (!Double.isNaN(value)) {
+                    rows.append(value);
+                }
+            }
+            rows.append('\n');
+        }
+        output.write(rows.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
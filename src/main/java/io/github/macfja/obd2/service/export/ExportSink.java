@@ -0,0 +1,275 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.export;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.service.Obd2Service;
+import io.github.macfja.obd2.service.ObdObserver;
+import io.github.macfja.obd2.service.ObdObserverIgnoreError;
+import io.github.macfja.obd2.service.ResponseValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export the values of some commands, in batches, with a {@link BatchWriter}.
+ * <p>
+ * Samples are buffered in a {@link SampleBatch} (on the thread of the service, without any I/O).
+ * Full batches (or batches older than {@link #getFlushInterval()}) are written in a separate thread,
+ * so the export never slow down the polling of the OBD.
+ *
+ * @author MacFJA
+ */
+public class ExportSink implements Closeable {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private Obd2Service service;
+    private List<? extends Command> commands;
+    private String[] columns;
+    private BatchWriter writer;
+    private List<ObdObserver> observers = new ArrayList<>();
+
+    private int batchSize = 512;
+    private long flushInterval = 10000;
+    private long coalesceWindow = 500;
+
+    private SampleBatch batch;
+    private Queue<SampleBatch> freeBatches = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService executor;
+    private volatile long writtenRows = 0;
+
+    /**
+     * Class constructor.
+     *
+     * @param service  The service to read the values from
+     * @param commands The commands to export (one column each)
+     * @param writer   The writer of the batches
+     */
+    public ExportSink(Obd2Service service, List<? extends Command> commands, BatchWriter writer) {
+        this.service = service;
+        this.commands = commands;
+        this.writer = writer;
+        columns = new String[commands.size()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = commands.get(column).getRequest();
+        }
+    }
+
+    /**
+     * Start to observe the commands (they are not scheduled by the sink)
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        batch = newBatch();
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "obd2-export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushIfOld(System.currentTimeMillis());
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+
+        for (int column = 0; column < columns.length; column++) {
+            ObdObserver observer = new ColumnObserver(column);
+            observers.add(observer);
+            service.addObserver(commands.get(column), observer);
+        }
+    }
+
+    /**
+     * Write the current batch (in background), even if it's not full
+     */
+    public synchronized void flush() {
+        if (executor == null || batch.getRowCount() == 0) {
+            return;
+        }
+        final SampleBatch full = batch;
+        batch = newBatch();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.write(full);
+                    writtenRows += full.getRowCount();
+                } catch (IOException e) {
+                    logger.warn("Unable to export {} sample(s): {}", full.getRowCount(), e.getLocalizedMessage());
+                }
+                full.clear();
+                freeBatches.offer(full);
+            }
+        });
+    }
+
+    /**
+     * Stop to observe the commands, write the remaining samples and close the writer
+     *
+     * @throws IOException If the writer can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            if (executor == null) {
+                return;
+            }
+            for (ObdObserver observer : observers) {
+                service.removeObserver(observer);
+            }
+            observers.clear();
+            flush();
+            current = executor;
+            executor = null;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+
+    /**
+     * Add a sample to the current batch
+     *
+     * @param column The column of the command
+     * @param value  The value
+     */
+    private synchronized void record(int column, double value) {
+        if (executor == null || Double.isNaN(value)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!batch.add(column, now, value, coalesceWindow)) {
+            flush();
+            batch.add(column, now, value, coalesceWindow);
+        }
+        flushIfOld(now);
+    }
+
+    private synchronized void flushIfOld(long now) {
+        if (batch != null && batch.getRowCount() > 0 && now - batch.getFirstTimestamp() >= flushInterval) {
+            flush();
+        }
+    }
+
+    private SampleBatch newBatch() {
+        SampleBatch free = freeBatches.poll();
+        return free == null ? new SampleBatch(columns, batchSize) : free;
+    }
+
+    /**
+     * Get the number of rows written so far
+     *
+     * @return The number of rows
+     */
+    public long getWrittenRows() {
+        return writtenRows;
+    }
+
+    /**
+     * Get the maximum number of rows of a batch
+     *
+     * @return The number of rows
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the maximum number of rows of a batch (must be set before {@link #start()})
+     *
+     * @param batchSize The number of rows
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Get the maximum time (in milliseconds) a sample stay in memory before being written
+     *
+     * @return The time in milliseconds
+     */
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Set the maximum time (in milliseconds) a sample stay in memory before being written (must be set before {@link #start()})
+     *
+     * @param flushInterval The time in milliseconds
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Get the time (in milliseconds) during which samples of different commands share the same row
+     *
+     * @return The time in milliseconds
+     */
+    public long getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    /**
+     * Set the time (in milliseconds) during which samples of different commands share the same row
+     *
+     * @param coalesceWindow The time in milliseconds
+     */
+    public void setCoalesceWindow(long coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    /**
+     * Observer of one column
+     */
+    private class ColumnObserver extends ObdObserverIgnoreError {
+        private int column;
+
+        ColumnObserver(int column) {
+            this.column = column;
+        }
+
+        @Override
+        public void update(Response response) {
+            record(column, ResponseValues.toDouble(response));
+        }
+    }
+}
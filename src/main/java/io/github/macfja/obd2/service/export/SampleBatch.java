@@ -0,0 +1,148 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.export;
+
+import java.util.Arrays;
+
+/**
+ * A batch of samples stored by columns: one column of timestamps, and one column of values per command.
+ * <p>
+ * A row is a point in time: samples received close to each other (see {@link ExportSink#setCoalesceWindow(long)})
+ * share the same row. A missing value is {@link Double#NaN}.
+ *
+ * @author MacFJA
+ */
+public class SampleBatch {
+    private String[] columns;
+    private long[] timestamps;
+    private double[][] values;
+    private int rows = 0;
+
+    /**
+     * Class constructor.
+     *
+     * @param columns  The name of every value column
+     * @param capacity The maximum number of rows
+     */
+    public SampleBatch(String[] columns, int capacity) {
+        this.columns = columns;
+        timestamps = new long[capacity];
+        values = new double[columns.length][capacity];
+    }
+
+    /**
+     * Add a sample.
+     * <p>
+     * The sample is added to the last row if the value of the column is missing
+     * and the row is less than {@code coalesceWindow} old, otherwise a new row is created.
+     *
+     * @param column         The column of the sample
+     * @param timestamp      The time of the sample (in milliseconds)
+     * @param value          The value of the sample
+     * @param coalesceWindow The time (in milliseconds) during which samples share the same row
+     * @return {@code false} if the batch is full
+     */
+    public boolean add(int column, long timestamp, double value, long coalesceWindow) {
+        if (rows > 0 && Double.isNaN(values[column][rows - 1]) && timestamp - timestamps[rows - 1] < coalesceWindow) {
+            values[column][rows - 1] = value;
+            return true;
+        }
+        if (rows == timestamps.length) {
+            return false;
+        }
+        timestamps[rows] = timestamp;
+        for (double[] columnValues : values) {
+            columnValues[rows] = Double.NaN;
+        }
+        values[column][rows] = value;
+        rows++;
+        return true;
+    }
+
+    /**
+     * Remove every row
+     */
+    public void clear() {
+        rows = 0;
+    }
+
+    /**
+     * Get the number of rows
+     *
+     * @return The number of rows
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Get the number of value columns
+     *
+     * @return The number of columns (without the timestamp column)
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Get the name of a value column
+     *
+     * @param column The position of the column
+     * @return The name (the command code)
+     */
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    /**
+     * Get the timestamp of a row
+     *
+     * @param row The position of the row
+     * @return The time (in milliseconds)
+     */
+    public long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Get the time of the first row
+     *
+     * @return The time (in milliseconds), or {@code -1} if the batch is empty
+     */
+    public long getFirstTimestamp() {
+        return rows == 0 ? -1 : timestamps[0];
+    }
+
+    /**
+     * Get a value
+     *
+     * @param column The position of the column
+     * @param row    The position of the row
+     * @return The value, or {@link Double#NaN} if missing
+     */
+    public double getValue(int column, int row) {
+        return values[column][row];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SampleBatch%s: %d row(s)", Arrays.toString(columns), rows);
+    }
+}
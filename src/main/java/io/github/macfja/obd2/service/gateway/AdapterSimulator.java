@@ -0,0 +1,268 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.gateway;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local simulation of an ELM327 adapter connected to a vehicle, to test a {@link FleetGateway} without vehicles.
+ * <p>
+ * The requests written to {@link #getToAdapter()} are answered in {@link #getFromAdapter()} after the simulated latency.
+ * The writer doesn't wait: the response is queued, and the reader wait in {@code read()} until it's released,
+ * as with a real adapter. The requests are handled one after the other:
+ * <ul>
+ * <li>the AT commands that change the echo, the spaces and the headers are applied, the other are accepted</li>
+ * <li>the mode 01 PIDs respond with 2 changing bytes, without a response count hint the adapter wait
+ * {@link #getEcuTimeout()} more, as a real adapter waiting for other ECUs</li>
+ * <li>any other request respond {@code NO DATA}</li>
+ * </ul>
+ *
+ * @author MacFJA
+ */
+public class AdapterSimulator {
+    private final long latency;
+    private long ecuTimeout = 50;
+    private boolean echo = true;
+    private boolean spaces = true;
+    private int counter = 0;
+
+    private final ByteArrayOutputStream request = new ByteArrayOutputStream();
+    private final Object lock = new Object();
+    /** The responses not released yet, in the order of the requests */
+    private final Queue<Answer> answers = new ArrayDeque<>();
+    /** The time the adapter end to handle the last request (in nanoseconds) */
+    private long busyUntil = 0;
+    private byte[] pending = new byte[0];
+    private int position = 0;
+    private boolean closed = false;
+
+    private final OutputStream toAdapter = new OutputStream() {
+        @Override
+        public void write(int value) throws IOException {
+            if (value == '\r') {
+                answer(new String(request.toByteArray(), StandardCharsets.US_ASCII).trim().toUpperCase());
+                request.reset();
+            } else if (value != '\n') {
+                request.write(value);
+            }
+        }
+
+        @Override
+        public void close() {
+            AdapterSimulator.this.close();
+        }
+    };
+
+    private final InputStream fromAdapter = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            synchronized (lock) {
+                while (true) {
+                    long remaining = release();
+                    if (position < pending.length) {
+                        return pending[position++] & 0xFF;
+                    }
+                    if (closed) {
+                        return -1;
+                    }
+                    try {
+                        if (remaining < 0) {
+                            lock.wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                        }
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (lock) {
+                release();
+                return pending.length - position;
+            }
+        }
+
+        @Override
+        public void close() {
+            AdapterSimulator.this.close();
+        }
+    };
+
+    /**
+     * Class constructor.
+     *
+     * @param latency The time to answer a request (in milliseconds)
+     */
+    public AdapterSimulator(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Answer a request (the response is released once the adapter have handled the previous requests and this one)
+     *
+     * @param command The request, without the carriage return
+     */
+    private void answer(String command) {
+        String response;
+        long wait = latency;
+        // The request that turn the echo off is still echoed
+        boolean echoed = echo;
+        if (command.startsWith("AT")) {
+            response = "OK";
+            if (command.startsWith("ATE")) {
+                echo = command.endsWith("1");
+            } else if (command.startsWith("ATS") && command.length() == 4) {
+                spaces = command.endsWith("1");
+            } else if (command.equals("ATZ") || command.equals("ATI")) {
+                response = "ELM327 v1.5";
+            }
+        } else if (command.matches("01[0-9A-F]{2}[0-9A-F]?")) {
+            String pid = command.substring(2, 4);
+            if (pid.equals("00")) {
+                response = format("4100BE1FB810");
+            } else {
+                counter++;
+                response = format(String.format("41%s%02X%02X", pid, (counter * 7) & 0xFF, (counter * 13) & 0xFF));
+            }
+            if (command.length() == 4) {
+                wait += ecuTimeout;
+            }
+        } else {
+            response = "NO DATA";
+        }
+
+        String output = (echoed ? command + "\r" : "") + response + "\r\r>";
+        synchronized (lock) {
+            busyUntil = Math.max(busyUntil, System.nanoTime()) + TimeUnit.MILLISECONDS.toNanos(wait);
+            answers.add(new Answer(busyUntil, output.getBytes(StandardCharsets.US_ASCII)));
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Move the responses that are due to the readable bytes (the lock must be held)
+     *
+     * @return The time before the next response is due (in nanoseconds), or {@code -1} if there is no response waiting
+     */
+    private long release() {
+        long now = System.nanoTime();
+        Answer answer;
+        while ((answer = answers.peek()) != null && answer.releaseAt - now <= 0) {
+            answers.remove();
+            byte[] remaining = new byte[pending.length - position + answer.bytes.length];
+            System.arraycopy(pending, position, remaining, 0, pending.length - position);
+            System.arraycopy(answer.bytes, 0, remaining, pending.length - position, answer.bytes.length);
+            pending = remaining;
+            position = 0;
+        }
+        return answer == null ? -1 : answer.releaseAt - now;
+    }
+
+    /**
+     * Format a response with (or without) spaces between the bytes
+     *
+     * @param hex The response, without spaces
+     * @return The response as sent by the adapter
+     */
+    private String format(String hex) {
+        if (!spaces) {
+            return hex;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < hex.length(); index += 2) {
+            if (index > 0) {
+                builder.append(' ');
+            }
+            builder.append(hex, index, index + 2);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the stream to write the requests to
+     *
+     * @return The stream to the adapter
+     */
+    public OutputStream getToAdapter() {
+        return toAdapter;
+    }
+
+    /**
+     * Get the stream to read the responses from
+     *
+     * @return The stream from the adapter
+     */
+    public InputStream getFromAdapter() {
+        return fromAdapter;
+    }
+
+    /**
+     * Get the time the adapter wait for other ECUs, when the request doesn't have a response count hint
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getEcuTimeout() {
+        return ecuTimeout;
+    }
+
+    /**
+     * Set the time the adapter wait for other ECUs, when the request doesn't have a response count hint
+     *
+     * @param ecuTimeout The time (in milliseconds)
+     */
+    public void setEcuTimeout(long ecuTimeout) {
+        this.ecuTimeout = ecuTimeout;
+    }
+
+    /**
+     * Disconnect the adapter (the readers get the end of the stream)
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * A response waiting for the simulated latency
+     */
+    private static class Answer {
+        private final long releaseAt;
+        private final byte[] bytes;
+
+        Answer(long releaseAt, byte[] bytes) {
+            this.releaseAt = releaseAt;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.gateway;
+
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.service.CapabilityCache;
+import io.github.macfja.obd2.service.Service;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handle the services of many vehicles on one host.
+ * <p>
+ * The vehicles are spread on a fixed number of shards (by default one per available processor).
+ * Each shard has one thread ({@link ShardScheduler}) that run the services of its vehicles,
+ * instead of a timer and a thread pool per service.
+ * A new vehicle is added to the shard with the less vehicles.
+ * <p>
+ * All the services share the same {@link CapabilityCache} and report their events to the same {@link GatewayMetrics}.
+ *
+ * @author MacFJA
+ */
+public class FleetGateway implements Closeable {
+    private final ShardScheduler[] shards;
+    private final CapabilityCache capabilityCache;
+    private final GatewayMetrics metrics = new GatewayMetrics();
+    private final Map<String, Vehicle> vehicles = new HashMap<>();
+
+    /**
+     * Create a gateway with one shard per available processor
+     *
+     * @param capabilityCache The cache of the capabilities of the vehicles, can be {@code null}
+     */
+    public FleetGateway(CapabilityCache capabilityCache) {
+        this(Runtime.getRuntime().availableProcessors(), capabilityCache);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param shardCount      The number of shards (threads)
+     * @param capabilityCache The cache of the capabilities of the vehicles, can be {@code null}
+     */
+    public FleetGateway(int shardCount, CapabilityCache capabilityCache) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A gateway need at least one shard");
+        }
+        this.capabilityCache = capabilityCache;
+        shards = new ShardScheduler[shardCount];
+        for (int index = 0; index < shardCount; index++) {
+            shards[index] = new ShardScheduler(index);
+        }
+    }
+
+    /**
+     * Connect a vehicle.
+     * <p>
+     * If the vehicle is already connected, its previous service is stopped.
+     *
+     * @param vehicle   The identifier of the vehicle (or of its connection)
+     * @param commander The commander of the vehicle (not shared with other vehicles)
+     * @param toObd     The stream to the adapter
+     * @param fromObd   The stream from the adapter
+     * @return The service of the vehicle, to schedule commands
+     */
+    public Service connect(String vehicle, CommanderInterface commander, OutputStream toObd, InputStream fromObd) {
+        ShardScheduler shard;
+        Service service;
+        synchronized (vehicles) {
+            disconnect(vehicle);
+            shard = shards[0];
+            for (ShardScheduler candidate : shards) {
+                if (candidate.getVehicleCount() < shard.getVehicleCount()) {
+                    shard = candidate;
+                }
+            }
+            service = new Service(commander, shard);
+            if (capabilityCache != null) {
+                service.setCapabilityCache(capabilityCache);
+            }
+            service.setEventListener(metrics);
+            shard.addVehicles(1);
+            vehicles.put(vehicle, new Vehicle(service, shard));
+        }
+        service.setCommunication(toObd, fromObd);
+        return service;
+    }
+
+    /**
+     * Disconnect a vehicle (its service is stopped)
+     *
+     * @param vehicle The identifier of the vehicle
+     */
+    public void disconnect(String vehicle) {
+        Vehicle removed;
+        synchronized (vehicles) {
+            removed = vehicles.remove(vehicle);
+        }
+        if (removed != null) {
+            removed.service.stop();
+            removed.shard.addVehicles(-1);
+        }
+    }
+
+    /**
+     * Get the service of a vehicle
+     *
+     * @param vehicle The identifier of the vehicle
+     * @return The service, or {@code null} if the vehicle is not connected
+     */
+    public Service getService(String vehicle) {
+        synchronized (vehicles) {
+            Vehicle found = vehicles.get(vehicle);
+            return found == null ? null : found.service;
+        }
+    }
+
+    /**
+     * Get the shard of a vehicle
+     *
+     * @param vehicle The identifier of the vehicle
+     * @return The position of the shard, or {@code -1} if the vehicle is not connected
+     */
+    public int getShardOf(String vehicle) {
+        synchronized (vehicles) {
+            Vehicle found = vehicles.get(vehicle);
+            return found == null ? -1 : found.shard.getIndex();
+        }
+    }
+
+    /**
+     * Get the number of shards
+     *
+     * @return The number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Get the number of vehicles of a shard
+     *
+     * @param shard The position of the shard
+     * @return The number of vehicles
+     */
+    public int getVehicleCount(int shard) {
+        return shards[shard].getVehicleCount();
+    }
+
+    /**
+     * Get the number of connected vehicles
+     *
+     * @return The number of vehicles
+     */
+    public int getVehicleCount() {
+        synchronized (vehicles) {
+            return vehicles.size();
+        }
+    }
+
+    /**
+     * Get the metrics of all the services
+     *
+     * @return The metrics
+     */
+    public GatewayMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Disconnect every vehicle, and stop the shards
+     */
+    @Override
+    public void close() {
+        List<String> connected;
+        synchronized (vehicles) {
+            connected = new ArrayList<>(vehicles.keySet());
+        }
+        for (String vehicle : connected) {
+            disconnect(vehicle);
+        }
+        for (ShardScheduler shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * A connected vehicle
+     */
+    private static class Vehicle {
+        private final Service service;
+        private final ShardScheduler shard;
+
+        Vehicle(Service service, ShardScheduler shard) {
+            this.service = service;
+            this.shard = shard;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.gateway;
+
+import io.github.macfja.obd2.service.ErrorResponse;
+import io.github.macfja.obd2.service.ServiceEventAdapter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of every service of a {@link FleetGateway}.
+ * <p>
+ * The same instance listen to the events of all the services (see
+ * {@link io.github.macfja.obd2.service.Service#setEventListener(io.github.macfja.obd2.service.ServiceEventListener)}),
+ * the counters are only incremented, read them twice to get a rate.
+ *
+ * @author MacFJA
+ */
+public class GatewayMetrics extends ServiceEventAdapter {
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong latency = new AtomicLong();
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong lag = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    @Override
+    public void tick(long lag, long duration, int executed) {
+        ticks.incrementAndGet();
+        if (lag > 0) {
+            this.lag.addAndGet(lag);
+            long max = maxLag.get();
+            while (lag > max && !maxLag.compareAndSet(max, lag)) {
+                max = maxLag.get();
+            }
+        }
+    }
+
+    @Override
+    public void commandSent(String request, int bytes, long latency, ErrorResponse.Type error) {
+        commands.incrementAndGet();
+        this.latency.addAndGet(latency);
+        if (error != null) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the number of commands sent
+     *
+     * @return The number of commands (failed ones included)
+     */
+    public long getCommands() {
+        return commands.get();
+    }
+
+    /**
+     * Get the number of commands that failed
+     *
+     * @return The number of errors
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Get the sum of the round-trip times of the commands
+     *
+     * @return The time (in nanoseconds)
+     */
+    public long getTotalLatency() {
+        return latency.get();
+    }
+
+    /**
+     * Get the number of ticks of the services
+     *
+     * @return The number of ticks
+     */
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    /**
+     * Get the sum of the delays of the ticks (a shard is overloaded when its ticks are late)
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getTotalLag() {
+        return lag.get();
+    }
+
+    /**
+     * Get the longest delay of a tick
+     *
+     * @return The time (in milliseconds)
+     */
+    public long getMaxLag() {
+        return maxLag.get();
+    }
+}
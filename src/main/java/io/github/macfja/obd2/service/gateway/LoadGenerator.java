@@ -0,0 +1,286 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.gateway;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.command.livedata.VehicleSpeed;
+import io.github.macfja.obd2.service.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connect simulated vehicles ({@link AdapterSimulator}) to a {@link FleetGateway}, to measure how many vehicles
+ * a shard (a core) can poll.
+ * <p>
+ * Every vehicle schedule the same commands. A shard is saturated when its ticks are late
+ * ({@link Result#getAverageLag()}) or when the commands per second stop growing with the number of vehicles.
+ * <p>
+ * The commanders must talk to the adapter through the streams given to
+ * {@link io.github.macfja.obd2.commander.CommanderInterface#setCommunicationInterface(java.io.OutputStream, java.io.InputStream)},
+ * as the ELM327 commander of the OBD2 library does:
+ * <pre>
+ * LoadGenerator generator = new LoadGenerator(gateway, new CommanderFactory() {
+ *     public CommanderInterface create() {
+ *         return new io.github.macfja.obd2.elm327.Commander();
+ *     }
+ * });
+ * </pre>
+ *
+ * @author MacFJA
+ */
+public class LoadGenerator {
+    private final FleetGateway gateway;
+    private final CommanderFactory commanderFactory;
+    private int vehicles = 10;
+    private List<Command> commands = Arrays.<Command>asList(new EngineRPM(), new VehicleSpeed());
+    private double frequency = 1;
+    private long latency = 20;
+
+    /**
+     * Class constructor.
+     *
+     * @param gateway          The gateway to load
+     * @param commanderFactory The factory of the commanders (that talk to the simulated adapters)
+     */
+    public LoadGenerator(FleetGateway gateway, CommanderFactory commanderFactory) {
+        this.gateway = gateway;
+        this.commanderFactory = commanderFactory;
+    }
+
+    /**
+     * Connect the simulated vehicles, let them run, and disconnect them
+     *
+     * @param duration The time to run (in milliseconds)
+     * @return The metrics of the run
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public Result run(long duration) throws InterruptedException {
+        GatewayMetrics metrics = gateway.getMetrics();
+        long commandsBefore = metrics.getCommands();
+        long errorsBefore = metrics.getErrors();
+        long latencyBefore = metrics.getTotalLatency();
+        long ticksBefore = metrics.getTicks();
+        long lagBefore = metrics.getTotalLag();
+
+        List<String> connected = new ArrayList<>();
+        List<AdapterSimulator> adapters = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        try {
+            for (int vehicle = 0; vehicle < vehicles; vehicle++) {
+                String name = "simulated-" + vehicle;
+                AdapterSimulator adapter = new AdapterSimulator(latency);
+                adapters.add(adapter);
+                Service service = gateway.connect(name, commanderFactory.create(), adapter.getToAdapter(), adapter.getFromAdapter());
+                connected.add(name);
+                for (Command command : commands) {
+                    service.schedule(command, frequency);
+                }
+            }
+            Thread.sleep(duration);
+        } finally {
+            for (String name : connected) {
+                gateway.disconnect(name);
+            }
+            for (AdapterSimulator adapter : adapters) {
+                adapter.close();
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        return new Result(
+                vehicles, gateway.getShardCount(), elapsed,
+                metrics.getCommands() - commandsBefore, metrics.getErrors() - errorsBefore,
+                metrics.getTotalLatency() - latencyBefore,
+                metrics.getTicks() - ticksBefore, metrics.getTotalLag() - lagBefore
+        );
+    }
+
+    /**
+     * Get the number of simulated vehicles
+     *
+     * @return The number of vehicles
+     */
+    public int getVehicles() {
+        return vehicles;
+    }
+
+    /**
+     * Set the number of simulated vehicles
+     *
+     * @param vehicles The number of vehicles
+     */
+    public void setVehicles(int vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    /**
+     * Get the commands scheduled by every vehicle
+     *
+     * @return The commands
+     */
+    public List<Command> getCommands() {
+        return commands;
+    }
+
+    /**
+     * Set the commands scheduled by every vehicle
+     *
+     * @param commands The commands
+     */
+    public void setCommands(List<Command> commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * Get the frequency of the commands
+     *
+     * @return The time between two executions (in seconds)
+     */
+    public double getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Set the frequency of the commands
+     *
+     * @param frequency The time between two executions (in seconds)
+     */
+    public void setFrequency(double frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Get the latency of the simulated adapters
+     *
+     * @return The time to answer a request (in milliseconds)
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Set the latency of the simulated adapters
+     *
+     * @param latency The time to answer a request (in milliseconds)
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * The metrics of a run of the {@link LoadGenerator}
+     */
+    public static class Result {
+        private final int vehicles;
+        private final int shards;
+        private final long duration;
+        private final long commands;
+        private final long errors;
+        private final long latency;
+        private final long ticks;
+        private final long lag;
+
+        Result(int vehicles, int shards, long duration, long commands, long errors, long latency, long ticks, long lag) {
+            this.vehicles = vehicles;
+            this.shards = shards;
+            this.duration = duration;
+            this.commands = commands;
+            this.errors = errors;
+            this.latency = latency;
+            this.ticks = ticks;
+            this.lag = lag;
+        }
+
+        /**
+         * Get the number of simulated vehicles
+         *
+         * @return The number of vehicles
+         */
+        public int getVehicles() {
+            return vehicles;
+        }
+
+        /**
+         * Get the number of commands sent
+         *
+         * @return The number of commands
+         */
+        public long getCommands() {
+            return commands;
+        }
+
+        /**
+         * Get the number of commands that failed
+         *
+         * @return The number of errors
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Get the number of commands sent per second
+         *
+         * @return The rate
+         */
+        public double getCommandsPerSecond() {
+            return duration == 0 ? 0 : commands * 1000.0 / duration;
+        }
+
+        /**
+         * Get the number of commands sent per second, by shard (by core)
+         *
+         * @return The rate
+         */
+        public double getCommandsPerSecondPerShard() {
+            return getCommandsPerSecond() / shards;
+        }
+
+        /**
+         * Get the average round-trip time of the commands
+         *
+         * @return The time (in milliseconds)
+         */
+        public double getAverageLatency() {
+            return commands == 0 ? 0 : latency / 1e6 / commands;
+        }
+
+        /**
+         * Get the average delay of the ticks
+         *
+         * @return The time (in milliseconds)
+         */
+        public double getAverageLag() {
+            return ticks == 0 ? 0 : (double) lag / ticks;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d vehicle(s) on %d shard(s): %.1f commands/s (%.1f per shard), %d error(s), latency %.1f ms, lag %.1f ms",
+                    vehicles, shards, getCommandsPerSecond(), getCommandsPerSecondPerShard(), errors,
+                    getAverageLatency(), getAverageLag()
+            );
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.gateway;
+
+import io.github.macfja.obd2.service.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Scheduler} shared by the services of a shard of a {@link FleetGateway}.
+ * <p>
+ * Every task (the ticks of the services, their startup, ...) run in the single thread of the shard,
+ * so the commands of a vehicle are never sent concurrently, and a shard never use more than one core.
+ * A repeated task that fail is logged and run again at its next period (it's not cancelled).
+ *
+ * @author MacFJA
+ */
+public class ShardScheduler implements Scheduler {
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final int index;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger vehicles = new AtomicInteger();
+
+    /**
+     * Class constructor.
+     *
+     * @param index The position of the shard (used in the name of its thread)
+     */
+    public ShardScheduler(final int index) {
+        this.index = index;
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "obd2-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public Task schedule(final Runnable task, long delay, long period) {
+        Runnable guarded = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // An exception would cancel the task, and stop the polling of the vehicle
+                    logger.error("A task of the shard {} failed", index, e);
+                }
+            }
+        };
+        final ScheduledFuture<?> future = executor.scheduleWithFixedDelay(guarded, delay, period, TimeUnit.MILLISECONDS);
+        return new Task() {
+            @Override
+            public void cancel() {
+                future.cancel(false);
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Get the position of the shard
+     *
+     * @return The index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the number of vehicles of the shard
+     *
+     * @return The number of vehicles
+     */
+    public int getVehicleCount() {
+        return vehicles.get();
+    }
+
+    /**
+     * Change the number of vehicles of the shard
+     *
+     * @param delta The number of vehicles added (or removed if negative)
+     */
+    void addVehicles(int delta) {
+        vehicles.addAndGet(delta);
+    }
+
+    /**
+     * Stop the thread of the shard (the running task is interrupted)
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * A client connected to the {@link LiveDataServer}.
+ * <p>
+ * Only used by the thread of the server.
+ * The client speak either raw TCP (one text command per line) or WebSocket (one text command per message),
+ * the protocol is detected from the first bytes received.
+ * <p>
+ * A slow client never block the server: only the last value of a topic is kept until it can be sent.
+ *
+ * @author MacFJA
+ */
+class Client {
+    private static final int UNKNOWN = 0;
+    private static final int RAW = 1;
+    private static final int HTTP = 2;
+    private static final int WEBSOCKET = 3;
+
+    private final LiveDataServer server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ByteBuffer input = ByteBuffer.allocate(1024);
+    private final ByteBuffer output = ByteBuffer.allocateDirect(16 * 1024);
+    private final Queue<byte[]> messages = new ArrayDeque<>();
+    private int protocol = UNKNOWN;
+    private boolean[] subscribed = new boolean[0];
+    private boolean[] dirty = new boolean[0];
+    private int dirtyCount = 0;
+
+    Client(LiveDataServer server, SocketChannel channel, SelectionKey key) {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    boolean isSubscribed(Topic topic) {
+        return topic.getIndex() < subscribed.length && subscribed[topic.getIndex()];
+    }
+
+    void subscribe(Topic topic) {
+        ensureCapacity(topic.getIndex());
+        subscribed[topic.getIndex()] = true;
+        if (topic.getLatest() != null) {
+            markDirty(topic);
+        }
+    }
+
+    void unsubscribe(Topic topic) {
+        if (!isSubscribed(topic)) {
+            return;
+        }
+        subscribed[topic.getIndex()] = false;
+        if (dirty[topic.getIndex()]) {
+            dirty[topic.getIndex()] = false;
+            dirtyCount--;
+        }
+    }
+
+    /**
+     * Flag a topic as having a value to send (the previous unsent value is dropped)
+     *
+     * @param topic The topic
+     */
+    void markDirty(Topic topic) {
+        if (!dirty[topic.getIndex()]) {
+            dirty[topic.getIndex()] = true;
+            dirtyCount++;
+        }
+    }
+
+    /**
+     * Queue a message for the client (sent before the values)
+     *
+     * @param message The message
+     */
+    void send(byte[] message) {
+        messages.offer(message);
+    }
+
+    /**
+     * Read and execute the commands sent by the client
+     *
+     * @throws IOException If the connection is broken or the client doesn't respect the protocol
+     */
+    void read() throws IOException {
+        if (channel.read(input) < 0) {
+            throw new IOException("Connection closed by the client");
+        }
+        input.flip();
+        boolean progress = true;
+        while (progress && input.hasRemaining()) {
+            progress = parse();
+        }
+        input.compact();
+        if (!progress && input.position() == input.capacity()) {
+            throw new IOException("Message too long");
+        }
+        flush();
+    }
+
+    /**
+     * Send as much pending data as the socket accept, without blocking
+     *
+     * @throws IOException If the connection is broken
+     */
+    void flush() throws IOException {
+        fill();
+        output.flip();
+        channel.write(output);
+        output.compact();
+        boolean pending = output.position() > 0 || !messages.isEmpty() || dirtyCount > 0;
+        if (key.isValid()) {
+            key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private void fill() {
+        while (!messages.isEmpty() && fits(messages.peek().length)) {
+            put(messages.poll());
+        }
+        if (dirtyCount == 0 || !messages.isEmpty()) {
+            return;
+        }
+        for (int index = 0; index < dirty.length && dirtyCount > 0; index++) {
+            if (!dirty[index]) {
+                continue;
+            }
+            byte[] update = server.getTopic(index).getLatest();
+            if (!fits(update.length)) {
+                return;
+            }
+            put(update);
+            dirty[index] = false;
+            dirtyCount--;
+        }
+    }
+
+    private boolean fits(int length) {
+        return output.remaining() >= length + (protocol == WEBSOCKET ? WebSocket.headerSize(length) : 0);
+    }
+
+    private void put(byte[] message) {
+        if (protocol == WEBSOCKET) {
+            WebSocket.putHeader(message.length, output);
+        }
+        output.put(message);
+    }
+
+    private boolean parse() throws IOException {
+        switch (protocol) {
+            case UNKNOWN:
+                if (input.remaining() < 4) {
+                    return false;
+                }
+                byte[] start = new byte[4];
+                input.duplicate().get(start);
+                protocol = "GET ".equals(new String(start, StandardCharsets.US_ASCII)) ? HTTP : RAW;
+                return true;
+            case RAW:
+                return parseLine();
+            case HTTP:
+                return parseHandshake();
+            default:
+                return parseFrame();
+        }
+    }
+
+    private boolean parseLine() {
+        for (int index = input.position(); index < input.limit(); index++) {
+            if (input.get(index) == '\n') {
+                String line = readString(index - input.position());
+                input.get();
+                server.execute(this, line.trim());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean parseHandshake() throws IOException {
+        for (int index = input.position(); index + 3 < input.limit(); index++) {
+            if (input.get(index) == '\r' && input.get(index + 1) == '\n'
+                    && input.get(index + 2) == '\r' && input.get(index + 3) == '\n') {
+                String request = readString(index + 4 - input.position());
+                byte[] answer = WebSocket.handshake(request);
+                if (answer == null) {
+                    throw new IOException("Not a WebSocket upgrade request");
+                }
+                // Nothing have been sent before the handshake, so the output is empty
+                output.put(answer);
+                protocol = WEBSOCKET;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean parseFrame() throws IOException {
+        if (input.remaining() < 2) {
+            return false;
+        }
+        int start = input.position();
+        int opcode = input.get(start) & 0x0F;
+        int length = input.get(start + 1) & 0x7F;
+        int header = 2;
+        if (length == 126) {
+            if (input.remaining() < 4) {
+                return false;
+            }
+            length = input.getShort(start + 2) & 0xFFFF;
+            header = 4;
+        } else if (length == 127) {
+            throw new IOException("Message too long");
+        }
+        boolean masked = (input.get(start + 1) & 0x80) != 0;
+        int maskSize = masked ? 4 : 0;
+        if (input.remaining() < header + maskSize + length) {
+            return false;
+        }
+        byte[] payload = new byte[length];
+        for (int index = 0; index < length; index++) {
+            byte value = input.get(start + header + maskSize + index);
+            payload[index] = masked ? (byte) (value ^ input.get(start + header + (index & 3))) : value;
+        }
+        input.position(start + header + maskSize + length);
+
+        switch (opcode) {
+            case WebSocket.OPCODE_TEXT:
+            case WebSocket.OPCODE_BINARY:
+                server.execute(this, new String(payload, StandardCharsets.UTF_8).trim());
+                break;
+            case WebSocket.OPCODE_CLOSE:
+                throw new IOException("Connection closed by the client");
+            default:
+                // Ping and pong are ignored, the updates keep the connection alive
+                break;
+        }
+        return true;
+    }
+
+    private String readString(int length) {
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void ensureCapacity(int index) {
+        if (index >= subscribed.length) {
+            int size = Math.max(index + 1, subscribed.length * 2);
+            subscribed = Arrays.copyOf(subscribed, size);
+            dirty = Arrays.copyOf(dirty, size);
+        }
+    }
+}
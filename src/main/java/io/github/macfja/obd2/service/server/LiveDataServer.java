@@ -0,0 +1,339 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.server;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.service.Obd2Service;
+import io.github.macfja.obd2.service.Scheduler;
+import io.github.macfja.obd2.service.Service;
+import io.github.macfja.obd2.service.SystemScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Share the live data of a service with many local clients (display, logger, telematics, ...).
+ * <p>
+ * Clients connect with raw TCP (one command per line) or with WebSocket (one command per text message),
+ * and send {@code SUB <request>} or {@code UNSUB <request>} (ex: {@code SUB 010C}).
+ * <p>
+ * The server answer with binary messages (big-endian):
+ * <ul>
+ * <li>{@code 1}, topic (short), timestamp in milliseconds (long), value (double, NaN on error): a new value</li>
+ * <li>{@code 2}, topic (short), request (modified UTF-8): the topic of a subscribed request</li>
+ * <li>{@code 3}, request (modified UTF-8): the request is not published</li>
+ * </ul>
+ * <p>
+ * Each value is encoded once for all clients.
+ * A client too slow to read all the values only receive the last value of each topic, it never block the service.
+ * <p>
+ * The server doesn't schedule the commands, they must be scheduled on the service.
+ *
+ * @author MacFJA
+ */
+public class LiveDataServer implements Closeable {
+    /** Message type of a subscription confirmation */
+    static final byte BOUND = 2;
+    /** Message type of an unknown request */
+    static final byte UNKNOWN = 3;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private Obd2Service service;
+    private Scheduler scheduler;
+    private InetSocketAddress address;
+    private volatile Topic[] topics = new Topic[0];
+    private Map<String, Topic> topicsByRequest = new ConcurrentHashMap<>();
+    private Queue<Topic> changedTopics = new ConcurrentLinkedQueue<>();
+    private volatile Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    /**
+     * Class constructor.
+     * <p>
+     * The values are timestamped with the time of the {@link Service} (the wall-clock for other implementations).
+     *
+     * @param service The service to read the values from
+     * @param address The address to listen on (ex: {@code new InetSocketAddress("127.0.0.1", 3500)})
+     */
+    public LiveDataServer(Obd2Service service, InetSocketAddress address) {
+        this(service, address, service instanceof Service ? ((Service) service).getScheduler() : new SystemScheduler());
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param service   The service to read the values from
+     * @param address   The address to listen on (ex: {@code new InetSocketAddress("127.0.0.1", 3500)})
+     * @param scheduler The source of time of the values
+     */
+    public LiveDataServer(Obd2Service service, InetSocketAddress address, Scheduler scheduler) {
+        this.service = service;
+        this.address = address;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Make the values of a command available to the clients
+     *
+     * @param command The command
+     */
+    public synchronized void publish(Command command) {
+        if (topicsByRequest.containsKey(command.getRequest())) {
+            return;
+        }
+        if (topics.length > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many published commands");
+        }
+        Topic topic = new Topic(this, command, topics.length);
+        Topic[] newTopics = Arrays.copyOf(topics, topics.length + 1);
+        newTopics[topic.getIndex()] = topic;
+        topics = newTopics;
+        topicsByRequest.put(command.getRequest(), topic);
+        service.addObserver(command, topic);
+    }
+
+    /**
+     * Start to accept clients
+     *
+     * @throws IOException If the address can't be bound
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "obd2-server");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Live data server listening on {}", serverChannel.socket().getLocalSocketAddress());
+    }
+
+    /**
+     * Get the port the server is listening on (useful when started on the port {@code 0})
+     *
+     * @return The port, or {@code -1} if the server is not started
+     */
+    public int getPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Disconnect all the clients and stop to observe the service
+     *
+     * @throws IOException If the server socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        Thread current;
+        synchronized (this) {
+            for (Topic topic : topics) {
+                service.removeObserver(topic);
+            }
+            if (!running) {
+                return;
+            }
+            running = false;
+            current = thread;
+            selector.wakeup();
+        }
+        try {
+            current.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get the source of time of the values
+     *
+     * @return The scheduler
+     */
+    Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Called (in the thread of the service) when a topic have a new value
+     *
+     * @param topic The topic
+     */
+    void changed(Topic topic) {
+        if (topic.markQueued()) {
+            changedTopics.offer(topic);
+            Selector current = selector;
+            if (current != null) {
+                current.wakeup();
+            }
+        }
+    }
+
+    Topic getTopic(int index) {
+        return topics[index];
+    }
+
+    /**
+     * Execute a command of a client
+     *
+     * @param client The client
+     * @param line   The command
+     */
+    void execute(Client client, String line) {
+        int space = line.indexOf(' ');
+        if (space < 0) {
+            return;
+        }
+        String action = line.substring(0, space).toUpperCase();
+        String request = line.substring(space + 1).trim();
+        Topic topic = topicsByRequest.get(request);
+        if (topic == null) {
+            client.send(encode(UNKNOWN, -1, request));
+            return;
+        }
+        if ("SUB".equals(action)) {
+            client.send(encode(BOUND, topic.getIndex(), request));
+            client.subscribe(topic);
+        } else if ("UNSUB".equals(action)) {
+            client.unsubscribe(topic);
+        }
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select();
+                dispatchChanges();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("The live data server have stopped: {}", e.getLocalizedMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Client) {
+                    ((Client) key.attachment()).close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close the live data server: {}", e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey clientKey = channel.register(selector, SelectionKey.OP_READ);
+            clientKey.attach(new Client(this, channel, clientKey));
+            return;
+        }
+        Client client = (Client) key.attachment();
+        try {
+            if (key.isReadable()) {
+                client.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                client.flush();
+            }
+        } catch (IOException e) {
+            logger.debug("Client disconnected: {}", e.getLocalizedMessage());
+            client.close();
+        }
+    }
+
+    private void dispatchChanges() {
+        Topic topic;
+        while ((topic = changedTopics.poll()) != null) {
+            topic.clearQueued();
+            for (SelectionKey key : selector.keys()) {
+                if (!(key.attachment() instanceof Client) || !key.isValid()) {
+                    continue;
+                }
+                Client client = (Client) key.attachment();
+                if (client.isSubscribed(topic)) {
+                    client.markDirty(topic);
+                    try {
+                        client.flush();
+                    } catch (IOException e) {
+                        logger.debug("Client disconnected: {}", e.getLocalizedMessage());
+                        client.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte[] encode(byte type, int topic, String request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeByte(type);
+            if (topic >= 0) {
+                output.writeShort(topic);
+            }
+            output.writeUTF(request);
+        } catch (IOException e) {
+            // Can't happen with a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
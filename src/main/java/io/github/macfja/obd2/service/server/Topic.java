@@ -0,0 +1,105 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.server;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.service.ObdObserver;
+import io.github.macfja.obd2.service.ResponseValues;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A command published by the {@link LiveDataServer}.
+ * <p>
+ * Each new value is encoded once, and the same bytes are sent to every subscriber.
+ *
+ * @author MacFJA
+ */
+class Topic implements ObdObserver {
+    /** Message type of a value update */
+    static final byte UPDATE = 1;
+    /** Size of a value update: type, topic, timestamp, value */
+    static final int UPDATE_SIZE = 1 + 2 + 8 + 8;
+
+    private final LiveDataServer server;
+    private final Command command;
+    private final int index;
+    private volatile byte[] latest;
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+
+    Topic(LiveDataServer server, Command command, int index) {
+        this.server = server;
+        this.command = command;
+        this.index = index;
+    }
+
+    Command getCommand() {
+        return command;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the last encoded update
+     *
+     * @return The update, or {@code null} if there is no value yet
+     */
+    byte[] getLatest() {
+        return latest;
+    }
+
+    /**
+     * Flag the topic as waiting for the server thread
+     *
+     * @return {@code false} if it was already waiting
+     */
+    boolean markQueued() {
+        return queued.compareAndSet(false, true);
+    }
+
+    void clearQueued() {
+        queued.set(false);
+    }
+
+    @Override
+    public void update(Response response) {
+        publish(ResponseValues.toDouble(response));
+    }
+
+    @Override
+    public void error(Command request, Response response, Exception exception) {
+        publish(Double.NaN);
+    }
+
+    private void publish(double value) {
+        byte[] encoded = new byte[UPDATE_SIZE];
+        ByteBuffer.wrap(encoded)
+                .put(UPDATE)
+                .putShort((short) index)
+                .putLong(server.getScheduler().currentTimeMillis())
+                .putDouble(value);
+        latest = encoded;
+        server.changed(this);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+  Copyright (c) 2018 MacFJA
+
+  Permission is hereby granted, free of charge,
+  to any person obtaining a copy of this software and associated documentation files (the "Software"),
+  to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge,
+  publish, distribute, sublicense, and/or sell copies of the Software,
+  and to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+
+  The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+  Software.
+
+  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+  INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+  WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.macfja.obd2.service.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The (small) part of the WebSocket protocol (RFC 6455) needed by the {@link LiveDataServer}.
+ *
+ * @author MacFJA
+ */
+final class WebSocket {
+    static final int OPCODE_TEXT = 0x1;
+    static final int OPCODE_BINARY = 0x2;
+    static final int OPCODE_CLOSE = 0x8;
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private WebSocket() {
+    }
+
+    /**
+     * Build the answer to an upgrade request
+     *
+     * @param request The HTTP request of the client
+     * @return The HTTP answer, or {@code null} if the request is not a WebSocket upgrade
+     */
+    static byte[] handshake(String request) {
+        String key = null;
+        for (String line : request.split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            return null;
+        }
+        return ("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Compute the value of the {@code Sec-WebSocket-Accept} header
+     *
+     * @param key The value of the {@code Sec-WebSocket-Key} header
+     * @return The accept key
+     */
+    static String acceptKey(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+            return base64(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write the header of an unmasked, final, binary frame
+     *
+     * @param length The length of the payload
+     * @param output The buffer to write in
+     */
+    static void putHeader(int length, ByteBuffer output) {
+        output.put((byte) (0x80 | OPCODE_BINARY));
+        if (length < 126) {
+            output.put((byte) length);
+        } else {
+            output.put((byte) 126).putShort((short) length);
+        }
+    }
+
+    /**
+     * Get the size of the header written by {@link #putHeader(int, ByteBuffer)}
+     *
+     * @param length The length of the payload
+     * @return The size of the header
+     */
+    static int headerSize(int length) {
+        return length < 126 ? 2 : 4;
+    }
+
+    private static String base64(byte[] data) {
+        StringBuilder result = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int index = 0; index < data.length; index += 3) {
+            int chunk = (data[index] & 0xFF) << 16;
+            if (index + 1 < data.length) {
+                chunk |= (data[index + 1] & 0xFF) << 8;
+            }
+            if (index + 2 < data.length) {
+                chunk |= data[index + 2] & 0xFF;
+            }
+            result.append(BASE64[chunk >> 18 & 0x3F]).append(BASE64[chunk >> 12 & 0x3F]);
+            result.append(index + 1 < data.length ? BASE64[chunk >> 6 & 0x3F] : '=');
+            result.append(index + 2 < data.length ? BASE64[chunk & 0x3F] : '=');
+        }
+        return result.toString();
+    }
+}
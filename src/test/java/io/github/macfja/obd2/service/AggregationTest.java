@@ -0,0 +1,43 @@
+package io.github.macfja.obd2.service;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AggregationTest {
+    @Test
+    public void slidingWindow() {
+        WindowObserver observer = mock(WindowObserver.class);
+        Aggregation aggregation = new Aggregation(CommandId.of("0105"), 10000, 5000, new VirtualScheduler());
+        aggregation.getObservers().add(observer);
+
+        aggregation.add(80, false, 1000);
+        aggregation.add(90, false, 4000);
+        aggregation.add(Double.NaN, true, 6000);
+        aggregation.add(70, false, 9000);
+        aggregation.roll(10000);
+        aggregation.roll(60000);
+
+        ArgumentCaptor<WindowSummary> summaries = ArgumentCaptor.forClass(WindowSummary.class);
+        verify(observer, times(3)).summary(summaries.capture());
+
+        WindowSummary first = summaries.getAllValues().get(0);
+        assertEquals(-5000, first.getStart());
+        assertEquals(5000, first.getEnd());
+        assertEquals(85, first.getMean(), 0.001);
+
+        WindowSummary second = summaries.getAllValues().get(1);
+        assertEquals("0105", second.getRequest());
+        assertEquals(3, second.getCount());
+        assertEquals(1, second.getErrors());
+        assertEquals(70, second.getMin(), 0.001);
+        assertEquals(90, second.getMax(), 0.001);
+        assertEquals(70, second.getLast(), 0.001);
+
+        WindowSummary third = summaries.getAllValues().get(2);
+        assertEquals(1, third.getCount());
+        assertEquals(70, first.merge(third).getLast(), 0.001);
+    }
+}
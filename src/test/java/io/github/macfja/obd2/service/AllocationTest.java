@@ -0,0 +1,91 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.response.CalculatedResponse;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class AllocationTest {
+    private static final Response RESPONSE = new CalculatedResponse(new byte[0], 800);
+
+    @Test
+    public void steadyStatePollingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = threads();
+        VirtualScheduler scheduler = new VirtualScheduler();
+        final double[] sum = {0};
+        schedule(scheduler, sum);
+
+        // Warm up (first ticks grow the internal arrays, and the JIT compile the loop)
+        scheduler.advance(36000000);
+        long thread = Thread.currentThread().getId();
+        threads.getThreadAllocatedBytes(thread);
+        double before = sum[0];
+        long start = threads.getThreadAllocatedBytes(thread);
+        scheduler.advance(3600000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        assertEquals(900, (long) ((sum[0] - before) / 800));
+        assertTrue("Bytes allocated in an hour: " + allocated, allocated < 256);
+    }
+
+    @Test
+    public void frameObserverOnlyAllocatesTheSnapshots() {
+        com.sun.management.ThreadMXBean threads = threads();
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = schedule(scheduler, new double[1]);
+        final int[] frames = {0};
+        service.addFrameObserver(new FrameObserver() {
+            @Override
+            public void frame(Snapshot snapshot) {
+                frames[0]++;
+            }
+        });
+
+        scheduler.advance(36000000);
+        long thread = Thread.currentThread().getId();
+        threads.getThreadAllocatedBytes(thread);
+        int before = frames[0];
+        long start = threads.getThreadAllocatedBytes(thread);
+        scheduler.advance(3600000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        int count = frames[0] - before;
+        assertEquals(900, count);
+        // The snapshot and its 4 arrays of one element, the ticks without update don't allocate
+        assertTrue("Bytes allocated per frame: " + allocated / count, allocated / count < 192);
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        return threads;
+    }
+
+    private static Service schedule(VirtualScheduler scheduler, final double[] sum) {
+        Service service = new Service(mock(CommanderInterface.class), scheduler) {
+            @Override
+            Response send(Command command) {
+                return RESPONSE;
+            }
+        };
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+        service.schedule(new EngineRPM(), 2, new ObdObserverIgnoreError() {
+            @Override
+            public void update(Response response) {
+                sum[0] += ResponseValues.toDouble(response);
+            }
+        });
+        return service;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.command.livedata.VehicleSpeed;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CanMonitorTest {
+
+    protected boolean feed(CanFrameParser parser, String line)
+    {
+        boolean parsed = false;
+        for (char character : line.toCharArray()) {
+            parsed = parser.accept(character);
+        }
+        return parsed;
+    }
+
+    @Test
+    public void parse() {
+        CanFrameParser parser = new CanFrameParser(false);
+
+        assertTrue(feed(parser, "7E8 04 41 0C 1A F8\r"));
+        assertEquals(0x7E8, parser.getFrame().getId());
+        assertEquals(5, parser.getFrame().getLength());
+        assertEquals(0xF8, parser.getFrame().getByte(4));
+
+        assertTrue(feed(parser, "7E803410D32\n"));
+        assertEquals(0x32, parser.getFrame().getByte(3));
+
+        assertFalse(feed(parser, "SEARCHING...\r"));
+        assertFalse(feed(parser, "BUFFER FULL\r"));
+        assertFalse(feed(parser, "7E8 04 41 0C 1\r"));
+
+        parser = new CanFrameParser(true);
+        assertTrue(feed(parser, "18 DA F1 10 03 41 0D 32\r"));
+        assertEquals(0x18DAF110, parser.getFrame().getId());
+        assertEquals(4, parser.getFrame().getLength());
+    }
+
+    @Test
+    public void monitor() throws IOException {
+        CommanderInterface commander = mock(CommanderInterface.class);
+        Service service = new Service(commander);
+        ByteArrayOutputStream toObd = new ByteArrayOutputStream();
+        ByteArrayInputStream fromObd = new ByteArrayInputStream(
+                "7E8 03 41 0D 32\r7DF 02 01 0D\r7E8 04 41 0C 1A F8\r\r>".getBytes()
+        );
+        service.setCommunication(toObd, fromObd);
+
+        final byte[][] raw = new byte[1][];
+        Command speed = new VehicleSpeed() {
+            @Override
+            public Response getResponse(byte[] rawResult) {
+                raw[0] = rawResult;
+                return mock(Response.class);
+            }
+        };
+        ObdObserver observer = mock(ObdObserver.class);
+        service.addObserver(VehicleSpeed.class, observer);
+
+        CanMonitor monitor = new CanMonitor(service);
+        monitor.register(0x7E8, speed);
+        monitor.start("7E8");
+
+        verify(observer, timeout(1000)).update(any(Response.class));
+        assertEquals("41 0D 32", new String(raw[0]));
+        assertTrue(toObd.toString().contains("ATMA"));
+    }
+
+    @Test
+    public void restoreAdapter() throws Exception {
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        CommanderInterface commander = mock(CommanderInterface.class);
+        when(commander.sendCommand(any(Command.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                String request = ((Command) invocation.getArguments()[0]).getRequest();
+                if (request.startsWith("AT")) {
+                    requests.add(request);
+                }
+                return mock(Response.class);
+            }
+        });
+        Service service = new Service(commander);
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(new ByteArrayOutputStream(), new ByteArrayInputStream("\r>".getBytes()));
+
+        // No filter: only the headers are switched, and back off as the adapter doesn't use them
+        new CanMonitor(service).start();
+        for (int wait = 0; requests.size() < 2 && wait < 100; wait++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("ATH1", "ATH0"), requests);
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.elm327.response.ResponseOK;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class CapabilityCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saveAndLoad() {
+        CapabilityCache cache = new CapabilityCache(folder.getRoot());
+        VehicleCapabilities capabilities = new VehicleCapabilities("1D4GP24R45B123456");
+        capabilities.setSignature("41 00 BE 3E B8 11");
+        capabilities.setSupported("010C", true, 1000);
+        capabilities.setSupported("0142", false, 2000);
+        capabilities.setLatency("010C", 45000000);
+        cache.save(capabilities);
+
+        VehicleCapabilities loaded = cache.load("1D4GP24R45B123456");
+
+        assertEquals("41 00 BE 3E B8 11", loaded.getSignature());
+        assertTrue(loaded.isKnown("010C"));
+        assertTrue(loaded.isSupported("010C"));
+        assertTrue(loaded.isKnown("0142"));
+        assertFalse(loaded.isSupported("0142"));
+        assertFalse(loaded.isKnown("0105"));
+        assertEquals(2000, loaded.getCheckedAt("0142"));
+        assertEquals(45000000, loaded.getLatency("010C"));
+        assertTrue(loaded.isStale("010C", 5000, 3000));
+        assertFalse(loaded.isStale("0142", 5000, 3000));
+    }
+
+    @Test
+    public void loadUnknown() {
+        CapabilityCache cache = new CapabilityCache(folder.getRoot());
+
+        VehicleCapabilities loaded = cache.load("1D4GP24R45B123456");
+
+        assertNull(loaded.getSignature());
+        assertTrue(loaded.getKnownRequests().isEmpty());
+    }
+
+    @Test
+    public void parseVin() {
+        String raw = "014\r0: 49 02 01 31 44 34\r1: 47 50 32 34 52 34 35\r2: 42 31 32 33 34 35 36";
+
+        assertEquals("1D4GP24R45B123456", VehicleCapabilities.parseVin(new ResponseOK(raw.getBytes())));
+        assertNull(VehicleCapabilities.parseVin(new ResponseOK("NO DATA".getBytes())));
+    }
+}
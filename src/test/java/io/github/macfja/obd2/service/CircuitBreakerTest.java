@@ -0,0 +1,76 @@
+package io.github.macfja.obd2.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    protected CircuitBreaker createBreaker()
+    {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.setBaseBackOff(100);
+        breaker.setMaxBackOff(300);
+        breaker.setSuspendThreshold(4);
+        breaker.setProbeInterval(1000);
+        breaker.setMaxProbeInterval(1500);
+        return breaker;
+    }
+
+    @Test
+    public void backOff() {
+        CircuitBreaker breaker = createBreaker();
+
+        assertTrue(breaker.allows("0105", 0));
+        breaker.failure("0105", 0);
+        assertFalse(breaker.allows("0105", 99));
+        assertTrue(breaker.allows("0105", 100));
+        breaker.failure("0105", 100);
+        assertFalse(breaker.allows("0105", 299));
+        assertTrue(breaker.allows("0105", 300));
+        breaker.failure("0105", 300);
+        // Capped by the max back-off
+        assertTrue(breaker.allows("0105", 600));
+        assertEquals(CommandHealth.State.CLOSED, breaker.getHealth("0105").getState());
+
+        breaker.success("0105");
+        assertTrue(breaker.allows("0105", 600));
+        assertEquals(0, breaker.getHealth("0105").getConsecutiveFailures());
+        assertEquals(3, breaker.getHealth("0105").getTotalFailures());
+    }
+
+    @Test
+    public void suspendAndProbe() {
+        CircuitBreaker breaker = createBreaker();
+
+        for (int i = 0; i < 4; i++) {
+            breaker.failure("010C", 0);
+        }
+        assertEquals(CommandHealth.State.OPEN, breaker.getHealth("010C").getState());
+        assertFalse(breaker.allows("010C", 999));
+
+        assertTrue(breaker.allows("010C", 1000));
+        assertEquals(CommandHealth.State.HALF_OPEN, breaker.getHealth("010C").getState());
+        assertFalse(breaker.allows("010C", 1001));
+
+        breaker.failure("010C", 1001);
+        assertEquals(CommandHealth.State.OPEN, breaker.getHealth("010C").getState());
+        assertFalse(breaker.allows("010C", 2500));
+        assertTrue(breaker.allows("010C", 2501));
+
+        breaker.success("010C");
+        assertEquals(CommandHealth.State.CLOSED, breaker.getHealth("010C").getState());
+    }
+
+    @Test
+    public void suspendUnsupported() {
+        CircuitBreaker breaker = createBreaker();
+
+        breaker.suspend("0142", 0);
+        assertFalse(breaker.allows("0142", 10));
+        assertTrue(breaker.allows("0105", 10));
+
+        breaker.reset("0142");
+        assertTrue(breaker.allows("0142", 10));
+    }
+}
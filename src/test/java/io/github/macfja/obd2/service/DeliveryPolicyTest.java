@@ -0,0 +1,37 @@
+package io.github.macfja.obd2.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeliveryPolicyTest {
+    @Test
+    public void deadBandAndHeartbeat() {
+        DeliveryPolicy policy = DeliveryPolicy.deadBand(2);
+        policy.setMaxSilence(10000);
+        DeliveryFilter filter = new DeliveryFilter(policy);
+
+        assertTrue(filter.accept(90, false, 0));
+        assertFalse(filter.accept(90, false, 1000));
+        assertFalse(filter.accept(91.5, false, 2000));
+        assertTrue(filter.accept(92, false, 3000));
+        assertFalse(filter.accept(91, false, 4000));
+        assertTrue(filter.accept(91, false, 13000));
+        assertTrue(filter.accept(Double.NaN, true, 14000));
+        assertFalse(filter.accept(Double.NaN, true, 15000));
+        assertTrue(filter.accept(91, false, 16000));
+    }
+
+    @Test
+    public void changeOnlyWithMinInterval() {
+        DeliveryPolicy policy = DeliveryPolicy.changeOnly();
+        policy.setMinInterval(1000);
+        DeliveryFilter filter = new DeliveryFilter(policy);
+
+        assertTrue(filter.accept(10, false, 0));
+        assertFalse(filter.accept(10, false, 2000));
+        assertTrue(filter.accept(11, false, 2500));
+        assertFalse(filter.accept(12, false, 3000));
+        assertTrue(filter.accept(12, false, 3500));
+    }
+}
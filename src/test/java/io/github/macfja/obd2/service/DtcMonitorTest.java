@@ -0,0 +1,90 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.elm327.response.ResponseOK;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DtcMonitorTest {
+    @Test
+    public void parse() {
+        // ISO 9141: 3 codes per line, padded
+        assertEquals(
+                DtcSet.of(0x0133, 0x0300, 0x4123),
+                DtcSet.parse(bytes("43 01 33 03 00 41 23\r43 00 00 00 00 00 00\r\r>"), 0x03)
+        );
+        // CAN: the count first, a multi-frame message
+        assertEquals(
+                DtcSet.of(0x0133, 0x0300, 0xC001),
+                DtcSet.parse(bytes("008\r0: 43 03 01 33 03 00\r1: C0 01 00 00 00 00 00\r\r>"), 0x03)
+        );
+        assertEquals(DtcSet.EMPTY, DtcSet.parse(bytes("NO DATA\r\r>"), 0x03));
+        assertEquals(DtcSet.of(0x0420), DtcSet.parse(bytes("47010420"), 0x07));
+
+        assertEquals("P0133", DtcSet.format(0x0133));
+        assertEquals("U0001", DtcSet.format(0xC001));
+        assertEquals(0x4123, DtcSet.parseCode("C0123"));
+        assertEquals("[P0300]", DtcSet.of(0x0133, 0x0300).minus(DtcSet.of(0x0133, 0x0420)).toString());
+    }
+
+    @Test
+    public void onlyChangesAreReported() {
+        final String[] status = {"41 01 81 07 65 04"};
+        final String[] codes = {"43 01 01 33"};
+        final int[] reads = {0};
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(mock(CommanderInterface.class), scheduler) {
+            @Override
+            Response send(Command command) {
+                if (command.getRequest().startsWith("0101")) {
+                    return new ResponseOK(bytes(status[0]));
+                }
+                if (command.getRequest().equals("03")) {
+                    reads[0]++;
+                    return new ResponseOK(bytes(codes[0]));
+                }
+                return new ResponseOK(bytes("OK"));
+            }
+        };
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+        DtcMonitor monitor = new DtcMonitor();
+        DtcListener listener = mock(DtcListener.class);
+        monitor.addListener(listener);
+        service.setDtcMonitor(monitor);
+
+        scheduler.advance(60000);
+        assertEquals(1, reads[0]);
+        assertEquals(DtcSet.of(0x0133), monitor.getCodes());
+
+        // Same status: the codes are not read
+        scheduler.advance(120000);
+        assertEquals(1, reads[0]);
+
+        status[0] = "41 01 82 07 65 04";
+        codes[0] = "43 02 01 33 03 00";
+        scheduler.advance(60000);
+        status[0] = "41 01 00 07 65 04";
+        codes[0] = "43 00";
+        scheduler.advance(60000);
+        assertEquals(3, reads[0]);
+
+        InOrder order = inOrder(listener);
+        order.verify(listener).changed(DtcSet.of(0x0133), DtcSet.EMPTY, DtcSet.of(0x0133));
+        order.verify(listener).changed(DtcSet.of(0x0300), DtcSet.EMPTY, DtcSet.of(0x0133, 0x0300));
+        order.verify(listener).changed(DtcSet.EMPTY, DtcSet.of(0x0133, 0x0300), DtcSet.EMPTY);
+        order.verifyNoMoreInteractions();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
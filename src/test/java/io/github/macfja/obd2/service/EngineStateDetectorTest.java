@@ -0,0 +1,35 @@
+package io.github.macfja.obd2.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EngineStateDetectorTest {
+    @Test
+    public void detectStopAndStart() {
+        EngineStateDetector detector = new EngineStateDetector();
+        EngineStateListener listener = mock(EngineStateListener.class);
+        detector.addListener(listener);
+
+        detector.onRpm(800);
+        detector.onSpeed(0);
+        assertEquals(EngineState.IDLE, detector.getState());
+        detector.onSpeed(30);
+        assertEquals(EngineState.RUNNING, detector.getState());
+
+        detector.onRpm(0);
+        detector.onRpm(Double.NaN);
+        assertEquals(EngineState.RUNNING, detector.getState());
+        detector.onRpm(0);
+        assertEquals(EngineState.KEY_OFF, detector.getState());
+
+        detector.onRpm(750);
+        assertEquals(EngineState.IDLE, detector.getState());
+
+        verify(listener).stateChanged(EngineState.RUNNING, EngineState.IDLE);
+        verify(listener).stateChanged(EngineState.IDLE, EngineState.RUNNING);
+        verify(listener).stateChanged(EngineState.RUNNING, EngineState.KEY_OFF);
+        verify(listener).stateChanged(EngineState.KEY_OFF, EngineState.IDLE);
+    }
+}
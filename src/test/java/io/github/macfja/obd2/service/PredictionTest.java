@@ -0,0 +1,86 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.command.livedata.EngineCoolantTemperature;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.response.CalculatedResponse;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PredictionTest {
+    @Test
+    public void models() {
+        LinearModel linear = new LinearModel();
+        linear.update(10, 0);
+        linear.update(20, 1000);
+        assertTrue(Double.isInfinite(linear.uncertainty(2000)));
+        linear.update(31, 2000);
+        assertEquals(42, linear.predict(3000), 0.001);
+        assertEquals(1, linear.uncertainty(3000), 0.001);
+
+        KalmanModel kalman = new KalmanModel(0.01, 1);
+        assertTrue(Double.isInfinite(kalman.uncertainty(0)));
+        kalman.update(90, 0);
+        kalman.update(92, 0);
+        assertEquals(91, kalman.predict(1000), 0.001);
+        assertEquals(Math.sqrt(0.5 + 0.01), kalman.uncertainty(1000), 0.001);
+    }
+
+    @Test
+    public void skipPolls() {
+        final int[] sent = new int[2];
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(mock(CommanderInterface.class), scheduler) {
+            @Override
+            Response send(Command command) {
+                if (command instanceof EngineRPM) {
+                    sent[0]++;
+                } else if (command instanceof EngineCoolantTemperature) {
+                    sent[1]++;
+                }
+                return new CalculatedResponse(new byte[0], 90);
+            }
+        };
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+        ObdObserver rpm = mock(ObdObserver.class);
+        ObdObserver coolant = mock(ObdObserver.class);
+        service.schedule(new EngineRPM(), 2, rpm);
+        service.schedule(new EngineCoolantTemperature(), 2, coolant);
+        Prediction prediction = new Prediction(new KalmanModel(0.001, 0.25), 1);
+        service.setPrediction(new EngineCoolantTemperature(), prediction);
+        final int[] recorded = new int[1];
+        service.addFrameObserver(new FrameObserver() {
+            @Override
+            public void frame(Snapshot snapshot) {
+                int index = snapshot.indexOf(new EngineCoolantTemperature());
+                if (index >= 0 && snapshot.isUpdated(index)) {
+                    recorded[0]++;
+                }
+            }
+        });
+
+        scheduler.advance(600000);
+
+        // One execution every 4 seconds, a real poll of the temperature every minute (the maximum age)
+        assertEquals(150, sent[0]);
+        assertEquals(10, sent[1]);
+        assertEquals(10, prediction.getPolls());
+        assertEquals(140, prediction.getAvoidedPolls());
+        assertEquals(140, service.getAvoidedPolls());
+        // The frames only have the real polls
+        assertEquals(10, recorded[0]);
+        ArgumentCaptor<Response> responses = ArgumentCaptor.forClass(Response.class);
+        verify(coolant, times(150)).update(responses.capture());
+        assertTrue(responses.getValue() instanceof PredictedResponse);
+        assertEquals(90, ResponseValues.toDouble(responses.getValue()), 0.001);
+        verify(rpm, times(150)).update(any(Response.class));
+    }
+}
@@ -6,13 +6,26 @@ import io.github.macfja.obd2.SimpleCommands;
 import io.github.macfja.obd2.Unit;
 import io.github.macfja.obd2.command.livedata.EngineCoolantTemperature;
 import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.command.livedata.IntakeAirTemperature;
+import io.github.macfja.obd2.command.livedata.IntakeManifoldAbsolutePressure;
+import io.github.macfja.obd2.command.livedata.VehicleSpeed;
 import io.github.macfja.obd2.commander.CommanderInterface;
 import io.github.macfja.obd2.elm327.response.ResponseOK;
 import io.github.macfja.obd2.exception.ExceptionResponse;
+import io.github.macfja.obd2.response.CalculatedResponse;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import javax.script.ScriptException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -54,7 +67,30 @@ public class ServiceTest {
 
 
     @Test
-    public void schedule() {
+    public void addObserverOnce() {
+        Response expectedResponse = new ResponseOK("OK".getBytes());
+
+        CommanderInterface commander = mockCommanderResponding(expectedResponse);
+
+        Service service = new Service(commander);
+        service.setCommunication(null, null);
+
+        ObdObserver observerOnce = mock(ObdObserver.class);
+        ObdObserver observer = mock(ObdObserver.class);
+
+        service.addObserver(EngineRPM.class, observerOnce, true);
+        service.addObserver(EngineRPM.class, observer);
+
+        service.run(new EngineRPM());
+        service.run(new EngineRPM());
+
+        verify(observerOnce, times(1)).update(expectedResponse);
+        verify(observer, times(2)).update(expectedResponse);
+    }
+
+
+    @Test
+    public void addObserverWithFactory() {
         Response expectedResponse = new ResponseOK("OK".getBytes());
 
         CommanderInterface commander = mockCommanderResponding(expectedResponse);
@@ -62,15 +98,41 @@ public class ServiceTest {
         Service service = new Service(commander);
         service.setCommunication(null, null);
 
+        final int[] created = {0};
+        CommandFactories.register(FactorySpeed.class, new CommandFactory<FactorySpeed>() {
+            @Override
+            public FactorySpeed create() {
+                created[0]++;
+                return new FactorySpeed();
+            }
+        });
+
+        ObdObserver observer = mock(ObdObserver.class);
+        service.addObserver(FactorySpeed.class, observer);
+        service.addObserver(FactorySpeed.class, observer);
+
+        service.run(new VehicleSpeed());
+
+        assertEquals(1, created[0]);
+        verify(observer, times(2)).update(expectedResponse);
+    }
+
+
+    @Test
+    public void schedule() {
+        Response expectedResponse = new ResponseOK("OK".getBytes());
+
+        CommanderInterface commander = mockCommanderResponding(expectedResponse);
+
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(commander, scheduler);
+        service.setCommunication(null, null);
+
         ObdObserver observer = mock(ObdObserver.class);
 
         service.schedule(SimpleCommands.create("FAKE"), 2, observer);
 
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            fail();
-        }
+        scheduler.advance(5000);
 
         verify(observer, times(2)).update(expectedResponse);
     }
@@ -82,7 +144,8 @@ public class ServiceTest {
 
         CommanderInterface commander = mockCommanderResponding(expectedResponse);
 
-        Service service = spy(new Service(commander));
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = spy(new Service(commander, scheduler));
         service.setCommunication(null, null);
 
         ObdObserver observer = mock(ObdObserver.class);
@@ -90,13 +153,100 @@ public class ServiceTest {
         service.schedule(toRun, 21, observer);
         service.schedule(toRun, 24);
 
+        scheduler.advance(8000);
+
+        verify(observer, times(2)).update(expectedResponse);
+    }
+
+    @Test
+    public void simulateHoursOfPolling() throws Exception {
+        final VirtualScheduler scheduler = new VirtualScheduler();
+        CommanderInterface commander = mock(CommanderInterface.class);
+        when(commander.sendCommand(any(Command.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                scheduler.sleep(50);
+                return new CalculatedResponse(new byte[0], 800);
+            }
+        });
+        Service service = new Service(commander, scheduler);
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+
+        ObdObserver observer = mock(ObdObserver.class);
+        service.schedule(new EngineRPM(), 2, observer);
+
+        scheduler.advance(3 * 3600 * 1000);
+
+        // One execution every 4 seconds: the elapsed time must be strictly more than 2 seconds
+        verify(observer, times(2700)).update(any(Response.class));
+        assertEquals(50000000, service.getLatencyTracker().getAverage(CommandId.of(new EngineRPM())));
+    }
+
+    @Test
+    public void eventListener() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(mockCommanderResponding(new ResponseOK("41 0C 0D 00".getBytes())), scheduler);
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+        ObdObserver observer = mock(ObdObserver.class);
+        service.schedule(new EngineRPM(), 2, observer);
+        ServiceEventListener events = mock(ServiceEventListener.class);
+        service.setEventListener(events);
+
+        scheduler.advance(1000);
+
+        verify(events).tick(0, 0, 1);
+        verify(events).commandSent("010C", 11, 0, null);
+        verify(events).observerNotified("010C", observer, 0);
+    }
+
+    @Test
+    public void frameObserver() {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(mockCommanderResponding(new CalculatedResponse(new byte[0], 42)), scheduler);
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+        FrameObserver observer = mock(FrameObserver.class);
+        service.addFrameObserver(observer);
+        service.schedule(new EngineRPM(), 2);
+        service.schedule(new VehicleSpeed(), 2);
+
+        scheduler.advance(1000);
+
+        ArgumentCaptor<Snapshot> snapshot = ArgumentCaptor.forClass(Snapshot.class);
+        verify(observer).frame(snapshot.capture());
+        assertEquals(2, snapshot.getValue().size());
+        assertEquals(500, snapshot.getValue().getTime());
+        int speed = snapshot.getValue().indexOf(new VehicleSpeed());
+        assertTrue(snapshot.getValue().isUpdated(speed));
+        assertEquals(42, snapshot.getValue().getValue(speed), 0.001);
+    }
+
+    @Test
+    public void scheduleOverCapacity() {
+        Service service = new Service(mockCommanderResponding(new ResponseOK("OK".getBytes())));
+        service.setAdmissionPolicy(AdmissionPolicy.REJECT);
+        service.getLatencyTracker().record(CommandId.of(new EngineRPM()), 1200000000);
+
+        service.schedule(new EngineRPM(), 2);
         try {
-            Thread.sleep(8000);
-        } catch (InterruptedException e) {
+            service.schedule(new VehicleSpeed(), 2);
             fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("010D"));
         }
+        assertEquals(0.6, service.getBusLoad().getUtilization(), 0.001);
 
-        verify(observer, times(2)).update(expectedResponse);
+        service.setAdmissionPolicy(AdmissionPolicy.SCALE_DOWN);
+        service.schedule(new VehicleSpeed(), 2);
+        service.schedule(new VehicleSpeed(), 2);
+        // The requested periods are kept, the slow down doesn't compound
+        assertEquals(1.2, service.getBusLoad().getUtilization(), 0.001);
+        assertEquals(1.2 / 0.9, service.getScaleDown(), 0.001);
+
+        service.setMaxUtilization(1.5);
+        assertEquals(1, service.getScaleDown(), 0.001);
     }
 
     @Test
@@ -125,6 +275,162 @@ public class ServiceTest {
         assertEquals(Unit.Unknown.getClass(), response.getUnit().getClass());
     }
 
+    @Test
+    public void runError() {
+        CommanderInterface commander = mock(CommanderInterface.class);
+        Command command = SimpleCommands.create("0142");
+        try {
+            when(commander.sendCommand(command)).thenThrow(new ExceptionResponse("NO DATA".getBytes()));
+        } catch (IOException | ScriptException | ExceptionResponse e) {
+            fail();
+        }
+        Service service = new Service(commander);
+
+        Response response = service.run(command);
+        Response second = service.run(command);
+
+        assertSame(ErrorResponse.of(ErrorResponse.Type.NO_DATA), response);
+        assertSame(response, second);
+        assertEquals(2, service.getErrorLogger().getCount("0142", ErrorResponse.Type.NO_DATA));
+        assertEquals(2, service.getHealth(command).getConsecutiveFailures());
+    }
+
+    @Test
+    public void runMultiCommand() {
+        CommanderInterface commander = mock(CommanderInterface.class);
+        try {
+            when(commander.sendCommand(any(EngineRPM.class))).thenReturn(new CalculatedResponse(new byte[0], 2000));
+            when(commander.sendCommand(any(IntakeManifoldAbsolutePressure.class))).thenReturn(new CalculatedResponse(new byte[0], 50));
+            when(commander.sendCommand(any(IntakeAirTemperature.class))).thenReturn(new CalculatedResponse(new byte[0], 300));
+        } catch (IOException | ScriptException | ExceptionResponse e) {
+            fail();
+        }
+        Service service = new Service(commander);
+        CalculatedMassAirFlowCommand maf = new CalculatedMassAirFlowCommand(2) {
+            @Override
+            public double getVolumetricEfficiency(int rpm) {
+                return 80;
+            }
+        };
+
+        Response response = service.run(maf);
+
+        assertTrue(response instanceof CalculatedResponse);
+        assertEquals(15.4827, ((CalculatedResponse) response).getCalculated().doubleValue(), 0.001);
+
+        try {
+            when(commander.sendCommand(any(IntakeAirTemperature.class))).thenThrow(new ExceptionResponse("NO DATA".getBytes()));
+        } catch (IOException | ScriptException | ExceptionResponse e) {
+            fail();
+        }
+
+        assertSame(ErrorResponse.of(ErrorResponse.Type.PARSE_ERROR), service.run(maf));
+        // The failed request is also measured
+        assertEquals(2, service.getLatencyTracker().getCount(CommandId.of(new IntakeAirTemperature())));
+    }
+
+    @Test
+    public void alignedMultiCommand() throws Exception {
+        final VirtualScheduler scheduler = new VirtualScheduler();
+        CommanderInterface commander = mock(CommanderInterface.class);
+        when(commander.sendCommand(any(Command.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                // The ECU measure in the middle of the round-trip, the RPM grow of 1 per millisecond
+                scheduler.sleep(50);
+                int value = invocation.getArguments()[0] instanceof EngineRPM ? 1000 + (int) scheduler.currentTimeMillis() : 300;
+                scheduler.sleep(50);
+                return new CalculatedResponse(new byte[0], value);
+            }
+        });
+        Service service = new Service(commander, scheduler);
+        final MultiResponse[] frame = new MultiResponse[1];
+        CalculatedMassAirFlowCommand maf = new CalculatedMassAirFlowCommand(2) {
+            @Override
+            public Response getResponse(MultiResponse responses) throws ScriptException {
+                frame[0] = responses;
+                return super.getResponse(responses);
+            }
+
+            @Override
+            public double getVolumetricEfficiency(int rpm) {
+                return 80;
+            }
+        };
+
+        assertFalse(service.isSampleAlignment());
+        service.setSampleAlignment(true);
+        service.run(new EngineRPM());
+        service.run(maf);
+
+        // RPM read at 150 ms, IAT (the last one) at 350 ms
+        assertEquals(150000000, frame[0].getRequestTimeAt(0) + 50000000);
+        assertEquals(350000000, frame[0].getInstant());
+        assertEquals(1150, ResponseValues.toDouble(frame[0].getResponseAt(0)), 0.001);
+        assertEquals(1350, frame[0].getValueAt(0), 0.001);
+        assertEquals(300, frame[0].getValueAt(2), 0.001);
+        try {
+            frame[0].setResponse("010C", null);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // The frame given to the multi-command (and to its observers) is read-only
+        }
+
+        service.setSampleAlignment(false);
+        service.run(maf);
+
+        assertEquals(-1, frame[0].getInstant());
+        assertEquals(1450, frame[0].getValueAt(0), 0.001);
+    }
+
+    @Test
+    public void legacyMultiCommand() throws Exception {
+        CommanderInterface commander = mock(CommanderInterface.class);
+        when(commander.sendCommand(any(EngineRPM.class))).thenReturn(new CalculatedResponse(new byte[0], 1200));
+        when(commander.sendCommand(any(VehicleSpeed.class))).thenReturn(new CalculatedResponse(new byte[0], 60));
+        Service service = new Service(commander, new VirtualScheduler());
+        final Map<String, Response> stored = new HashMap<>();
+        EngineRPM legacy = new LegacyMultiCommand(stored);
+
+        Response response = service.run(legacy);
+
+        assertEquals(2, stored.size());
+        assertEquals(60, ResponseValues.toDouble(stored.get(new VehicleSpeed().getRequest())), 0.001);
+        assertEquals(1260, ResponseValues.toDouble(response), 0.001);
+    }
+
+    @Test
+    public void adapterNegotiation() {
+        final VirtualScheduler scheduler = new VirtualScheduler();
+        final List<String> requests = new ArrayList<>();
+        Service service = new Service(mock(CommanderInterface.class), scheduler) {
+            @Override
+            Response send(Command command) {
+                requests.add(command.getRequest());
+                // Without the hint, the adapter wait 80 ms for other ECUs
+                scheduler.sleep(command.getRequest().length() == 5 ? 20 : 100);
+                return new ResponseOK("410C1AF8".getBytes());
+            }
+        };
+        service.setAdapterSettings(new AdapterSettings());
+        service.setPrefetchCommands(Collections.<Command>emptyList());
+        service.setCommunication(null, null);
+
+        assertEquals(Arrays.asList("ATE0", "ATL0", "ATS0", "ATH0", "ATAT1"), requests.subList(0, 5));
+
+        int rpm = CommandId.of(new EngineRPM());
+        for (int run = 0; run < 20; run++) {
+            service.run(new EngineRPM());
+        }
+
+        // 10 requests without the hint to measure the baseline, then 10 with it
+        assertEquals("010C", requests.get(requests.size() - 11));
+        assertEquals("010C1", requests.get(requests.size() - 10));
+        assertEquals(1, service.getResponseCountHints().getCount(rpm));
+        assertEquals(100000000, service.getResponseCountHints().getBaseline(rpm));
+        assertEquals(20000000, service.getResponseCountHints().getHintedAverage(rpm));
+    }
+
     @Test
     public void onReady() {
         CommanderInterface commander = mock(CommanderInterface.class);
@@ -136,6 +442,62 @@ public class ServiceTest {
 
         service.setCommunication(null, null);
 
-        verify(action).run();
+        verify(action, timeout(1000)).run();
+    }
+
+    @Test
+    public void onReadyStage() {
+        CommanderInterface commander = mockCommanderResponding(new ResponseOK("OK".getBytes()));
+        Service service = new Service(commander);
+        Runnable action = mock(Runnable.class);
+        service.onReady(StartupStage.PREFETCH, action);
+
+        service.setCommunication(null, null);
+
+        verify(action, timeout(1000)).run();
+        assertTrue(service.isReady(StartupStage.PROTOCOL));
+        assertTrue(service.getStartupDuration(StartupStage.PREFETCH) >= 0);
+        try {
+            verify(commander, times(3)).sendCommand(any(Command.class));
+        } catch (IOException | ScriptException | ExceptionResponse e) {
+            fail();
+        }
+    }
+
+    /**
+     * A command class only used by this test (the factories are global)
+     */
+    public static class FactorySpeed extends VehicleSpeed {
+    }
+
+    /**
+     * A multi-command written against the interface before {@link SlottedMultiCommand}
+     */
+    @SuppressWarnings("deprecation")
+    private static class LegacyMultiCommand extends EngineRPM implements MultiCommandInterface {
+        private final Map<String, Response> stored;
+
+        LegacyMultiCommand(Map<String, Response> stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public List<Command> getCommands() {
+            return Arrays.<Command>asList(new EngineRPM(), new VehicleSpeed());
+        }
+
+        @Override
+        public void setResponse(String command, Response response) {
+            stored.put(command, response);
+        }
+
+        @Override
+        public Response getResponse(byte[] rawResult) {
+            double sum = 0;
+            for (Response response : stored.values()) {
+                sum += ResponseValues.toDouble(response);
+            }
+            return new CalculatedResponse(new byte[0], sum);
+        }
     }
-}
\ No newline at end of file
+}
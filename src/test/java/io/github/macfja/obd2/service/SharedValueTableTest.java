@@ -0,0 +1,36 @@
+package io.github.macfja.obd2.service;
+
+import io.github.macfja.obd2.response.CalculatedResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class SharedValueTableTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndRead() throws Exception {
+        File file = folder.newFile("values.obdv");
+        SharedValueTable table = new SharedValueTable(file, 1);
+        table.write(CommandId.of("010C"), new CalculatedResponse(new byte[0], 850), 1000);
+        table.write(CommandId.of("010C"), new CalculatedResponse(new byte[0], 900), 2000);
+        table.write(CommandId.of("010D"), ErrorResponse.of(ErrorResponse.Type.NO_DATA), 3000);
+        assertEquals(1, table.getUsed());
+
+        SharedValueReader reader = new SharedValueReader(file);
+        assertEquals(-1, reader.find("010D"));
+        SharedValue value = reader.read(reader.find("010C"), new SharedValue());
+        assertEquals(900, value.getValue(), 0.001);
+        assertEquals(2000, value.getTimestamp());
+        assertEquals(2, value.getUpdateCount());
+        assertNull(value.getError());
+
+        reader.close();
+        table.close();
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.macfja.obd2.service.alert;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.command.livedata.EngineCoolantTemperature;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.response.CalculatedResponse;
+import io.github.macfja.obd2.service.Service;
+import io.github.macfja.obd2.service.VirtualScheduler;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RuleEngineTest {
+    @Test
+    public void thresholdWithHysteresisAndDuration() throws Exception {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(commanderAnswering(90, 101, 103, 104, 98, 94, 102), scheduler);
+        RuleEngine engine = new RuleEngine(service, scheduler);
+        Rule overheat = Rule.above("overheat", new EngineCoolantTemperature(), 100);
+        overheat.setHysteresis(5);
+        overheat.setDuration(2000);
+        engine.add(overheat);
+        AlertListener listener = mock(AlertListener.class);
+        engine.addListener(listener);
+        engine.start();
+
+        for (int sample = 0; sample < 7; sample++) {
+            service.run(new EngineCoolantTemperature());
+            scheduler.sleep(1000);
+        }
+        verifyZeroInteractions(listener);
+        scheduler.runPending();
+
+        InOrder order = inOrder(listener);
+        // Above since 1 s, raised at 3 s. Cleared at 5 s (below 95), 102 is not held long enough
+        order.verify(listener).raised(overheat, 104, 3000);
+        order.verify(listener).cleared(overheat, 94, 5000);
+        order.verifyNoMoreInteractions();
+        assertFalse(engine.isRaised(overheat));
+    }
+
+    @Test
+    public void onlyRulesOfTheUpdatedCommand() throws Exception {
+        VirtualScheduler scheduler = new VirtualScheduler();
+        Service service = new Service(commanderAnswering(1000, 5000, 3000), scheduler);
+        // The engine use the virtual clock of the service
+        RuleEngine engine = new RuleEngine(service);
+        Rule overRev = Rule.above("over-rev", new EngineRPM(), 4500);
+        Rule revving = Rule.above("revving", new EngineRPM(), 2000);
+        revving.setRateOfChange(true);
+        Rule overheat = Rule.above("overheat", new EngineCoolantTemperature(), 100);
+        engine.add(overRev);
+        engine.add(revving);
+        engine.add(overheat);
+        AlertListener listener = mock(AlertListener.class);
+        engine.addListener(listener);
+        engine.start();
+
+        for (int sample = 0; sample < 3; sample++) {
+            service.run(new EngineRPM());
+            scheduler.sleep(1000);
+        }
+        scheduler.runPending();
+
+        verify(listener).raised(overRev, 5000, 1000);
+        verify(listener).raised(revving, 4000, 1000);
+        verify(listener).cleared(overRev, 3000, 2000);
+        verify(listener).cleared(revving, -2000, 2000);
+        verify(listener, never()).raised(eq(overheat), anyDouble(), anyLong());
+        verifyNoMoreInteractions(listener);
+
+        engine.remove(overRev);
+        assertFalse(engine.isRaised(overRev));
+    }
+
+    private static CommanderInterface commanderAnswering(Integer... values) throws Exception {
+        final Iterator<Integer> iterator = Arrays.asList(values).iterator();
+        CommanderInterface commander = mock(CommanderInterface.class);
+        when(commander.sendCommand(any(Command.class))).thenAnswer(new Answer<Response>() {
+            @Override
+            public Response answer(InvocationOnMock invocation) {
+                return new CalculatedResponse(new byte[0], iterator.next());
+            }
+        });
+        return commander;
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.macfja.obd2.service.export;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class CsvBatchWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeCoalescedRows() throws Exception {
+        SampleBatch batch = new SampleBatch(new String[]{"010C", "010D"}, 2);
+        assertTrue(batch.add(0, 1000, 800.0, 100));
+        assertTrue(batch.add(1, 1050, 42.0, 100));
+        assertTrue(batch.add(0, 1200, 900.0, 100));
+        assertFalse(batch.add(1, 1400, 50.0, 100));
+        assertEquals(2, batch.getRowCount());
+
+        CsvBatchWriter writer = new CsvBatchWriter(folder.getRoot(), "trip");
+        writer.write(batch);
+        File file = writer.getFile();
+        writer.close();
+
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals("timestamp,010C,010D\n1000,800.0,42.0\n1200,900.0,\n", content);
+    }
+}
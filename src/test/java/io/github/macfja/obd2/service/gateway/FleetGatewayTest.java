@@ -0,0 +1,165 @@
+package io.github.macfja.obd2.service.gateway;
+
+import io.github.macfja.obd2.Command;
+import io.github.macfja.obd2.Response;
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.commander.CommanderInterface;
+import io.github.macfja.obd2.exception.ExceptionResponse;
+import io.github.macfja.obd2.response.CalculatedResponse;
+import io.github.macfja.obd2.service.ObdObserver;
+import io.github.macfja.obd2.service.Service;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.script.ScriptException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class FleetGatewayTest {
+    @Test
+    public void shardedVehicles() throws Exception {
+        final Set<String> threads = new ConcurrentSkipListSet<>();
+        FleetGateway gateway = new FleetGateway(2, null);
+        ObdObserver observer = mock(ObdObserver.class);
+        for (int vehicle = 0; vehicle < 4; vehicle++) {
+            CommanderInterface commander = mock(CommanderInterface.class);
+            when(commander.sendCommand(any(EngineRPM.class))).thenAnswer(new Answer<Response>() {
+                @Override
+                public Response answer(InvocationOnMock invocation) {
+                    threads.add(Thread.currentThread().getName());
+                    return new CalculatedResponse(new byte[0], 800);
+                }
+            });
+            Service service = gateway.connect("vehicle-" + vehicle, commander, null, null);
+            service.schedule(new EngineRPM(), 0.1, observer);
+        }
+
+        verify(observer, timeout(5000).atLeast(4)).update(any(Response.class));
+        assertEquals(4, gateway.getVehicleCount());
+        assertEquals(2, gateway.getVehicleCount(0));
+        assertEquals(2, gateway.getVehicleCount(1));
+        assertNotEquals(gateway.getShardOf("vehicle-0"), gateway.getShardOf("vehicle-1"));
+        for (String thread : threads) {
+            assertTrue(thread, thread.startsWith("obd2-shard-"));
+        }
+        assertTrue(gateway.getMetrics().getCommands() >= 4);
+
+        gateway.disconnect("vehicle-0");
+        assertNull(gateway.getService("vehicle-0"));
+        assertEquals(1, gateway.getVehicleCount(gateway.getShardOf("vehicle-2")));
+        gateway.close();
+        assertEquals(0, gateway.getVehicleCount());
+    }
+
+    @Test
+    public void simulatedAdapter() throws IOException {
+        AdapterSimulator adapter = new AdapterSimulator(0);
+        adapter.setEcuTimeout(0);
+        OutputStream toAdapter = adapter.getToAdapter();
+        InputStream fromAdapter = adapter.getFromAdapter();
+
+        toAdapter.write("ATE0\r".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("ATE0\rOK\r\r>", readPrompt(fromAdapter));
+        toAdapter.write("ATS0\r010C1\r0902\r".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("OK\r\r>", readPrompt(fromAdapter));
+        assertTrue(readPrompt(fromAdapter).matches("410C[0-9A-F]{4}\r\r>"));
+        assertEquals("NO DATA\r\r>", readPrompt(fromAdapter));
+
+        adapter.close();
+        assertEquals(-1, fromAdapter.read());
+    }
+
+    @Test
+    public void simulatedLatencyDoesNotBlockTheWriter() throws IOException {
+        AdapterSimulator adapter = new AdapterSimulator(200);
+        adapter.setEcuTimeout(0);
+
+        long start = System.nanoTime();
+        adapter.getToAdapter().write("ATZ\rATZ\r".getBytes(StandardCharsets.US_ASCII));
+        long written = System.nanoTime() - start;
+        assertEquals(0, adapter.getFromAdapter().available());
+        readPrompt(adapter.getFromAdapter());
+        long first = System.nanoTime() - start;
+        readPrompt(adapter.getFromAdapter());
+        long second = System.nanoTime() - start;
+
+        assertTrue(written < 100000000);
+        // The requests are handled one after the other
+        assertTrue(first >= 200000000);
+        assertTrue(second >= 400000000);
+        adapter.close();
+    }
+
+    @Test
+    public void loadGenerator() throws Exception {
+        FleetGateway gateway = new FleetGateway(2, null);
+        LoadGenerator generator = new LoadGenerator(gateway, new CommanderFactory() {
+            @Override
+            public CommanderInterface create() {
+                return new StreamCommander();
+            }
+        });
+        generator.setVehicles(4);
+        generator.setFrequency(0.1);
+        generator.setLatency(5);
+
+        LoadGenerator.Result result = generator.run(1000);
+        gateway.close();
+
+        assertEquals(4, result.getVehicles());
+        assertTrue(result.toString(), result.getCommands() > 10);
+        // Only the VIN and the DTCs of the startup are not answered by the simulator
+        assertTrue(result.toString(), result.getErrors() <= 2 * 4);
+        assertTrue(result.toString(), result.getAverageLatency() >= 5);
+        assertEquals(0, gateway.getVehicleCount());
+    }
+
+    private static String readPrompt(InputStream input) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int value;
+        while ((value = input.read()) != -1) {
+            builder.append((char) value);
+            if (value == '>') {
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A minimal ELM327 commander, that read the responses of the adapter from its stream
+     */
+    private static class StreamCommander implements CommanderInterface {
+        private OutputStream toObd;
+        private InputStream fromObd;
+
+        @Override
+        public void setCommunicationInterface(OutputStream toObd, InputStream fromObd) {
+            this.toObd = toObd;
+            this.fromObd = fromObd;
+        }
+
+        @Override
+        public Response sendCommand(Command command) throws IOException, ScriptException, ExceptionResponse {
+            toObd.write((command.getRequest() + "\r").getBytes(StandardCharsets.US_ASCII));
+            String response = "";
+            for (String line : readPrompt(fromObd).split("\r")) {
+                if (!line.isEmpty() && !line.equals(">") && !line.equals(command.getRequest())) {
+                    response = line.replace(" ", "");
+                }
+            }
+            if (response.isEmpty() || response.equals("NODATA")) {
+                throw new ExceptionResponse(response.getBytes(StandardCharsets.US_ASCII));
+            }
+            return command.getResponse(response.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
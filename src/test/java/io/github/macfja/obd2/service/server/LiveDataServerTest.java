@@ -0,0 +1,63 @@
+package io.github.macfja.obd2.service.server;
+
+import io.github.macfja.obd2.command.livedata.EngineRPM;
+import io.github.macfja.obd2.response.CalculatedResponse;
+import io.github.macfja.obd2.service.Obd2Service;
+import io.github.macfja.obd2.service.ObdObserver;
+import io.github.macfja.obd2.service.VirtualScheduler;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LiveDataServerTest {
+    @Test
+    public void subscribeAndReceive() throws Exception {
+        Obd2Service service = mock(Obd2Service.class);
+        EngineRPM command = new EngineRPM();
+        VirtualScheduler scheduler = new VirtualScheduler(1500000000000L);
+        LiveDataServer server = new LiveDataServer(service, new InetSocketAddress("127.0.0.1", 0), scheduler);
+        server.publish(command);
+        ArgumentCaptor<ObdObserver> observer = ArgumentCaptor.forClass(ObdObserver.class);
+        verify(service).addObserver(eq(command), observer.capture());
+        server.start();
+
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.setSoTimeout(2000);
+            OutputStream output = socket.getOutputStream();
+            DataInputStream input = new DataInputStream(socket.getInputStream());
+
+            output.write("SUB 0142\nSUB 010C\n".getBytes(StandardCharsets.US_ASCII));
+            assertEquals(LiveDataServer.UNKNOWN, input.readByte());
+            assertEquals("0142", input.readUTF());
+            assertEquals(LiveDataServer.BOUND, input.readByte());
+            assertEquals(0, input.readShort());
+            assertEquals("010C", input.readUTF());
+
+            observer.getValue().update(new CalculatedResponse(new byte[0], 850));
+
+            assertEquals(Topic.UPDATE, input.readByte());
+            assertEquals(0, input.readShort());
+            assertEquals(1500000000000L, input.readLong());
+            assertEquals(850, input.readDouble(), 0.001);
+        }
+
+        server.close();
+        verify(service).removeObserver(any(ObdObserver.class));
+    }
+
+    @Test
+    public void webSocketAcceptKey() {
+        // Example of the RFC 6455
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocket.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+}